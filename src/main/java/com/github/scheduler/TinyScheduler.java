@@ -1,16 +1,37 @@
 package com.github.scheduler;
 
+import com.github.scheduler.executor.ExecutionPools;
+import com.github.scheduler.model.CapturePolicy;
+import com.github.scheduler.model.JobConfig;
 import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
+import com.github.scheduler.model.LineOutputListener;
+import com.github.scheduler.model.OutputPatterns;
+import com.github.scheduler.model.ProcessSettings;
+import com.github.scheduler.model.ResourceLimits;
+import com.github.scheduler.model.RetryPolicy;
 import com.github.scheduler.runner.*;
+import com.github.scheduler.task.TaskPlugins;
+import com.github.scheduler.utils.CgroupSlice;
 import com.github.scheduler.utils.ScheduleMode;
 import com.github.scheduler.utils.Utils;
+import com.github.scheduler.utils.LaunchMechanism;
+import com.github.scheduler.utils.ProcessReaper;
+import com.github.scheduler.utils.VirtualThreads;
+import com.github.scheduler.utils.WorkerShellPool;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.scheduler.utils.Utils.paramIndexSearch;
@@ -38,13 +59,46 @@ public class TinyScheduler {
             "usage: " + LINE_SEPARATOR +
             " java -jar tiny-scheduler-0.0.1.jar " + LINE_SEPARATOR +
                     "    ---schedule_mode 1|2|3|4|5 " + LINE_SEPARATOR +
-                    "    ---schedule_cmd [args...] " + LINE_SEPARATOR +
+                    "    ---schedule_cmd [args...] | ---schedule_task task_name [args...](java task plugin, run in-process)" + LINE_SEPARATOR +
                     "    ---delay delay" + LINE_SEPARATOR +
                     "    ---period period " + LINE_SEPARATOR +
                     "    ---timeunit milliseconds|seconds|minutes|hours|days " + LINE_SEPARATOR +
                     "    ---day_in_weeks monday|tuesday|wednesday|thursday|friday|saturday|sunday(comma-delimited) " + LINE_SEPARATOR +
                     "    ---dates dates(date format must be:yyyy-MM-dd,comma-delimited) " + LINE_SEPARATOR +
-                    "    ---execute_time execute_time(time format must be:HH:mm:ss)"
+                    "    ---execute_time execute_time(time format must be:HH:mm:ss)" + LINE_SEPARATOR +
+                    "    [---deadline deadline(completion time of day, format must be:HH:mm:ss)]" + LINE_SEPARATOR +
+                    "    [---sla sla(completion deadline in seconds after the job fires)]" + LINE_SEPARATOR +
+                    "    [---pool fast|batch(execution pool, routed by historical duration if absent)]" + LINE_SEPARATOR +
+                    "    [---timeout timeout(seconds after which the command is killed)]" + LINE_SEPARATOR +
+                    "    [---max_attempts max_attempts(attempts of a failed execution, default 1)]" + LINE_SEPARATOR +
+                    "    [---retry_backoff retry_backoff(backoff before the first retry in milliseconds, doubled per retry, default 1000)]" + LINE_SEPARATOR +
+                    "    [---retry_exit_codes retry_exit_codes(exit codes to retry, delimiter must be: ',', any non-zero code if absent)]" + LINE_SEPARATOR +
+                    "    [---cpus cpus(cpu list the job may run on, e.g. 0-3,6)]" + LINE_SEPARATOR +
+                    "    [---nice nice(nice value of the job, -20 to 19)]" + LINE_SEPARATOR +
+                    "    [---ionice ionice(io class of the job: realtime|best-effort|idle, optionally with level 0-7, e.g. best-effort:7)]" + LINE_SEPARATOR +
+                    "    [---sched sched(cpu scheduling policy of the job: batch|idle)]" + LINE_SEPARATOR +
+                    "    [---cgroup(run the job in its own cgroup to account its resource usage, needs a cgroup slice)]" + LINE_SEPARATOR +
+                    "    [---cpu_max cpu_max(cgroup limit in cpus, e.g. 0.5)]" + LINE_SEPARATOR +
+                    "    [---memory_max memory_max(cgroup memory limit in MB)]" + LINE_SEPARATOR +
+                    "    [---io_max io_max(cgroup io.max lines, delimiter must be: ';', e.g. \"8:0 rbps=1048576 wbps=1048576\")]" + LINE_SEPARATOR +
+                    "    [---cgroup_slice cgroup_slice(cgroup v2 directory delegated to the scheduler, children are created per execution)]" + LINE_SEPARATOR +
+                    "    [---priority priority(negative for background jobs, which are paused under memory pressure, default 0)]" + LINE_SEPARATOR +
+                    "    [---deferrable max_defer(hold back while the host is overloaded, for at most max_defer seconds)]" + LINE_SEPARATOR +
+                    "    [---pre_launch lead_millis(launch the process this long before the fire time, blocked until it)]" + LINE_SEPARATOR +
+                    "    [---spool_dir spool_dir(the command writes its output into files there, no stream is read by the scheduler)]" + LINE_SEPARATOR +
+                    "    [---capture head_kb,tail_kb(keep the first head_kb and the last tail_kb of each output stream, count what is dropped)]" + LINE_SEPARATOR +
+                    "    [---pooled_buffers(capture the output in pooled direct buffers instead of on the heap)]" + LINE_SEPARATOR +
+                    "    [---follow(print the output lines while the command runs instead of in the response)]" + LINE_SEPARATOR +
+                    "    [---match patterns(strings searched for in the output while it is read, delimiter must be: ',')]" + LINE_SEPARATOR +
+                    "    [---match_file match_file(like ---match, one pattern per line)]" + LINE_SEPARATOR +
+                    "    [---match_ignore_case(ascii letters of the patterns match in either case)]" + LINE_SEPARATOR +
+                    "    [---match_fail exit_code(a run exiting with 0 fails with exit_code if a pattern matched)]" + LINE_SEPARATOR +
+                    "    [---match_only(keep only what the patterns matched, none of the output)]" + LINE_SEPARATOR +
+                    "    [---plugin_dir plugin_dir(directory of task plugin jars, each loaded in a class loader of its own)]" + LINE_SEPARATOR +
+                    "    [---worker_shell(run on a pooled long-lived bash, for frequent short commands without cgroup or process settings)]" + LINE_SEPARATOR +
+                    "    [---virtual_threads(run executions on virtual threads, needs the jdk21 build profile)]" + LINE_SEPARATOR +
+                    "    [---epoll_reaper(supervise commands and their output by one pidfd/epoll thread, needs the jdk22 build profile)]" + LINE_SEPARATOR +
+                    "    [---launch_mechanism posix_spawn|vfork|fork(how the jdk starts commands, default is the jdk's own choice)]"
             ;
 
     private static void printUsageAndExit(String...messages){
@@ -189,6 +243,271 @@ public class TinyScheduler {
         return executeTime;
     }
 
+    private static String getDeadlineParam(String[] args){
+        String deadline = null;
+        int index = paramIndexSearch(args,"---deadline");
+        if(index != -1){
+            String deadlineTemp = args[index+1];
+            if(Utils.regexTimeFormatMatch(deadlineTemp)){
+                deadline = deadlineTemp;
+            }else{
+                printUsageAndExit("error: deadline is invalid:" + deadlineTemp);
+            }
+        }
+
+        return deadline;
+    }
+
+    private static long getSlaParam(String[] args){
+        long slaSeconds = 0L;
+        int index = paramIndexSearch(args,"---sla");
+        if(index != -1){
+            String slaStr = args[index+1];
+            slaSeconds = Long.parseLong(slaStr);
+            if(slaSeconds <= 0){
+                printUsageAndExit("error: sla is invalid:" + slaStr);
+            }
+        }
+
+        return slaSeconds;
+    }
+
+    private static long getTimeoutParam(String[] args){
+        long timeoutSeconds = 0L;
+        int index = paramIndexSearch(args,"---timeout");
+        if(index != -1){
+            String timeoutStr = args[index+1];
+            timeoutSeconds = Long.parseLong(timeoutStr);
+            if(timeoutSeconds <= 0){
+                printUsageAndExit("error: timeout is invalid:" + timeoutStr);
+            }
+        }
+
+        return timeoutSeconds;
+    }
+
+    private static String getPoolParam(String[] args){
+        String pool = null;
+        int index = paramIndexSearch(args,"---pool");
+        if(index != -1){
+            pool = args[index+1];
+            if(!pool.equals(ExecutionPools.FAST) && !pool.equals(ExecutionPools.BATCH)){
+                printUsageAndExit("error: pool is invalid:" + pool);
+            }
+        }
+
+        return pool;
+    }
+
+    private static ProcessSettings getProcessSettingsParam(String[] args){
+        ProcessSettings settings = new ProcessSettings();
+        try{
+            int index = paramIndexSearch(args,"---cpus");
+            if(index != -1){
+                settings.setCpuSet(args[index+1]);
+            }
+
+            index = paramIndexSearch(args,"---nice");
+            if(index != -1){
+                settings.setNice(Integer.parseInt(args[index+1]));
+            }
+
+            index = paramIndexSearch(args,"---ionice");
+            if(index != -1){
+                String[] ionice = args[index+1].split(":");
+                settings.setIoClass(ProcessSettings.IoClass.valueOf(ionice[0].toUpperCase().replace('-','_')));
+                if(ionice.length > 1){
+                    settings.setIoLevel(Integer.parseInt(ionice[1]));
+                }
+            }
+
+            index = paramIndexSearch(args,"---sched");
+            if(index != -1){
+                settings.setSchedPolicy(ProcessSettings.SchedPolicy.valueOf(args[index+1].toUpperCase()));
+            }
+        }catch (IllegalArgumentException e){
+            printUsageAndExit("error: process settings are invalid:" + e.getMessage());
+        }
+
+        return settings;
+    }
+
+    private static ResourceLimits getResourceLimitsParam(String[] args){
+        boolean cgroup = paramIndexSearch(args,"---cgroup") != -1;
+        ResourceLimits limits = new ResourceLimits();
+        try{
+            int index = paramIndexSearch(args,"---cpu_max");
+            if(index != -1){
+                limits.setCpuMax(Double.parseDouble(args[index+1]));
+                cgroup = true;
+            }
+
+            index = paramIndexSearch(args,"---memory_max");
+            if(index != -1){
+                limits.setMemoryMaxBytes(Long.parseLong(args[index+1]) * 1024L * 1024L);
+                cgroup = true;
+            }
+
+            index = paramIndexSearch(args,"---io_max");
+            if(index != -1){
+                limits.setIoMax(Arrays.asList(args[index+1].split(";")));
+                cgroup = true;
+            }
+        }catch (IllegalArgumentException e){
+            printUsageAndExit("error: resource limits are invalid:" + e.getMessage());
+        }
+
+        return cgroup ? limits : null;
+    }
+
+    private static int getPriorityParam(String[] args){
+        int priority = JobConfig.DEFAULT_PRIORITY;
+        int index = paramIndexSearch(args,"---priority");
+        if(index != -1){
+            priority = Integer.parseInt(args[index+1]);
+        }
+
+        return priority;
+    }
+
+    private static long getPreLaunchParam(String[] args){
+        long preLaunchMillis = 0L;
+        int index = paramIndexSearch(args,"---pre_launch");
+        if(index != -1){
+            String preLaunchStr = args[index+1];
+            preLaunchMillis = Long.parseLong(preLaunchStr);
+            if(preLaunchMillis < 0){
+                printUsageAndExit("error: pre_launch is invalid:" + preLaunchStr);
+            }
+        }
+
+        return preLaunchMillis;
+    }
+
+    private static String getSpoolDirParam(String[] args){
+        String spoolDir = null;
+        int index = paramIndexSearch(args,"---spool_dir");
+        if(index != -1){
+            spoolDir = args[index+1];
+            if(!new File(spoolDir).isDirectory()){
+                printUsageAndExit("error: spool_dir is not a directory:" + spoolDir);
+            }
+            // the command writes a spool itself, nothing would be left to follow or match.
+            if(paramIndexSearch(args,"---follow") != -1 || paramIndexSearch(args,"---match") != -1
+                    || paramIndexSearch(args,"---match_file") != -1){
+                printUsageAndExit("error: spool_dir can not be combined with ---follow or ---match!");
+            }
+        }
+
+        return spoolDir;
+    }
+
+    private static CapturePolicy getCapturePolicyParam(String[] args){
+        CapturePolicy policy = null;
+        int index = paramIndexSearch(args,"---capture");
+        if(index != -1){
+            String captureStr = args[index+1];
+            String[] kb = captureStr.split(",");
+            try{
+                if(kb.length != 2){
+                    throw new IllegalArgumentException("two sizes expected");
+                }
+                policy = new CapturePolicy(Integer.parseInt(kb[0].trim()) * 1024, Integer.parseInt(kb[1].trim()) * 1024);
+            }catch (IllegalArgumentException e){
+                printUsageAndExit("error: capture is invalid:" + captureStr);
+            }
+        }
+
+        return policy;
+    }
+
+    private static OutputPatterns getOutputPatternsParam(String[] args){
+        List<String> patterns = new ArrayList<>();
+        int index = paramIndexSearch(args,"---match");
+        if(index != -1){
+            for(String pattern : args[index+1].split(",")){
+                if(!pattern.isEmpty()){
+                    patterns.add(pattern);
+                }
+            }
+        }
+        index = paramIndexSearch(args,"---match_file");
+        if(index != -1){
+            try{
+                for(String pattern : Files.readAllLines(Paths.get(args[index+1]))){
+                    if(!pattern.isEmpty()){
+                        patterns.add(pattern);
+                    }
+                }
+            }catch (IOException e){
+                printUsageAndExit("error: match_file is invalid:" + e.getMessage());
+            }
+        }
+        if(patterns.isEmpty()){
+            return null;
+        }
+
+        int failExitCode = 0;
+        index = paramIndexSearch(args,"---match_fail");
+        if(index != -1){
+            String failStr = args[index+1];
+            failExitCode = Integer.parseInt(failStr);
+            if(failExitCode == 0){
+                printUsageAndExit("error: match_fail is invalid:" + failStr);
+            }
+        }
+
+        return new OutputPatterns(patterns,paramIndexSearch(args,"---match_ignore_case") != -1,failExitCode,
+                paramIndexSearch(args,"---match_only") != -1,OutputPatterns.DEFAULT_MAX_SAMPLES,
+                OutputPatterns.DEFAULT_MAX_SAMPLE_BYTES);
+    }
+
+    private static long getMaxDeferParam(String[] args){
+        long maxDeferSeconds = -1L;
+        int index = paramIndexSearch(args,"---deferrable");
+        if(index != -1){
+            String maxDeferStr = args[index+1];
+            maxDeferSeconds = Long.parseLong(maxDeferStr);
+            if(maxDeferSeconds < 0){
+                printUsageAndExit("error: max_defer is invalid:" + maxDeferStr);
+            }
+        }
+
+        return maxDeferSeconds;
+    }
+
+    private static RetryPolicy getRetryPolicyParam(String[] args){
+        int index = paramIndexSearch(args,"---max_attempts");
+        if(index == -1){
+            return RetryPolicy.NONE;
+        }
+        String maxAttemptsStr = args[index+1];
+        int maxAttempts = Integer.parseInt(maxAttemptsStr);
+        if(maxAttempts <= 0){
+            printUsageAndExit("error: max_attempts is invalid:" + maxAttemptsStr);
+        }
+
+        long backoffMillis = 1000L;
+        index = paramIndexSearch(args,"---retry_backoff");
+        if(index != -1){
+            String backoffStr = args[index+1];
+            backoffMillis = Long.parseLong(backoffStr);
+            if(backoffMillis < 0){
+                printUsageAndExit("error: retry_backoff is invalid:" + backoffStr);
+            }
+        }
+
+        Set<Integer> exitCodes = new HashSet<>();
+        index = paramIndexSearch(args,"---retry_exit_codes");
+        if(index != -1){
+            for(String code : args[index+1].split(",")){
+                exitCodes.add(Integer.parseInt(code.trim()));
+            }
+        }
+
+        return new RetryPolicy(maxAttempts,backoffMillis,60000L,2.0,0.5,exitCodes);
+    }
+
     /**
      * 命令行解析并调度执行.
      * @param args 命令行参数
@@ -211,6 +530,13 @@ public class TinyScheduler {
 
         List<String> cmdList = new ArrayList<>();
         int scheduleCmdIndex = paramIndexSearch(args,"---schedule_cmd");
+        int scheduleTaskIndex = paramIndexSearch(args,"---schedule_task");
+        if(scheduleCmdIndex != -1 && scheduleTaskIndex != -1){
+            printUsageAndExit("error: ---schedule_cmd and ---schedule_task can not be combined!");
+        }
+        if(scheduleTaskIndex != -1){
+            scheduleCmdIndex = scheduleTaskIndex;
+        }
         if(scheduleCmdIndex != -1){
             for(int i = scheduleCmdIndex + 1; i < args.length; i++){
                 String arg = args[i];
@@ -266,6 +592,34 @@ public class TinyScheduler {
                 printUsageAndExit("error: schedule_mode is invalid!");
         }
 
+        if(jobRunner != null){
+            jobRunner.getJobConfig().setDeadlineTime(getDeadlineParam(args));
+            jobRunner.getJobConfig().setSlaMillis(TimeUnit.SECONDS.toMillis(getSlaParam(args)));
+            jobRunner.getJobConfig().setPool(getPoolParam(args));
+            jobRunner.getJobConfig().setTimeoutMillis(TimeUnit.SECONDS.toMillis(getTimeoutParam(args)));
+            jobRunner.getJobConfig().setRetryPolicy(getRetryPolicyParam(args));
+            jobRunner.getJobConfig().setProcessSettings(getProcessSettingsParam(args));
+            jobRunner.getJobConfig().setResourceLimits(getResourceLimitsParam(args));
+            jobRunner.getJobConfig().setPriority(getPriorityParam(args));
+            jobRunner.getJobConfig().setTask(scheduleTaskIndex != -1);
+            jobRunner.getJobConfig().setPreLaunchMillis(getPreLaunchParam(args));
+            jobRunner.getJobConfig().setSpoolDirectory(getSpoolDirParam(args));
+            jobRunner.getJobConfig().setCapturePolicy(getCapturePolicyParam(args));
+            jobRunner.getJobConfig().setPooledCapture(paramIndexSearch(args,"---pooled_buffers") != -1);
+            jobRunner.getJobConfig().setOutputPatterns(getOutputPatternsParam(args));
+            if(paramIndexSearch(args,"---worker_shell") != -1){
+                if(!WorkerShellPool.isSupported()){
+                    printUsageAndExit("error: ---worker_shell needs bash!");
+                }
+                jobRunner.getJobConfig().setWorkerShell(true);
+            }
+            long maxDeferSeconds = getMaxDeferParam(args);
+            if(maxDeferSeconds >= 0){
+                jobRunner.getJobConfig().setDeferrable(true);
+                jobRunner.getJobConfig().setMaxDeferMillis(TimeUnit.SECONDS.toMillis(maxDeferSeconds));
+            }
+        }
+
         return jobRunner;
     }
 
@@ -274,6 +628,52 @@ public class TinyScheduler {
             printUsageAndExit("error: args length is not enough!");
         }
 
+        // the jdk reads the launch mechanism once, before the first process is started.
+        int launchMechanismIndex = paramIndexSearch(args,"---launch_mechanism");
+        if(launchMechanismIndex != -1){
+            if(launchMechanismIndex + 1 >= args.length){
+                printUsageAndExit("error: launch_mechanism is missing!");
+            }
+            try{
+                LaunchMechanism.of(args[launchMechanismIndex+1]).apply();
+            }catch (IllegalArgumentException | UnsupportedOperationException e){
+                printUsageAndExit("error: launch_mechanism is invalid:" + args[launchMechanismIndex+1] +
+                        ", supported:" + LaunchMechanism.supported());
+            }
+        }
+
+        if(paramIndexSearch(args,"---virtual_threads") != -1){
+            if(!VirtualThreads.isAvailable()){
+                printUsageAndExit("error: ---virtual_threads needs a jdk21 profile build running on java 21+!");
+            }
+            ExecutionPools.setDefault(new ExecutionPools(ExecutionPools.DEFAULT_FAST_THRESHOLD_MILLIS,true));
+        }
+
+        if(paramIndexSearch(args,"---epoll_reaper") != -1){
+            if(!ProcessReaper.isAvailable()){
+                printUsageAndExit("error: ---epoll_reaper needs a jdk22 profile build running on java 22+ and linux 5.3+!");
+            }
+            ProcessReaper.setEnabled(true);
+        }
+
+        int pluginDirIndex = paramIndexSearch(args,"---plugin_dir");
+        if(pluginDirIndex != -1){
+            try{
+                TaskPlugins.setDefault(TaskPlugins.load(Paths.get(args[pluginDirIndex+1])));
+            }catch (IOException e){
+                printUsageAndExit("error: plugin_dir is invalid:" + e.getMessage());
+            }
+        }
+
+        int sliceIndex = paramIndexSearch(args,"---cgroup_slice");
+        if(sliceIndex != -1){
+            try{
+                CgroupSlice.setDefault(CgroupSlice.open(Paths.get(args[sliceIndex+1])));
+            }catch (IOException e){
+                printUsageAndExit("error: cgroup_slice is invalid:" + e.getMessage());
+            }
+        }
+
         JobRunner jobRunner = cmdParser(args);
 
         if(jobRunner == null){
@@ -289,9 +689,28 @@ public class TinyScheduler {
                     //TODO
 
                     System.out.println(jobResponse);
+                    // spooled output stays in the spool directory for the user.
+                    if(jobResponse.getOutputSpool() == null){
+                        jobResponse.release();
+                    }
                 }
             });
 
+            if(paramIndexSearch(args,"---follow") != -1){
+                jobRunner.setOutputListener(new LineOutputListener() {
+                    @Override
+                    protected boolean onLine(Stream stream, String line) {
+                        (stream == Stream.STDOUT ? System.out : System.err).println(line);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isCapturing() {
+                        return false;
+                    }
+                });
+            }
+
             // 启动任务.
             jobRunner.start();
 
@@ -0,0 +1,198 @@
+package com.github.scheduler.executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD concurrency limiter driven by measured execution latency.
+ *
+ * every finished execution reports two signals:
+ * <ul>
+ * <li>the ratio of its duration against the job's own baseline (see {@link ExecutionHistory}),
+ * a ratio well above 1.0 means executions slow each other down;</li>
+ * <li>the lag between dispatch and the moment a worker actually started it,
+ * which grows when the host can no longer schedule our threads in time.</li>
+ * </ul>
+ * while both stay stable and the limit is actually used, the limit grows by one
+ * per limit-sized window of completions (additive increase). when one of them
+ * degrades, or the system load average per cpu passes the threshold, the limit
+ * is multiplied by the backoff ratio, at most once per cooldown (multiplicative decrease).
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger LOG = LogManager.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    // weight of a new duration ratio in the smoothed ratio.
+    private static final double RATIO_ALPHA = 0.3;
+
+    // load average is re-sampled at most once per interval.
+    private static final long LOAD_SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    // smoothed duration ratio above which the limit is cut.
+    private final double tolerance;
+
+    // multiplicative decrease factor.
+    private final double backoffRatio;
+
+    // dispatch to start lag above which the limit is cut.
+    private final long lagThresholdNanos;
+
+    // load average per cpu above which the host is considered saturated.
+    private final double loadThreshold;
+
+    // minimum time between two decreases.
+    private final long cooldownNanos;
+
+    private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+    private volatile int limit;
+    private int inFlight;
+    private double smoothedRatio = 1.0;
+    private double increaseCredit;
+    private long lastDecreaseNanos;
+    private double loadPerCpu;
+    private long lastLoadSampleNanos;
+
+    /**
+     * limiter sized for the current host: starts at the number of cpus and
+     * may grow up to four times that, since most jobs block on child processes.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(1, CPUS * 4, CPUS);
+    }
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit) {
+        this(minLimit, maxLimit, initialLimit, 1.5, 0.9, TimeUnit.MILLISECONDS.toNanos(500), 2.0, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public AdaptiveConcurrencyLimiter(int minLimit,
+                                      int maxLimit,
+                                      int initialLimit,
+                                      double tolerance,
+                                      double backoffRatio,
+                                      long lagThresholdNanos,
+                                      double loadThreshold,
+                                      long cooldownNanos) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("invalid limit range:[" + minLimit + "," + maxLimit + "]");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoff ratio must be in (0,1):" + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.lagThresholdNanos = lagThresholdNanos;
+        this.loadThreshold = loadThreshold;
+        this.cooldownNanos = cooldownNanos;
+    }
+
+    /**
+     * block until an execution slot is available.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * take an execution slot if one is available.
+     * @return true if a slot was taken.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * give back a slot without a measurement, e.g. when the execution never ran.
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * give back a slot and feed the measurement of the finished execution.
+     * @param durationRatio execution duration divided by the job's baseline duration.
+     * @param lagNanos delay between dispatch and start of the execution.
+     */
+    public synchronized void release(double durationRatio, long lagNanos) {
+        // the limit was in use if this execution completed with every slot taken.
+        boolean utilized = inFlight >= limit;
+        inFlight--;
+
+        smoothedRatio += RATIO_ALPHA * (durationRatio - smoothedRatio);
+        long now = System.nanoTime();
+        boolean saturated = hostSaturated(now);
+
+        if (saturated || smoothedRatio > tolerance || lagNanos > lagThresholdNanos) {
+            increaseCredit = 0;
+            if (now - lastDecreaseNanos >= cooldownNanos) {
+                int newLimit = Math.max(minLimit, (int) (limit * backoffRatio));
+                if (newLimit != limit) {
+                    LOG.debug("concurrency limit decreased: {} -> {}, ratio:{} lag(ms):{} load/cpu:{}",
+                            limit, newLimit, smoothedRatio, TimeUnit.NANOSECONDS.toMillis(lagNanos), loadPerCpu);
+                    limit = newLimit;
+                }
+                lastDecreaseNanos = now;
+            }
+        } else if (utilized && limit < maxLimit) {
+            increaseCredit += 1.0 / limit;
+            if (increaseCredit >= 1.0) {
+                increaseCredit = 0;
+                limit++;
+                LOG.debug("concurrency limit increased: {}, ratio:{}", limit, smoothedRatio);
+            }
+        }
+
+        notifyAll();
+    }
+
+    private boolean hostSaturated(long now) {
+        if (now - lastLoadSampleNanos >= LOAD_SAMPLE_INTERVAL_NANOS) {
+            lastLoadSampleNanos = now;
+            double load = osBean.getSystemLoadAverage();
+            // negative when the platform doesn't provide a load average.
+            loadPerCpu = load < 0 ? 0 : load / CPUS;
+        }
+        return loadPerCpu > loadThreshold;
+    }
+
+    /**
+     * current concurrency limit.
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * upper bound of the concurrency limit.
+     */
+    public int getMaxLimit() {
+        return this.maxLimit;
+    }
+
+    /**
+     * number of slots currently taken.
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.scheduler.executor;
+
+/**
+ * decides whether the host can take more deferrable work.
+ *
+ * the host is overloaded while any sampled value (see {@link HostPressure}) is past
+ * its threshold; a value the host doesn't provide never counts as overloaded.
+ */
+public class AdmissionControl {
+    private final HostPressure pressure;
+
+    // load average per cpu above which the host is overloaded.
+    private final double maxLoadPerCpu;
+
+    // share of available memory below which the host is overloaded.
+    private final double minMemAvailableRatio;
+
+    // PSI "some avg10" percentages above which the host is overloaded.
+    private final double maxCpuPressure;
+    private final double maxMemoryPressure;
+    private final double maxIoPressure;
+
+    public AdmissionControl() {
+        this(new HostPressure(), 1.5, 0.1, 40.0, 10.0, 40.0);
+    }
+
+    public AdmissionControl(HostPressure pressure,
+                            double maxLoadPerCpu,
+                            double minMemAvailableRatio,
+                            double maxCpuPressure,
+                            double maxMemoryPressure,
+                            double maxIoPressure) {
+        this.pressure = pressure;
+        this.maxLoadPerCpu = maxLoadPerCpu;
+        this.minMemAvailableRatio = minMemAvailableRatio;
+        this.maxCpuPressure = maxCpuPressure;
+        this.maxMemoryPressure = maxMemoryPressure;
+        this.maxIoPressure = maxIoPressure;
+    }
+
+    /**
+     * @return why the host is overloaded, null if deferrable work may be admitted.
+     */
+    public String overloadReason() {
+        HostPressure.Sample sample = pressure.sample();
+        if (sample.getLoadPerCpu() > maxLoadPerCpu) {
+            return "load/cpu " + sample.getLoadPerCpu() + " > " + maxLoadPerCpu;
+        }
+        if (sample.getMemAvailableRatio() >= 0 && sample.getMemAvailableRatio() < minMemAvailableRatio) {
+            return "available memory " + sample.getMemAvailableRatio() + " < " + minMemAvailableRatio;
+        }
+        if (sample.getCpuPressure() > maxCpuPressure) {
+            return "cpu pressure " + sample.getCpuPressure() + " > " + maxCpuPressure;
+        }
+        if (sample.getMemoryPressure() > maxMemoryPressure) {
+            return "memory pressure " + sample.getMemoryPressure() + " > " + maxMemoryPressure;
+        }
+        if (sample.getIoPressure() > maxIoPressure) {
+            return "io pressure " + sample.getIoPressure() + " > " + maxIoPressure;
+        }
+        return null;
+    }
+
+    public HostPressure getPressure() {
+        return this.pressure;
+    }
+}
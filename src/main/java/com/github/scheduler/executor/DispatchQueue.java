@@ -0,0 +1,293 @@
+package com.github.scheduler.executor;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * pending executions of a {@link JobExecutionPool}, one queue per job group.
+ *
+ * groups share the worker slots by start-time fair queuing: every dispatch
+ * advances the group's pass by the execution's expected duration divided by the
+ * group's weight, and the next execution comes from the eligible group with the
+ * smallest pass. a group which was idle restarts from the current virtual time,
+ * so it cannot bank credit while quiet, and a group alone in the queue may use
+ * all slots up to its own concurrency cap. inside a group executions keep their
+ * deadline order (see {@link JobExecution}).
+ */
+class DispatchQueue {
+    // cost of an execution whose job has no history yet.
+    private static final long DEFAULT_COST_MILLIS = 1000L;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<String, Group> groups = new HashMap<>();
+    private final int capacity;
+
+    // pass of the group dispatched last.
+    private double virtualTime;
+    private int size;
+
+    /**
+     * @param capacity maximum number of queued executions.
+     */
+    DispatchQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("queue capacity must be positive:" + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * define or redefine a group.
+     * @param name group name.
+     * @param weight share of the slots relative to the other groups.
+     * @param maxConcurrency maximum number of running executions of the group, 0 for no cap.
+     */
+    void defineGroup(String name, int weight, int maxConcurrency) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("group weight must be positive:" + weight);
+        }
+        lock.lock();
+        try {
+            Group group = groupOf(name);
+            group.weight = weight;
+            group.maxConcurrency = maxConcurrency <= 0 ? Integer.MAX_VALUE : maxConcurrency;
+            // a raised cap may make queued executions eligible.
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * queue an execution unless the queue is full.
+     * @return true if the execution was queued.
+     */
+    boolean offer(JobExecution execution) {
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            Group group = groupOf(execution.getGroup());
+            if (group.queue.isEmpty() && group.running == 0) {
+                group.pass = Math.max(group.pass, virtualTime);
+            }
+            group.queue.add(execution);
+            size++;
+            available.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * queue executions while holding the lock once.
+     * @return number of executions queued before the queue was full.
+     */
+    int offerAll(List<JobExecution> executions) {
+        lock.lock();
+        try {
+            int queued = 0;
+            for (JobExecution execution : executions) {
+                if (size >= capacity) {
+                    break;
+                }
+                Group group = groupOf(execution.getGroup());
+                if (group.queue.isEmpty() && group.running == 0) {
+                    group.pass = Math.max(group.pass, virtualTime);
+                }
+                group.queue.add(execution);
+                size++;
+                queued++;
+            }
+            available.signalAll();
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * wait for the next execution to dispatch and count it as running in its group.
+     */
+    JobExecution take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            JobExecution execution;
+            while ((execution = pollEligible()) == null) {
+                available.await();
+            }
+            return execution;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the next execution to dispatch if there is one, counted as running in its group.
+     */
+    JobExecution poll() {
+        lock.lock();
+        try {
+            return pollEligible();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JobExecution pollEligible() {
+        Group next = null;
+        for (Group group : groups.values()) {
+            if (!group.queue.isEmpty() && group.running < group.maxConcurrency
+                    && (next == null || group.pass < next.pass)) {
+                next = group;
+            }
+        }
+
+        if (next == null) {
+            return null;
+        }
+        JobExecution execution = next.queue.poll();
+        size--;
+        next.running++;
+        virtualTime = next.pass;
+        next.pass += (double) costOf(execution) / next.weight;
+        return execution;
+    }
+
+    /**
+     * an execution handed out by {@link #take()} has finished.
+     */
+    void finished(JobExecution execution) {
+        lock.lock();
+        try {
+            Group group = groups.get(execution.getGroup());
+            if (group != null) {
+                group.running--;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * remove the execution queued first.
+     * @return the removed execution, null if the queue is empty.
+     */
+    JobExecution pollOldest() {
+        lock.lock();
+        try {
+            Group oldestGroup = null;
+            JobExecution oldest = null;
+            for (Group group : groups.values()) {
+                for (JobExecution execution : group.queue) {
+                    if (oldest == null || execution.getSubmitNanos() < oldest.getSubmitNanos()) {
+                        oldest = execution;
+                        oldestGroup = group;
+                    }
+                }
+            }
+            if (oldest != null) {
+                oldestGroup.queue.remove(oldest);
+                size--;
+            }
+            return oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * queued executions, in no particular order.
+     */
+    List<JobExecution> snapshot() {
+        lock.lock();
+        try {
+            List<JobExecution> executions = new ArrayList<>(size);
+            for (Group group : groups.values()) {
+                executions.addAll(group.queue);
+            }
+            return executions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * remove and return every queued execution.
+     */
+    List<JobExecution> drain() {
+        lock.lock();
+        try {
+            List<JobExecution> executions = new ArrayList<>(size);
+            for (Group group : groups.values()) {
+                executions.addAll(group.queue);
+                group.queue.clear();
+            }
+            size = 0;
+            return executions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int pendingCount(String groupName) {
+        lock.lock();
+        try {
+            Group group = groups.get(groupName);
+            return group == null ? 0 : group.queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int runningCount(String groupName) {
+        lock.lock();
+        try {
+            Group group = groups.get(groupName);
+            return group == null ? 0 : group.running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Group groupOf(String name) {
+        Group group = groups.get(name);
+        if (group == null) {
+            group = new Group();
+            group.pass = virtualTime;
+            groups.put(name, group);
+        }
+        return group;
+    }
+
+    private static long costOf(JobExecution execution) {
+        long expectedNanos = execution.getExpectedNanos();
+        if (expectedNanos <= 0) {
+            return DEFAULT_COST_MILLIS;
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(expectedNanos));
+    }
+
+    private static final class Group {
+        private final PriorityQueue<JobExecution> queue = new PriorityQueue<>();
+        private int weight = 1;
+        private int maxConcurrency = Integer.MAX_VALUE;
+        private int running;
+        private double pass;
+    }
+}
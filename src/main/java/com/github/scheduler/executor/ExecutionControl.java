@@ -0,0 +1,23 @@
+package com.github.scheduler.executor;
+
+/**
+ * control of the work behind a running execution, e.g. its child process.
+ * every method is called from scheduler threads and must not block for long.
+ */
+public interface ExecutionControl {
+    /**
+     * stop the running work without waiting for it, e.g. by a kill with escalation.
+     */
+    void cancel();
+
+    /**
+     * suspend the running work.
+     * @return false if nothing was suspended, e.g. because the work already finished.
+     */
+    boolean pause();
+
+    /**
+     * continue work suspended by {@link #pause()}.
+     */
+    void resume();
+}
@@ -0,0 +1,81 @@
+package com.github.scheduler.executor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * per-job execution duration statistics.
+ * keeps a fast EWMA (recent behaviour) and a slow EWMA (baseline) of the
+ * execution durations of every job key, so that callers can compare how
+ * a job is doing now against how it usually does.
+ */
+public class ExecutionHistory {
+    // weight of a new sample in the recent average.
+    private static final double RECENT_ALPHA = 0.3;
+
+    // weight of a new sample in the baseline average.
+    private static final double BASELINE_ALPHA = 0.02;
+
+    private final ConcurrentMap<String, Stats> statsMap = new ConcurrentHashMap<>();
+
+    /**
+     * record one execution duration.
+     * @param key job key.
+     * @param durationNanos execution duration in nanoseconds.
+     * @return ratio of the duration against the job's baseline, 1.0 for the first sample.
+     */
+    public double record(String key, long durationNanos) {
+        Stats stats = statsMap.computeIfAbsent(key, k -> new Stats());
+        return stats.add(durationNanos);
+    }
+
+    /**
+     * expected duration of the given job.
+     * @param key job key.
+     * @return recent average duration in nanoseconds, -1 if the job never ran.
+     */
+    public long expectedNanos(String key) {
+        Stats stats = statsMap.get(key);
+        return stats == null ? -1L : stats.recent();
+    }
+
+    /**
+     * number of recorded executions of the given job.
+     * @param key job key.
+     */
+    public long count(String key) {
+        Stats stats = statsMap.get(key);
+        return stats == null ? 0L : stats.count();
+    }
+
+    private static final class Stats {
+        private double recent;
+        private double baseline;
+        private long count;
+
+        synchronized double add(long durationNanos) {
+            // avoid a zero baseline for jobs that finish within the timer resolution.
+            double sample = Math.max(1L, durationNanos);
+            if (count == 0) {
+                recent = sample;
+                baseline = sample;
+                count = 1;
+                return 1.0;
+            }
+
+            double ratio = sample / baseline;
+            recent += RECENT_ALPHA * (sample - recent);
+            baseline += BASELINE_ALPHA * (sample - baseline);
+            count++;
+            return ratio;
+        }
+
+        synchronized long recent() {
+            return (long) recent;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+    }
+}
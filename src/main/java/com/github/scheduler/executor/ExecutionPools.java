@@ -0,0 +1,147 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * registry of named bulkhead pools and the routing of jobs onto them.
+ *
+ * a job declaring a pool (see {@link JobConfig#getPool()}) always runs there. other
+ * jobs are routed by their historical duration: jobs expected to finish within the
+ * fast threshold go to the "fast" pool, everything else, including jobs that never
+ * ran, goes to the "batch" pool. all pools share one {@link ExecutionHistory}, so a
+ * job's durations are known whichever pool it ran on.
+ *
+ * the pools also share the retry budget, the admission control of deferrable jobs
+ * and the {@link MemoryPressureThrottle} of background jobs.
+ */
+public class ExecutionPools {
+    public static final String FAST = "fast";
+    public static final String BATCH = "batch";
+
+    public static final long DEFAULT_FAST_THRESHOLD_MILLIS = 10000L;
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    private static volatile ExecutionPools defaultPools;
+
+    private final Map<String, JobExecutionPool> pools = new ConcurrentHashMap<>();
+    private final ExecutionHistory history;
+    private final RetryBudget retryBudget = new RetryBudget();
+    private final AdmissionControl admissionControl = new AdmissionControl();
+    private final MemoryPressureThrottle throttle;
+    private final long fastThresholdNanos;
+
+    /**
+     * pools for the current host: "fast" for short probes with many work stealing
+     * threads and a bounded queue, "batch" for long jobs with fewer threads.
+     * @param fastThresholdMillis jobs expected to finish within this are routed to "fast".
+     */
+    public ExecutionPools(long fastThresholdMillis) {
+        this(fastThresholdMillis, false);
+    }
+
+    /**
+     * @param fastThresholdMillis jobs expected to finish within this are routed to "fast".
+     * @param virtualThreads run executions on virtual threads(see {@link WorkerMode#VIRTUAL}).
+     */
+    public ExecutionPools(long fastThresholdMillis, boolean virtualThreads) {
+        this.history = new ExecutionHistory();
+        this.fastThresholdNanos = TimeUnit.MILLISECONDS.toNanos(fastThresholdMillis);
+        register(new JobExecutionPool(FAST, CPUS * 4, 1000, RejectionPolicy.ABORT,
+                virtualThreads ? WorkerMode.VIRTUAL : WorkerMode.WORK_STEALING, history));
+        register(new JobExecutionPool(BATCH, Math.max(2, CPUS), 10000, RejectionPolicy.ABORT,
+                virtualThreads ? WorkerMode.VIRTUAL : WorkerMode.THREAD_POOL, history));
+        this.throttle = new MemoryPressureThrottle(admissionControl.getPressure(), pools.values());
+        this.throttle.start();
+    }
+
+    /**
+     * the pools shared by all runners of this process, routing jobs under 10s to "fast".
+     */
+    public static ExecutionPools getDefault() {
+        if (defaultPools == null) {
+            synchronized (ExecutionPools.class) {
+                if (defaultPools == null) {
+                    defaultPools = new ExecutionPools(DEFAULT_FAST_THRESHOLD_MILLIS);
+                }
+            }
+        }
+        return defaultPools;
+    }
+
+    /**
+     * replace the pools shared by all runners, before the runners are created.
+     * the previous default pools are shut down.
+     */
+    public static void setDefault(ExecutionPools pools) {
+        synchronized (ExecutionPools.class) {
+            if (defaultPools != null && defaultPools != pools) {
+                defaultPools.shutdown();
+            }
+            defaultPools = pools;
+        }
+    }
+
+    /**
+     * add or replace a pool; a replaced pool is shut down.
+     * the pool should be created with {@link #getHistory()} for routing to see its durations,
+     * it is given the scheduler-wide retry budget and admission control.
+     */
+    public void register(JobExecutionPool pool) {
+        pool.setRetryBudget(retryBudget);
+        pool.setAdmissionControl(admissionControl);
+        JobExecutionPool previous = pools.put(pool.getName(), pool);
+        if (previous != null && previous != pool) {
+            previous.shutdown();
+        }
+    }
+
+    public JobExecutionPool get(String name) {
+        return pools.get(name);
+    }
+
+    /**
+     * the pool an execution of the given job should run on.
+     * @throws IllegalArgumentException if the job declares an unknown pool.
+     */
+    public JobExecutionPool route(JobConfig config) {
+        String name = config.getPool();
+        if (name == null) {
+            long expectedNanos = history.expectedNanos(config.getName());
+            name = (expectedNanos >= 0 && expectedNanos < fastThresholdNanos) ? FAST : BATCH;
+        }
+
+        JobExecutionPool pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("execution pool not found:" + name);
+        }
+        return pool;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return this.retryBudget;
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return this.admissionControl;
+    }
+
+    public ExecutionHistory getHistory() {
+        return this.history;
+    }
+
+    public MemoryPressureThrottle getThrottle() {
+        return this.throttle;
+    }
+
+    public void shutdown() {
+        throttle.stop();
+        for (JobExecutionPool pool : pools.values()) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.github.scheduler.executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * resource state of the host read from /proc: load average, available memory and,
+ * on kernels with PSI, the cpu/memory/io pressure stall information.
+ *
+ * a sample is cached for a short interval, so callers on the dispatch path only pay
+ * for reading /proc once per interval. a value the host doesn't provide is -1.
+ */
+public class HostPressure {
+    private static final Logger LOG = LogManager.getLogger(HostPressure.class);
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    private static final Path LOADAVG = Paths.get("/proc/loadavg");
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path CPU_PRESSURE = Paths.get("/proc/pressure/cpu");
+    private static final Path MEMORY_PRESSURE = Paths.get("/proc/pressure/memory");
+    private static final Path IO_PRESSURE = Paths.get("/proc/pressure/io");
+
+    private final long cacheNanos;
+    private volatile Sample sample;
+
+    /**
+     * samples cached for one second.
+     */
+    public HostPressure() {
+        this(TimeUnit.SECONDS.toMillis(1));
+    }
+
+    /**
+     * @param cacheMillis how long a sample is reused.
+     */
+    public HostPressure(long cacheMillis) {
+        this.cacheNanos = TimeUnit.MILLISECONDS.toNanos(cacheMillis);
+    }
+
+    /**
+     * the current sample, read again from /proc once the cached one is older than the interval.
+     */
+    public Sample sample() {
+        Sample current = sample;
+        if (current != null && System.nanoTime() - current.sampleNanos < cacheNanos) {
+            return current;
+        }
+        synchronized (this) {
+            current = sample;
+            if (current == null || System.nanoTime() - current.sampleNanos >= cacheNanos) {
+                current = read();
+                sample = current;
+            }
+            return current;
+        }
+    }
+
+    private static Sample read() {
+        double loadPerCpu = -1;
+        List<String> loadavg = readLines(LOADAVG);
+        if (loadavg != null && !loadavg.isEmpty()) {
+            // e.g. "0.52 0.58 0.59 1/467 12345", the first value is the 1 minute average.
+            loadPerCpu = Double.parseDouble(loadavg.get(0).trim().split("\\s+")[0]) / CPUS;
+        }
+
+        double memAvailableRatio = -1;
+        List<String> meminfo = readLines(MEMINFO);
+        if (meminfo != null) {
+            long total = -1;
+            long available = -1;
+            for (String line : meminfo) {
+                if (line.startsWith("MemTotal:")) {
+                    total = parseKb(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    available = parseKb(line);
+                }
+            }
+            if (total > 0 && available >= 0) {
+                memAvailableRatio = (double) available / total;
+            }
+        }
+
+        return new Sample(System.nanoTime(), loadPerCpu, memAvailableRatio,
+                readPressure(CPU_PRESSURE), readPressure(MEMORY_PRESSURE), readPressure(IO_PRESSURE));
+    }
+
+    /**
+     * the "some avg10" value of a PSI file: share of the last 10 seconds, in percent,
+     * during which at least one task stalled on the resource.
+     */
+    private static double readPressure(Path path) {
+        List<String> lines = readLines(path);
+        if (lines == null) {
+            return -1;
+        }
+        for (String line : lines) {
+            // e.g. "some avg10=1.53 avg60=0.87 avg300=0.22 total=2345678"
+            if (line.startsWith("some")) {
+                for (String field : line.split("\\s+")) {
+                    if (field.startsWith("avg10=")) {
+                        return Double.parseDouble(field.substring("avg10=".length()));
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long parseKb(String line) {
+        // e.g. "MemAvailable:   12345678 kB"
+        return Long.parseLong(line.substring(line.indexOf(':') + 1).trim().split("\\s+")[0]);
+    }
+
+    private static List<String> readLines(Path path) {
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        try {
+            return Files.readAllLines(path, StandardCharsets.US_ASCII);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("can not read {}:{}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * one sample of the host resources.
+     */
+    public static final class Sample {
+        private final long sampleNanos;
+        private final double loadPerCpu;
+        private final double memAvailableRatio;
+        private final double cpuPressure;
+        private final double memoryPressure;
+        private final double ioPressure;
+
+        Sample(long sampleNanos, double loadPerCpu, double memAvailableRatio,
+               double cpuPressure, double memoryPressure, double ioPressure) {
+            this.sampleNanos = sampleNanos;
+            this.loadPerCpu = loadPerCpu;
+            this.memAvailableRatio = memAvailableRatio;
+            this.cpuPressure = cpuPressure;
+            this.memoryPressure = memoryPressure;
+            this.ioPressure = ioPressure;
+        }
+
+        /**
+         * 1 minute load average divided by the number of cpus.
+         */
+        public double getLoadPerCpu() {
+            return this.loadPerCpu;
+        }
+
+        /**
+         * MemAvailable divided by MemTotal.
+         */
+        public double getMemAvailableRatio() {
+            return this.memAvailableRatio;
+        }
+
+        /**
+         * cpu "some avg10" pressure in percent.
+         */
+        public double getCpuPressure() {
+            return this.cpuPressure;
+        }
+
+        /**
+         * memory "some avg10" pressure in percent.
+         */
+        public double getMemoryPressure() {
+            return this.memoryPressure;
+        }
+
+        /**
+         * io "some avg10" pressure in percent.
+         */
+        public double getIoPressure() {
+            return this.ioPressure;
+        }
+
+        @Override
+        public String toString() {
+            return "load/cpu:" + loadPerCpu + " mem available:" + memAvailableRatio
+                    + " psi cpu:" + cpuPressure + " memory:" + memoryPressure + " io:" + ioPressure;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobConfig;
+import com.github.scheduler.model.JobResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one submitted execution of a job waiting in, or running on, a {@link JobExecutionPool}.
+ *
+ * executions are ordered by their latest start time (deadline minus expected
+ * duration), i.e. least slack first; executions without a deadline come after
+ * those with one, in submission order.
+ */
+class JobExecution implements Comparable<JobExecution> {
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+
+    private final JobConfig config;
+    private final Callable<JobResponse> callable;
+    private final JobHandle handle;
+    private final ExecutionControl control;
+    private final long sequence;
+    private final long submitNanos;
+    private final long deadlineNanos;
+    private final long expectedNanos;
+    private final long latestStartNanos;
+    // attempt number starting at 1, and the backoffs before the previous retries.
+    private final int attempt;
+    private final List<Long> backoffMillis;
+    private volatile long dispatchNanos;
+    private volatile long startNanos;
+    // when the execution was first held back by admission control, 0 if never.
+    private volatile long deferredNanos;
+    private volatile boolean admitted;
+    // time spent stopped by the memory pressure throttle, over all attempts.
+    private long pausedNanos;
+    private long pausedSinceNanos;
+
+    JobExecution(JobConfig config, Callable<JobResponse> callable, ExecutionControl control, long expectedNanos) {
+        this.config = config;
+        this.callable = callable;
+        this.control = control;
+        this.handle = new JobHandle(config.getName(), control == null ? null : control::cancel);
+        this.sequence = SEQUENCE.incrementAndGet();
+        this.submitNanos = System.nanoTime();
+        this.expectedNanos = Math.max(0L, expectedNanos);
+        this.attempt = 1;
+        this.backoffMillis = new ArrayList<>();
+
+        // a pre-launched execution is submitted its lead ahead of the fire time.
+        long deadlineMillis = config.deadlineAt(System.currentTimeMillis() + Math.max(0L, config.getPreLaunchMillis()));
+        if (deadlineMillis == Long.MAX_VALUE) {
+            this.deadlineNanos = Long.MAX_VALUE;
+            this.latestStartNanos = Long.MAX_VALUE;
+        } else {
+            this.deadlineNanos = submitNanos + (deadlineMillis - System.currentTimeMillis()) * 1000000L;
+            this.latestStartNanos = deadlineNanos - this.expectedNanos;
+        }
+    }
+
+    /**
+     * the next attempt of a failed execution, keeping its handle and deadline.
+     * @param previous the failed attempt.
+     * @param backoff delay in milliseconds before the next attempt.
+     */
+    JobExecution(JobExecution previous, long backoff) {
+        this.config = previous.config;
+        this.callable = previous.callable;
+        this.handle = previous.handle;
+        this.control = previous.control;
+        this.pausedNanos = previous.getPausedNanos();
+        this.sequence = SEQUENCE.incrementAndGet();
+        this.submitNanos = System.nanoTime();
+        this.expectedNanos = previous.expectedNanos;
+        this.deadlineNanos = previous.deadlineNanos;
+        this.latestStartNanos = previous.latestStartNanos;
+        this.attempt = previous.attempt + 1;
+        this.backoffMillis = previous.backoffMillis;
+        this.backoffMillis.add(backoff);
+    }
+
+    @Override
+    public int compareTo(JobExecution o) {
+        int c = Long.compare(latestStartNanos, o.latestStartNanos);
+        return c != 0 ? c : Long.compare(sequence, o.sequence);
+    }
+
+    String getKey() {
+        return this.config.getName();
+    }
+
+    String getGroup() {
+        return this.config.getGroup();
+    }
+
+    JobConfig getConfig() {
+        return this.config;
+    }
+
+    JobHandle getHandle() {
+        return this.handle;
+    }
+
+    ExecutionControl getControl() {
+        return this.control;
+    }
+
+    Callable<JobResponse> getCallable() {
+        return this.callable;
+    }
+
+    int getAttempt() {
+        return this.attempt;
+    }
+
+    List<Long> getBackoffMillis() {
+        return this.backoffMillis;
+    }
+
+    long getSubmitNanos() {
+        return this.submitNanos;
+    }
+
+    boolean hasDeadline() {
+        return this.deadlineNanos != Long.MAX_VALUE;
+    }
+
+    long getDeadlineNanos() {
+        return this.deadlineNanos;
+    }
+
+    long getExpectedNanos() {
+        return this.expectedNanos;
+    }
+
+    long getDispatchNanos() {
+        return this.dispatchNanos;
+    }
+
+    long getStartNanos() {
+        return this.startNanos;
+    }
+
+    void markDispatched() {
+        this.dispatchNanos = System.nanoTime();
+    }
+
+    void markStarted() {
+        this.startNanos = System.nanoTime();
+    }
+
+    long getDeferredNanos() {
+        return this.deferredNanos;
+    }
+
+    void markDeferred() {
+        if (this.deferredNanos == 0) {
+            this.deferredNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * the execution may be dispatched whatever the host state, e.g. once its max-defer time is over.
+     */
+    boolean isAdmitted() {
+        return this.admitted;
+    }
+
+    void setAdmitted(boolean admitted) {
+        this.admitted = admitted;
+    }
+
+    synchronized boolean isPaused() {
+        return this.pausedSinceNanos != 0;
+    }
+
+    synchronized void markPaused() {
+        if (this.pausedSinceNanos == 0) {
+            this.pausedSinceNanos = System.nanoTime();
+        }
+    }
+
+    synchronized void markResumed() {
+        if (this.pausedSinceNanos != 0) {
+            this.pausedNanos += System.nanoTime() - this.pausedSinceNanos;
+            this.pausedSinceNanos = 0;
+        }
+    }
+
+    /**
+     * time spent paused, including a pause still going on.
+     */
+    synchronized long getPausedNanos() {
+        return this.pausedSinceNanos == 0 ? this.pausedNanos : this.pausedNanos + System.nanoTime() - this.pausedSinceNanos;
+    }
+}
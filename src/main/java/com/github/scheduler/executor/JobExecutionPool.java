@@ -0,0 +1,599 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobConfig;
+import com.github.scheduler.model.JobResponse;
+import com.github.scheduler.model.RetryPolicy;
+import com.github.scheduler.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * pool executing jobs on behalf of the runners.
+ * pools are bulkheads: each has its own threads, queue bound and rejection
+ * policy, so jobs routed to one pool (see {@link ExecutionPools}) can never
+ * take the threads of another.
+ *
+ * submitted executions wait in a pending queue; a single dispatcher thread hands
+ * them to the worker threads whenever the {@link AdaptiveConcurrencyLimiter} has
+ * a free slot, and every finished execution feeds its duration and start lag back
+ * into the limiter.
+ *
+ * while every slot is taken, job groups share the slots by weight and per-group
+ * caps (see {@link DispatchQueue}), and inside a group queued executions are
+ * dispatched earliest deadline first, using each job's expected duration to
+ * compute its slack (see {@link JobExecution}).
+ *
+ * a failed attempt is retried by its job's {@link RetryPolicy}: it leaves its slot,
+ * waits for the backoff on a shared timer and is queued again, as long as the
+ * {@link RetryBudget} allows.
+ *
+ * deferrable jobs (see {@link JobConfig#isDeferrable()}) are held back by the dispatcher
+ * while the {@link AdmissionControl} reports the host as overloaded; they are queued
+ * again once the pressure clears or their max-defer time is over.
+ */
+public class JobExecutionPool {
+    private static final Logger LOG = LogManager.getLogger(JobExecutionPool.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    // how often deferred executions are checked for admission.
+    private static final long ADMISSION_CHECK_MILLIS = 1000L;
+
+    // timer of the executions waiting for their next attempt or for admission.
+    static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("job-timer"));
+
+    private final String name;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ExecutionHistory history;
+    private final DispatchQueue pending;
+    private final RejectionPolicy rejectionPolicy;
+    private final Set<JobExecution> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private final List<JobExecution> deferred = new ArrayList<>();
+    private final ScheduledFuture<?> admissionCheck;
+    private volatile RetryBudget retryBudget = new RetryBudget();
+    private volatile AdmissionControl admissionControl = new AdmissionControl();
+    private volatile boolean stopped = false;
+
+    public JobExecutionPool(String name) {
+        this(name, new AdaptiveConcurrencyLimiter(), new ExecutionHistory());
+    }
+
+    public JobExecutionPool(String name, AdaptiveConcurrencyLimiter limiter, ExecutionHistory history) {
+        this(name, limiter, history, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.ABORT, WorkerMode.THREAD_POOL);
+    }
+
+    /**
+     * @param name pool name.
+     * @param maxThreads maximum number of concurrently running executions.
+     * @param queueCapacity maximum number of executions waiting for a thread.
+     * @param rejectionPolicy what to do with executions submitted while the queue is full.
+     * @param workerMode how the worker threads take their executions.
+     * @param history execution history, may be shared with other pools.
+     */
+    public JobExecutionPool(String name,
+                            int maxThreads,
+                            int queueCapacity,
+                            RejectionPolicy rejectionPolicy,
+                            WorkerMode workerMode,
+                            ExecutionHistory history) {
+        this(name, new AdaptiveConcurrencyLimiter(1, maxThreads, Math.min(maxThreads, Runtime.getRuntime().availableProcessors())),
+                history, queueCapacity, rejectionPolicy, workerMode);
+    }
+
+    public JobExecutionPool(String name,
+                            AdaptiveConcurrencyLimiter limiter,
+                            ExecutionHistory history,
+                            int queueCapacity,
+                            RejectionPolicy rejectionPolicy,
+                            WorkerMode workerMode) {
+        this.name = name;
+        this.limiter = limiter;
+        this.history = history;
+        this.pending = new DispatchQueue(queueCapacity);
+        this.rejectionPolicy = Utils.checkNotNull(rejectionPolicy);
+
+        // the limiter bounds the running executions, so the queue of the workers stays (almost) empty.
+        this.workers = workerMode.newWorkers(name + "-worker", limiter.getMaxLimit());
+
+        this.dispatcher = new Thread(this::dispatchLoop, name + "-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+
+        this.admissionCheck = TIMER.scheduleWithFixedDelay(this::admitDeferred,
+                ADMISSION_CHECK_MILLIS, ADMISSION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * define the share of a job group; groups which are not defined get weight 1 and no cap.
+     * @param group group name.
+     * @param weight share of the slots relative to the other groups under contention.
+     * @param maxConcurrency maximum number of running executions of the group, 0 for no cap.
+     */
+    public void defineGroup(String group, int weight, int maxConcurrency) {
+        pending.defineGroup(group, weight, maxConcurrency);
+    }
+
+    /**
+     * queue an execution.
+     * @param key job key, used to track the job's duration history.
+     * @param callable the work to execute.
+     * @return future of the job response.
+     */
+    public JobHandle submit(String key, Callable<JobResponse> callable) {
+        return submit(new JobConfig(key), callable);
+    }
+
+    /**
+     * queue an execution.
+     * @param config job settings, the name is used to track the job's duration history.
+     * @param callable the work to execute.
+     * @return handle of the execution.
+     */
+    public JobHandle submit(JobConfig config, Callable<JobResponse> callable) {
+        return submit(config, callable, null);
+    }
+
+    /**
+     * queue an execution.
+     * @param config job settings, the name is used to track the job's duration history.
+     * @param callable the work to execute.
+     * @param control cancels the running execution without blocking, e.g. by killing its process,
+     *                and pauses it under memory pressure; may be null.
+     * @return handle of the execution.
+     */
+    public JobHandle submit(JobConfig config, Callable<JobResponse> callable, ExecutionControl control) {
+        if (stopped) {
+            throw new RejectedExecutionException("pool " + name + " is shut down");
+        }
+        JobExecution execution = new JobExecution(config, callable, control, history.expectedNanos(config.getName()));
+        while (!pending.offer(execution)) {
+            switch (rejectionPolicy) {
+                case CALLER_RUNS:
+                    LOG.warn("queue of pool {} is full, running {} in the caller thread", name, execution.getKey());
+                    attempt(execution);
+                    return execution.getHandle();
+                case DISCARD:
+                    LOG.warn("queue of pool {} is full, discarding {}", name, execution.getKey());
+                    execution.getHandle().cancel(false);
+                    return execution.getHandle();
+                case DISCARD_OLDEST:
+                    JobExecution oldest = pending.pollOldest();
+                    if (oldest != null) {
+                        LOG.warn("queue of pool {} is full, discarding {}", name, oldest.getKey());
+                        oldest.getHandle().cancel(false);
+                    }
+                    break;
+                default:
+                    throw new RejectedExecutionException("queue of pool " + name + " is full, rejecting " + execution.getKey());
+            }
+        }
+
+        if (execution.hasDeadline() && projectMisses().contains(execution)) {
+            LOG.warn("execution of {} is expected to miss its deadline, pending:{} limit:{}",
+                    execution.getKey(), pending.size(), limiter.getLimit());
+        }
+        return execution.getHandle();
+    }
+
+    /**
+     * queue a batch of executions of one job, e.g. a fan-out, taking the queue lock once.
+     * executions which don't fit into the queue are handled by the rejection policy.
+     * @param config job settings.
+     * @param callables the work to execute.
+     * @return handles of the executions, in the order of the callables.
+     */
+    public List<JobHandle> submitAll(JobConfig config, List<? extends Callable<JobResponse>> callables) {
+        if (stopped) {
+            throw new RejectedExecutionException("pool " + name + " is shut down");
+        }
+        long expectedNanos = history.expectedNanos(config.getName());
+        List<JobExecution> executions = new ArrayList<>(callables.size());
+        List<JobHandle> handles = new ArrayList<>(callables.size());
+        for (Callable<JobResponse> callable : callables) {
+            JobExecution execution = new JobExecution(config, callable, null, expectedNanos);
+            executions.add(execution);
+            handles.add(execution.getHandle());
+        }
+
+        int queued = pending.offerAll(executions);
+        for (int i = queued; i < executions.size(); i++) {
+            handles.set(i, submit(config, callables.get(i)));
+        }
+        return handles;
+    }
+
+    /**
+     * names of the queued executions expected to miss their deadline
+     * if the pool keeps its current limit.
+     */
+    public List<String> getExpectedMisses() {
+        List<String> names = new ArrayList<>();
+        for (JobExecution execution : projectMisses()) {
+            names.add(execution.getKey());
+        }
+        return names;
+    }
+
+    /**
+     * replay the pending queue in dispatch order over the current slots,
+     * every execution taking its expected duration.
+     */
+    private List<JobExecution> projectMisses() {
+        long now = System.nanoTime();
+        PriorityQueue<Long> slotFreeAt = new PriorityQueue<>();
+        for (JobExecution execution : running) {
+            long elapsed = now - execution.getStartNanos();
+            slotFreeAt.add(now + Math.max(0L, execution.getExpectedNanos() - elapsed));
+        }
+        while (slotFreeAt.size() < limiter.getLimit()) {
+            slotFreeAt.add(now);
+        }
+
+        JobExecution[] queued = pending.snapshot().toArray(new JobExecution[0]);
+        Arrays.sort(queued);
+
+        List<JobExecution> misses = new ArrayList<>();
+        for (JobExecution execution : queued) {
+            long finishAt = slotFreeAt.poll() + execution.getExpectedNanos();
+            if (finishAt > execution.getDeadlineNanos()) {
+                misses.add(execution);
+            }
+            slotFreeAt.add(finishAt);
+        }
+        return misses;
+    }
+
+    private void dispatchLoop() {
+        while (!stopped) {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException ie) {
+                break;
+            }
+
+            List<JobExecution> batch = new ArrayList<>();
+            try {
+                JobExecution execution = pending.take();
+                if (deferIfOverloaded(execution)) {
+                    continue;
+                }
+                batch.add(execution);
+            } catch (InterruptedException ie) {
+                limiter.release();
+                break;
+            }
+
+            // a burst of due executions goes to the workers in one hand-over.
+            while (limiter.tryAcquire()) {
+                JobExecution execution = pending.poll();
+                if (execution == null) {
+                    limiter.release();
+                    break;
+                }
+                if (!deferIfOverloaded(execution)) {
+                    batch.add(execution);
+                }
+            }
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * hold back a deferrable execution taken from the queue while the host is overloaded,
+     * giving back its slot.
+     * @return true if the execution was deferred.
+     */
+    private boolean deferIfOverloaded(JobExecution execution) {
+        if (!execution.getConfig().isDeferrable() || execution.isAdmitted()) {
+            return false;
+        }
+        String reason = admissionControl.overloadReason();
+        if (reason == null) {
+            return false;
+        }
+
+        execution.markDeferred();
+        synchronized (deferred) {
+            deferred.add(execution);
+        }
+        pending.finished(execution);
+        limiter.release();
+        LOG.info("execution of {} deferred, host overloaded: {}", execution.getKey(), reason);
+        return true;
+    }
+
+    /**
+     * queue deferred executions again once the host is no longer overloaded
+     * or their max-defer time is over.
+     */
+    private void admitDeferred() {
+        try {
+            synchronized (deferred) {
+                if (deferred.isEmpty()) {
+                    return;
+                }
+                String reason = admissionControl.overloadReason();
+                long now = System.nanoTime();
+                Iterator<JobExecution> iterator = deferred.iterator();
+                while (iterator.hasNext()) {
+                    JobExecution execution = iterator.next();
+                    if (execution.getHandle().isDone()) {
+                        iterator.remove();
+                        continue;
+                    }
+                    long deferredNanos = now - execution.getDeferredNanos();
+                    boolean expired = deferredNanos >= TimeUnit.MILLISECONDS.toNanos(execution.getConfig().getMaxDeferMillis());
+                    if (reason != null && !expired) {
+                        continue;
+                    }
+
+                    execution.setAdmitted(true);
+                    if (pending.offer(execution)) {
+                        iterator.remove();
+                        LOG.info("execution of {} admitted after {} ms{}", execution.getKey(),
+                                TimeUnit.NANOSECONDS.toMillis(deferredNanos), reason != null ? ", max defer time is over" : "");
+                    } else {
+                        // the queue is full, try again on the next check.
+                        execution.setAdmitted(false);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            // an exception would cancel the periodic check.
+            LOG.error(Utils.stackTrace(t));
+        }
+    }
+
+    private void dispatch(List<JobExecution> batch) {
+        List<Runnable> runnables = new ArrayList<>(batch.size());
+        for (JobExecution execution : batch) {
+            execution.markDispatched();
+            runnables.add(() -> runExecution(execution));
+        }
+
+        try {
+            if (workers instanceof WorkStealingDispatcher) {
+                ((WorkStealingDispatcher) workers).executeAll(runnables);
+            } else {
+                for (Runnable runnable : runnables) {
+                    workers.execute(runnable);
+                }
+            }
+        } catch (RejectedExecutionException ree) {
+            // only happens once the workers are shut down, nothing of the batch will run.
+            for (JobExecution execution : batch) {
+                pending.finished(execution);
+                limiter.release();
+                execution.getHandle().cancel(false);
+                LOG.warn("execution of {} rejected by pool {}", execution.getKey(), name);
+            }
+        }
+    }
+
+    private void runExecution(JobExecution execution) {
+        execution.markStarted();
+        long startNanos = execution.getStartNanos();
+        long lagNanos = startNanos - execution.getDispatchNanos();
+        long pausedNanos = execution.getPausedNanos();
+        running.add(execution);
+        boolean ran = false;
+        try {
+            ran = attempt(execution);
+        } catch (Throwable t) {
+            LOG.error(Utils.stackTrace(t));
+        } finally {
+            running.remove(execution);
+            pending.finished(execution);
+            // time spent paused says nothing about contention.
+            long durationNanos = System.nanoTime() - startNanos - (execution.getPausedNanos() - pausedNanos);
+            if (!ran) {
+                // cancelled while queued, nothing to learn from.
+                limiter.release();
+            } else {
+                if (execution.hasDeadline() && startNanos + durationNanos > execution.getDeadlineNanos()) {
+                    LOG.warn("execution of {} missed its deadline by {} ms", execution.getKey(),
+                            TimeUnit.NANOSECONDS.toMillis(startNanos + durationNanos - execution.getDeadlineNanos()));
+                }
+                double ratio = history.record(execution.getKey(), durationNanos);
+                limiter.release(ratio, lagNanos);
+            }
+        }
+    }
+
+    /**
+     * run one attempt of the execution, then either complete its handle or schedule the next attempt.
+     * @return false if the execution was cancelled before it started.
+     */
+    private boolean attempt(JobExecution execution) {
+        JobHandle handle = execution.getHandle();
+        if (!handle.start()) {
+            return false;
+        }
+        if (execution.getAttempt() == 1) {
+            retryBudget.recordExecution();
+        }
+
+        JobResponse response = null;
+        Throwable failure = null;
+        try {
+            response = execution.getCallable().call();
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            handle.finishAttempt();
+            // e.g. killed while paused.
+            execution.markResumed();
+        }
+
+        if (response != null) {
+            response.setAttempts(execution.getAttempt());
+            response.setBackoffMillis(new ArrayList<>(execution.getBackoffMillis()));
+            response.setPausedMillis(TimeUnit.NANOSECONDS.toMillis(execution.getPausedNanos()));
+        }
+
+        RetryPolicy policy = execution.getConfig().getRetryPolicy();
+        boolean failed = failure != null || (response != null && policy.isRetryable(response.getRetCode()));
+        if (failed && execution.getAttempt() < policy.getMaxAttempts() && !handle.isDone()) {
+            if (retryBudget.tryAcquireRetry()) {
+                long backoff = policy.backoffMillis(execution.getAttempt());
+                if (handle.requeue()) {
+                    LOG.info("attempt {} of {} failed, retrying in {} ms", execution.getAttempt(), execution.getKey(), backoff);
+                    // the failed attempt's response is dropped: its spools and pooled buffers go now.
+                    release(response);
+                    scheduleRetry(new JobExecution(execution, backoff), backoff);
+                    return true;
+                }
+            } else {
+                LOG.warn("retry budget exhausted, attempt {} of {} is final", execution.getAttempt(), execution.getKey());
+                if (response != null) {
+                    response.setRetryBudgetExhausted(true);
+                }
+            }
+        }
+
+        if (failure != null) {
+            handle.completeExceptionally(failure);
+        } else if (!handle.complete(response)) {
+            // cancelled during the attempt, nobody takes the response over.
+            release(response);
+        }
+        return true;
+    }
+
+    private static void release(JobResponse response) {
+        if (response != null) {
+            response.release();
+        }
+    }
+
+    private void scheduleRetry(JobExecution next, long backoff) {
+        TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                JobHandle handle = next.getHandle();
+                if (stopped) {
+                    handle.cancel(false);
+                } else if (!pending.offer(next)) {
+                    handle.completeExceptionally(new RejectedExecutionException(
+                            "queue of pool " + name + " is full, dropping retry of " + next.getKey()));
+                }
+            }
+        }, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop dispatching; queued executions are cancelled, running ones complete.
+     */
+    public void shutdown() {
+        stopped = true;
+        dispatcher.interrupt();
+        admissionCheck.cancel(false);
+        for (JobExecution execution : pending.drain()) {
+            execution.getHandle().cancel(false);
+        }
+        synchronized (deferred) {
+            for (JobExecution execution : deferred) {
+                execution.getHandle().cancel(false);
+            }
+            deferred.clear();
+        }
+        workers.shutdown();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return this.limiter;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return this.retryBudget;
+    }
+
+    /**
+     * share a retry budget, e.g. between all pools of the scheduler.
+     */
+    public void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = Utils.checkNotNull(retryBudget);
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return this.admissionControl;
+    }
+
+    /**
+     * share the admission control, e.g. between all pools of the scheduler.
+     */
+    public void setAdmissionControl(AdmissionControl admissionControl) {
+        this.admissionControl = Utils.checkNotNull(admissionControl);
+    }
+
+    public ExecutionHistory getHistory() {
+        return this.history;
+    }
+
+    /**
+     * executions running right now.
+     */
+    List<JobExecution> getRunningExecutions() {
+        return new ArrayList<>(running);
+    }
+
+    /**
+     * number of executions waiting for a slot.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * number of deferrable executions held back while the host is overloaded.
+     */
+    public int getDeferredCount() {
+        synchronized (deferred) {
+            return deferred.size();
+        }
+    }
+
+    /**
+     * number of executions of the given group waiting for a slot.
+     */
+    public int getPendingCount(String group) {
+        return pending.pendingCount(group);
+    }
+
+    /**
+     * number of running executions of the given group.
+     */
+    public int getRunningCount(String group) {
+        return pending.runningCount(group);
+    }
+
+    /**
+     * daemon threads with a common name prefix.
+     */
+    static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
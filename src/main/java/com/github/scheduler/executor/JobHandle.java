@@ -0,0 +1,197 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobResponse;
+import com.github.scheduler.model.JobResponseHandler;
+import com.github.scheduler.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * handle of one submitted execution.
+ *
+ * the response is delivered through a {@link CompletableFuture}, so callers can
+ * compose on it or be called back instead of parking a thread per execution.
+ * {@link #cancel(boolean)} never blocks: a queued execution is dropped, a running
+ * one completes as cancelled right away while its canceller (e.g. a kill with
+ * escalation) and the interrupt of the worker thread run on a thread of their own.
+ * an execution waiting for a retry counts as queued.
+ */
+public class JobHandle implements Future<JobResponse> {
+    private static final Logger LOG = LogManager.getLogger(JobHandle.class);
+
+    private enum State {
+        QUEUED,
+        RUNNING,
+        DONE
+    }
+
+    // runs the cancellers, which may walk /proc, wait for kill(1) or call into a task plugin.
+    private static final ExecutorService CANCELLERS =
+            Executors.newCachedThreadPool(new JobExecutionPool.NamedThreadFactory("job-cancel"));
+
+    private final String jobName;
+    private final CompletableFuture<JobResponse> future = new CompletableFuture<>();
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private final Runnable canceller;
+    private Thread runner;
+
+    /**
+     * @param jobName name of the job.
+     * @param canceller invoked when a running execution is cancelled, may be null.
+     */
+    JobHandle(String jobName, Runnable canceller) {
+        this.jobName = jobName;
+        this.canceller = canceller;
+    }
+
+    /**
+     * an attempt of the execution starts on the current thread.
+     * @return false if the execution was cancelled while queued.
+     */
+    boolean start() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            return false;
+        }
+        synchronized (this) {
+            runner = Thread.currentThread();
+        }
+        return true;
+    }
+
+    /**
+     * the attempt started by {@link #start()} returned.
+     */
+    void finishAttempt() {
+        synchronized (this) {
+            runner = null;
+            // don't leak an interrupt of a cancel into the next execution of this worker.
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * the execution waits for another attempt.
+     * @return false if it was cancelled in the meantime.
+     */
+    boolean requeue() {
+        return state.compareAndSet(State.RUNNING, State.QUEUED) && !future.isDone();
+    }
+
+    /**
+     * @return false if the execution completed before, e.g. as cancelled, and nobody gets the response.
+     */
+    boolean complete(JobResponse response) {
+        state.set(State.DONE);
+        return future.complete(response);
+    }
+
+    void completeExceptionally(Throwable t) {
+        state.set(State.DONE);
+        future.completeExceptionally(t);
+    }
+
+    /**
+     * cancel the execution without waiting for it to stop.
+     * @param mayInterruptIfRunning if a running execution should be killed and its thread interrupted.
+     * @return false if the execution already completed.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (state.compareAndSet(State.QUEUED, State.DONE)) {
+            return future.cancel(false);
+        }
+        if (!future.cancel(false)) {
+            return false;
+        }
+
+        if (mayInterruptIfRunning) {
+            CANCELLERS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    stopRunning();
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * kill the running attempt by the canceller and interrupt its thread, off the caller's thread.
+     */
+    private void stopRunning() {
+        if (canceller != null) {
+            try {
+                canceller.run();
+            } catch (RuntimeException e) {
+                LOG.error("canceller of job {} failed:{}", jobName, Utils.stackTrace(e));
+            }
+        }
+        synchronized (this) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * @return true while a worker is executing the job.
+     */
+    public boolean isRunning() {
+        return state.get() == State.RUNNING;
+    }
+
+    @Override
+    public JobResponse get() throws InterruptedException, ExecutionException {
+        return future.get();
+    }
+
+    @Override
+    public JobResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(timeout, unit);
+    }
+
+    /**
+     * a future of the response to compose on.
+     * it is a copy: completing or cancelling it doesn't affect the execution, use {@link #cancel(boolean)}.
+     */
+    public CompletableFuture<JobResponse> toCompletableFuture() {
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * call back when the execution completes, normally, exceptionally or cancelled.
+     * @return this handle.
+     */
+    public JobHandle whenComplete(BiConsumer<? super JobResponse, ? super Throwable> action) {
+        future.whenComplete(action);
+        return this;
+    }
+
+    /**
+     * hand the response to the handler when the execution completes normally.
+     * @return this handle.
+     */
+    public JobHandle onResponse(JobResponseHandler handler) {
+        future.thenAccept(handler::handler);
+        return this;
+    }
+
+    public String getJobName() {
+        return this.jobName;
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pauses running background executions while the host is short of memory,
+ * so the kernel doesn't have to pick an OOM victim.
+ *
+ * every check reads the PSI memory pressure (see {@link HostPressure}). above the pause
+ * threshold one more running execution with a negative priority is stopped, lowest
+ * priority first and among equals the one started last; below the resume threshold
+ * one paused execution continues, highest priority first. stopping or continuing one
+ * execution per check lets the pressure settle in between. hosts without PSI are
+ * never throttled.
+ */
+public class MemoryPressureThrottle {
+    private static final Logger LOG = LogManager.getLogger(MemoryPressureThrottle.class);
+
+    private static final long CHECK_MILLIS = 1000L;
+
+    private final HostPressure pressure;
+    private final Collection<JobExecutionPool> pools;
+
+    // memory "some avg10" percentages to pause above and to resume below.
+    private final double pauseThreshold;
+    private final double resumeThreshold;
+
+    private ScheduledFuture<?> check;
+
+    /**
+     * @param pressure source of the memory pressure.
+     * @param pools pools whose running executions may be paused, read on every check.
+     */
+    public MemoryPressureThrottle(HostPressure pressure, Collection<JobExecutionPool> pools) {
+        this(pressure, pools, 20.0, 10.0);
+    }
+
+    public MemoryPressureThrottle(HostPressure pressure,
+                                  Collection<JobExecutionPool> pools,
+                                  double pauseThreshold,
+                                  double resumeThreshold) {
+        if (resumeThreshold > pauseThreshold) {
+            throw new IllegalArgumentException("resume threshold above pause threshold:" + resumeThreshold);
+        }
+        this.pressure = pressure;
+        this.pools = pools;
+        this.pauseThreshold = pauseThreshold;
+        this.resumeThreshold = resumeThreshold;
+    }
+
+    public synchronized void start() {
+        if (check == null) {
+            check = JobExecutionPool.TIMER.scheduleWithFixedDelay(this::check, CHECK_MILLIS, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stop checking and continue every paused execution.
+     */
+    public synchronized void stop() {
+        if (check != null) {
+            check.cancel(false);
+            check = null;
+        }
+        for (JobExecutionPool pool : pools) {
+            for (JobExecution execution : pool.getRunningExecutions()) {
+                if (execution.isPaused()) {
+                    resume(execution, "throttle stopped");
+                }
+            }
+        }
+    }
+
+    private void check() {
+        try {
+            double memoryPressure = pressure.sample().getMemoryPressure();
+            if (memoryPressure < 0) {
+                return;
+            }
+            if (memoryPressure > pauseThreshold) {
+                JobExecution victim = null;
+                for (JobExecutionPool pool : pools) {
+                    for (JobExecution execution : pool.getRunningExecutions()) {
+                        if (isPausable(execution) && (victim == null || pausesBefore(execution, victim))) {
+                            victim = execution;
+                        }
+                    }
+                }
+                if (victim != null && victim.getControl().pause()) {
+                    victim.markPaused();
+                    LOG.warn("execution of {} paused, memory pressure:{}", victim.getKey(), memoryPressure);
+                }
+            } else if (memoryPressure < resumeThreshold) {
+                JobExecution next = null;
+                for (JobExecutionPool pool : pools) {
+                    for (JobExecution execution : pool.getRunningExecutions()) {
+                        if (execution.isPaused() && (next == null || pausesBefore(next, execution))) {
+                            next = execution;
+                        }
+                    }
+                }
+                if (next != null) {
+                    resume(next, "memory pressure:" + memoryPressure);
+                }
+            }
+        } catch (Throwable t) {
+            // an exception would cancel the periodic check.
+            LOG.error(Utils.stackTrace(t));
+        }
+    }
+
+    private static boolean isPausable(JobExecution execution) {
+        return execution.getConfig().getPriority() < 0 && execution.getControl() != null
+                && !execution.isPaused() && !execution.getHandle().isDone();
+    }
+
+    /**
+     * lower priority first, among equals the execution which started last.
+     */
+    private static boolean pausesBefore(JobExecution a, JobExecution b) {
+        int c = Integer.compare(a.getConfig().getPriority(), b.getConfig().getPriority());
+        return c != 0 ? c < 0 : a.getStartNanos() > b.getStartNanos();
+    }
+
+    private static void resume(JobExecution execution, String reason) {
+        execution.getControl().resume();
+        execution.markResumed();
+        LOG.info("execution of {} resumed, {}", execution.getKey(), reason);
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.scheduler.executor;
+
+/**
+ * what a {@link JobExecutionPool} does with an execution submitted while its queue is full.
+ */
+public enum RejectionPolicy {
+    /**
+     * throw a RejectedExecutionException to the submitter.
+     * */
+    ABORT,
+
+    /**
+     * run the execution in the submitting thread.
+     * */
+    CALLER_RUNS,
+
+    /**
+     * drop the new execution, its future is cancelled.
+     * */
+    DISCARD,
+
+    /**
+     * drop the longest queued execution to make room for the new one.
+     * */
+    DISCARD_OLDEST
+}
@@ -0,0 +1,86 @@
+package com.github.scheduler.executor;
+
+/**
+ * scheduler-wide cap on retries, so a failing dependency cannot turn every job into a retry storm.
+ *
+ * over a sliding window (kept as a ring of buckets) retries may make up at most
+ * the given ratio of the executions started in the window, with a minimum number
+ * of retries so that a quiet scheduler can still retry at all.
+ */
+public class RetryBudget {
+    private static final int BUCKETS = 10;
+
+    private final double ratio;
+    private final int minRetries;
+    private final long bucketMillis;
+    private final long[] executions = new long[BUCKETS];
+    private final long[] retries = new long[BUCKETS];
+    private long currentBucket;
+
+    /**
+     * retries are limited to 10% of the executions per minute, at least 10 per minute.
+     */
+    public RetryBudget() {
+        this(0.1, 10, 60000L);
+    }
+
+    /**
+     * @param ratio maximum retries per execution in the window.
+     * @param minRetries retries allowed in the window regardless of the ratio.
+     * @param windowMillis length of the sliding window.
+     */
+    public RetryBudget(double ratio, int minRetries, long windowMillis) {
+        this.ratio = ratio;
+        this.minRetries = minRetries;
+        this.bucketMillis = Math.max(1L, windowMillis / BUCKETS);
+    }
+
+    /**
+     * count a first attempt of an execution.
+     */
+    public synchronized void recordExecution() {
+        advance();
+        executions[(int) (currentBucket % BUCKETS)]++;
+    }
+
+    /**
+     * take a retry from the budget.
+     * @return false if the budget is exhausted and the failure should be final.
+     */
+    public synchronized boolean tryAcquireRetry() {
+        advance();
+        long executionSum = 0;
+        long retrySum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            executionSum += executions[i];
+            retrySum += retries[i];
+        }
+        if (retrySum + 1 > Math.max(minRetries, executionSum * ratio)) {
+            return false;
+        }
+        retries[(int) (currentBucket % BUCKETS)]++;
+        return true;
+    }
+
+    /**
+     * the clock of the window.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void advance() {
+        long bucket = currentTimeMillis() / bucketMillis;
+        if (bucket == currentBucket) {
+            return;
+        }
+        // clear the buckets which fell out of the window, all of them after a long pause.
+        long stale = Math.min(BUCKETS, bucket - currentBucket);
+        for (long i = 1; i <= stale; i++) {
+            int index = (int) ((currentBucket + i) % BUCKETS);
+            executions[index] = 0;
+            retries[index] = 0;
+        }
+        currentBucket = bucket;
+    }
+}
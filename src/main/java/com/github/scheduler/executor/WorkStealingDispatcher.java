@@ -0,0 +1,113 @@
+package com.github.scheduler.executor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * worker threads with a deque per worker and work stealing, on a {@link ForkJoinPool} in async(FIFO) mode.
+ *
+ * a batch handed to {@link #executeAll(List)} costs one external submission: the
+ * worker picking it up forks every task onto its own deque without any shared lock
+ * and runs the last one itself, while idle workers steal the rest from the other end.
+ */
+public class WorkStealingDispatcher extends AbstractExecutorService {
+    private final ForkJoinPool pool;
+
+    public WorkStealingDispatcher(String name, int parallelism) {
+        final AtomicInteger counter = new AtomicInteger(0);
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+                ForkJoinWorkerThread thread = new ForkJoinWorkerThread(p) {
+                };
+                thread.setName(name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        this.pool = new ForkJoinPool(parallelism, factory, null, true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        pool.execute(command);
+    }
+
+    /**
+     * execute a batch of tasks with a single submission.
+     * @param tasks tasks to execute.
+     */
+    public void executeAll(List<? extends Runnable> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        if (tasks.size() == 1) {
+            pool.execute(tasks.get(0));
+            return;
+        }
+        pool.execute(new BatchAction(Collections.unmodifiableList(tasks)));
+    }
+
+    /**
+     * number of tasks taken by one worker from another worker's deque.
+     */
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+
+    /**
+     * number of tasks waiting in the worker deques and the submission queues.
+     */
+    public long getQueuedTaskCount() {
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return pool.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * forks all tasks but the last onto the current worker's deque, then runs the last one.
+     */
+    private static final class BatchAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends Runnable> tasks;
+
+        BatchAction(List<? extends Runnable> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            int last = tasks.size() - 1;
+            for (int i = 0; i < last; i++) {
+                ForkJoinTask.adapt(tasks.get(i)).fork();
+            }
+            tasks.get(last).run();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.utils.VirtualThreads;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * how the worker threads of a {@link JobExecutionPool} take their executions.
+ */
+public enum WorkerMode {
+    /**
+     * a thread pool in front of a single shared queue.
+     * */
+    THREAD_POOL {
+        @Override
+        ExecutorService newWorkers(String name, int maxThreads) {
+            ThreadPoolExecutor workers = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new JobExecutionPool.NamedThreadFactory(name));
+            workers.allowCoreThreadTimeOut(true);
+            return workers;
+        }
+    },
+
+    /**
+     * per-worker deques with work stealing, see {@link WorkStealingDispatcher}.
+     * */
+    WORK_STEALING {
+        @Override
+        ExecutorService newWorkers(String name, int maxThreads) {
+            return new WorkStealingDispatcher(name, maxThreads);
+        }
+    },
+
+    /**
+     * a new virtual thread per execution, the concurrency is bounded by the pool's limiter only.
+     * needs the jdk21 build profile, falls back to {@link #THREAD_POOL} otherwise.
+     * */
+    VIRTUAL {
+        @Override
+        ExecutorService newWorkers(String name, int maxThreads) {
+            if (!VirtualThreads.isAvailable()) {
+                LOG.warn("virtual threads not available, {} falls back to a thread pool", name);
+                return THREAD_POOL.newWorkers(name, maxThreads);
+            }
+            return VirtualThreads.newThreadPerTaskExecutor(name);
+        }
+    };
+
+    private static final Logger LOG = LogManager.getLogger(WorkerMode.class);
+
+    abstract ExecutorService newWorkers(String name, int maxThreads);
+}
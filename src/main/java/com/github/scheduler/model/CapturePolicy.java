@@ -0,0 +1,39 @@
+package com.github.scheduler.model;
+
+/**
+ * per-job bound of the captured output: the first headBytes and the last tailBytes
+ * of each stream are kept, what lies between is dropped and only counted. the memory
+ * of an execution's output is then at most headBytes + tailBytes per stream, whatever
+ * the job prints.
+ */
+public class CapturePolicy {
+    // bytes kept from the start of a stream.
+    private final int headBytes;
+
+    // bytes kept from the end of a stream.
+    private final int tailBytes;
+
+    public CapturePolicy(int headBytes, int tailBytes) {
+        if (headBytes < 0 || tailBytes < 0) {
+            throw new IllegalArgumentException("capture sizes must not be negative:" + headBytes + "," + tailBytes);
+        }
+        if (headBytes == 0 && tailBytes == 0) {
+            throw new IllegalArgumentException("capture keeps nothing");
+        }
+        this.headBytes = headBytes;
+        this.tailBytes = tailBytes;
+    }
+
+    public int getHeadBytes() {
+        return this.headBytes;
+    }
+
+    public int getTailBytes() {
+        return this.tailBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "head=" + headBytes + " tail=" + tailBytes;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.scheduler.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the raw bytes of a captured stream, decoded to a string only when it is asked for.
+ *
+ * the bytes are kept in segments which double in size up to a limit, so growing never
+ * copies what was captured before, and ascii output takes a byte per character instead
+ * of the two of a string or string buffer. output nobody reads is never decoded.
+ */
+public class CapturedOutput extends OutputStream {
+    private static final int FIRST_SEGMENT = 1024;
+    private static final int MAX_SEGMENT = 64 * 1024;
+
+    private final Charset charset;
+    private final List<byte[]> segments = new ArrayList<>();
+    // bytes used in the last segment.
+    private int lastCount;
+    private long size;
+
+    public CapturedOutput(Charset charset){
+        this.charset = charset;
+    }
+
+    /**
+     * @param bytes captured bytes, taken over without a copy.
+     */
+    public CapturedOutput(Charset charset, byte[] bytes){
+        this(charset);
+        if(bytes.length > 0){
+            segments.add(bytes);
+            lastCount = bytes.length;
+            size = bytes.length;
+        }
+    }
+
+    @Override
+    public void write(int b){
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len){
+        size += len;
+        while(len > 0){
+            byte[] last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if(last == null || lastCount == last.length){
+                last = new byte[last == null ? FIRST_SEGMENT : Math.min(MAX_SEGMENT, last.length * 2)];
+                segments.add(last);
+                lastCount = 0;
+            }
+            int n = Math.min(len, last.length - lastCount);
+            System.arraycopy(b, off, last, lastCount, n);
+            lastCount += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    public Charset getCharset(){
+        return this.charset;
+    }
+
+    public long size(){
+        return this.size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public byte[] toByteArray(){
+        byte[] bytes = new byte[(int) size];
+        int pos = 0;
+        for(int i = 0; i < segments.size(); i++){
+            byte[] segment = segments.get(i);
+            int n = i == segments.size() - 1 ? lastCount : segment.length;
+            System.arraycopy(segment, 0, bytes, pos, n);
+            pos += n;
+        }
+        return bytes;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for(int i = 0; i < segments.size(); i++){
+            byte[] segment = segments.get(i);
+            out.write(segment, 0, i == segments.size() - 1 ? lastCount : segment.length);
+        }
+    }
+
+    /**
+     * decode the bytes with the charset of the capture.
+     */
+    public String decode(){
+        if(segments.isEmpty()){
+            return "";
+        }
+        if(segments.size() == 1){
+            return new String(segments.get(0), 0, lastCount, charset);
+        }
+        // a multi-byte character may span two segments.
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * give back what the capture holds outside the heap; a heap capture holds nothing there.
+     */
+    public void release(){
+    }
+
+    @Override
+    public String toString() {
+        return decode();
+    }
+}
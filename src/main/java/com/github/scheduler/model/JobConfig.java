@@ -0,0 +1,258 @@
+package com.github.scheduler.model;
+
+import com.github.scheduler.utils.Utils;
+
+/**
+ * per-job settings which are independent of the schedule mode.
+ */
+public class JobConfig {
+    private static final long MILLIS_ONE_DAY = 86400000L;
+
+    public static final String DEFAULT_GROUP = "default";
+
+    public static final int DEFAULT_PRIORITY = 0;
+
+    // job name, also the key of the job's execution history.
+    private final String name;
+
+    // group(tenant) sharing the execution slots by weight.
+    private String group = DEFAULT_GROUP;
+
+    // execution pool(bulkhead) to run on, null to route by historical duration.
+    private String pool;
+
+    // time a cancelled execution gets to terminate before it is killed forcibly.
+    private long killGraceMillis = 5000L;
+
+    // the command is killed after running this long, 0 for no timeout.
+    private long timeoutMillis;
+
+    // retries of failed attempts.
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+    // jobs with a negative priority are background work, which may be paused under memory pressure.
+    private int priority = DEFAULT_PRIORITY;
+
+    // affinity, nice value, io class and scheduling policy of the launched process.
+    private ProcessSettings processSettings = new ProcessSettings();
+
+    // cgroup limits of the launched process, null to run it without a cgroup of its own.
+    private ResourceLimits resourceLimits;
+
+    // the command is the name of a ScheduledTask plugin and its arguments, run in-process.
+    private boolean task;
+
+    // launch the process this long before a known fire time, gated until the fire time, 0 for no pre-launch.
+    private long preLaunchMillis;
+
+    // run the command on a pooled long-lived bash instead of launching a new process.
+    private boolean workerShell;
+
+    // directory the output of the launched process is spooled into, null to capture it in memory.
+    private String spoolDirectory;
+
+    // bound of the captured output of the launched process, null to capture all of it.
+    private CapturePolicy capturePolicy;
+
+    // capture the output in pooled direct buffers, released with the response.
+    private boolean pooledCapture;
+
+    // patterns the output of the launched process is scanned for, null for none.
+    private OutputPatterns outputPatterns;
+
+    // optional work which is held back while the host is overloaded, for at most maxDeferMillis.
+    private boolean deferrable;
+    private long maxDeferMillis = 1800000L;
+
+    // completion deadline as time of day(HH:mm:ss), null for none.
+    private String deadlineTime;
+
+    // completion deadline relative to the fire time in milliseconds, 0 for none.
+    private long slaMillis;
+
+    public JobConfig(String name){
+        this.name = Utils.checkNotNull(name);
+    }
+
+    public String getName(){
+        return this.name;
+    }
+
+    public void setGroup(String group){
+        this.group = Utils.checkNotNull(group);
+    }
+
+    public String getGroup(){
+        return this.group;
+    }
+
+    public void setPool(String pool){
+        this.pool = pool;
+    }
+
+    public String getPool(){
+        return this.pool;
+    }
+
+    public void setKillGraceMillis(long killGraceMillis){
+        this.killGraceMillis = killGraceMillis;
+    }
+
+    public long getKillGraceMillis(){
+        return this.killGraceMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis){
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis(){
+        return this.timeoutMillis;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy){
+        this.retryPolicy = Utils.checkNotNull(retryPolicy);
+    }
+
+    public RetryPolicy getRetryPolicy(){
+        return this.retryPolicy;
+    }
+
+    public void setPriority(int priority){
+        this.priority = priority;
+    }
+
+    public int getPriority(){
+        return this.priority;
+    }
+
+    public void setProcessSettings(ProcessSettings processSettings){
+        this.processSettings = Utils.checkNotNull(processSettings);
+    }
+
+    public ProcessSettings getProcessSettings(){
+        return this.processSettings;
+    }
+
+    public void setResourceLimits(ResourceLimits resourceLimits){
+        this.resourceLimits = resourceLimits;
+    }
+
+    public ResourceLimits getResourceLimits(){
+        return this.resourceLimits;
+    }
+
+    public void setTask(boolean task){
+        this.task = task;
+    }
+
+    public boolean isTask(){
+        return this.task;
+    }
+
+    public void setPreLaunchMillis(long preLaunchMillis){
+        this.preLaunchMillis = preLaunchMillis;
+    }
+
+    public long getPreLaunchMillis(){
+        return this.preLaunchMillis;
+    }
+
+    public void setWorkerShell(boolean workerShell){
+        this.workerShell = workerShell;
+    }
+
+    public boolean isWorkerShell(){
+        return this.workerShell;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory){
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public String getSpoolDirectory(){
+        return this.spoolDirectory;
+    }
+
+    public void setCapturePolicy(CapturePolicy capturePolicy){
+        this.capturePolicy = capturePolicy;
+    }
+
+    public CapturePolicy getCapturePolicy(){
+        return this.capturePolicy;
+    }
+
+    public void setPooledCapture(boolean pooledCapture){
+        this.pooledCapture = pooledCapture;
+    }
+
+    public boolean isPooledCapture(){
+        return this.pooledCapture;
+    }
+
+    public void setOutputPatterns(OutputPatterns outputPatterns){
+        this.outputPatterns = outputPatterns;
+    }
+
+    public OutputPatterns getOutputPatterns(){
+        return this.outputPatterns;
+    }
+
+    public void setDeferrable(boolean deferrable){
+        this.deferrable = deferrable;
+    }
+
+    public boolean isDeferrable(){
+        return this.deferrable;
+    }
+
+    public void setMaxDeferMillis(long maxDeferMillis){
+        this.maxDeferMillis = maxDeferMillis;
+    }
+
+    public long getMaxDeferMillis(){
+        return this.maxDeferMillis;
+    }
+
+    public void setDeadlineTime(String deadlineTime){
+        this.deadlineTime = deadlineTime;
+    }
+
+    public String getDeadlineTime(){
+        return this.deadlineTime;
+    }
+
+    public void setSlaMillis(long slaMillis){
+        this.slaMillis = slaMillis;
+    }
+
+    public long getSlaMillis(){
+        return this.slaMillis;
+    }
+
+    public boolean hasDeadline(){
+        return deadlineTime != null || slaMillis > 0;
+    }
+
+    /**
+     * absolute completion deadline of an execution fired at the given time.
+     * a time of day deadline refers to its next occurrence after the fire time;
+     * when both kinds are set the earlier one wins.
+     * @param fireTimeMillis fire time of the execution.
+     * @return deadline timestamp, Long.MAX_VALUE if the job has no deadline.
+     * */
+    public long deadlineAt(long fireTimeMillis){
+        long deadline = Long.MAX_VALUE;
+        if(slaMillis > 0){
+            deadline = fireTimeMillis + slaMillis;
+        }
+        if(deadlineTime != null){
+            long timeOfDay = Utils.dailyStartTimeStamp() + Utils.theSecondOfDay(deadlineTime) * 1000L;
+            if(timeOfDay < fireTimeMillis){
+                timeOfDay += MILLIS_ONE_DAY;
+            }
+            deadline = Math.min(deadline, timeOfDay);
+        }
+        return deadline;
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.scheduler.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * output of a run spooled to a file, which the command wrote itself through its redirect.
+ *
+ * the file is memory-mapped on the first access to its content, so the output costs
+ * page cache instead of heap and nothing at all if it is never read. the spool belongs
+ * to the response; {@link #delete()} removes it.
+ */
+public class JobOutput {
+    private final Path path;
+    private final Charset charset;
+    private ByteBuffer buffer;
+    private boolean deleted;
+
+    public JobOutput(Path path, Charset charset){
+        this.path = path;
+        this.charset = charset;
+    }
+
+    public Path getPath(){
+        return this.path;
+    }
+
+    public Charset getCharset(){
+        return this.charset;
+    }
+
+    /**
+     * @return the size of the output in bytes, 0 once deleted.
+     */
+    public long size(){
+        try{
+            return Files.size(path);
+        }catch (IOException e){
+            return 0L;
+        }
+    }
+
+    /**
+     * a read-only view of the whole output, mapped on the first call.
+     * @throws IOException if the spool is gone or larger than 2GB, which only {@link #openStream()} reads.
+     */
+    public synchronized ByteBuffer getBuffer() throws IOException {
+        if(deleted){
+            throw new IOException("spool deleted:" + path);
+        }
+        if(buffer == null){
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+                long size = channel.size();
+                if(size > Integer.MAX_VALUE){
+                    throw new IOException("spool too large to map(" + size + " bytes), read it as a stream:" + path);
+                }
+                // the mapping stays valid after the channel is closed.
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    /**
+     * decode the whole output, which brings it onto the heap.
+     */
+    public String asString() throws IOException {
+        return charset.decode(getBuffer()).toString();
+    }
+
+    /**
+     * decode at most the first maxBytes of the output.
+     */
+    public String head(int maxBytes) throws IOException {
+        ByteBuffer view = getBuffer();
+        if(view.remaining() > maxBytes){
+            view.limit(maxBytes);
+        }
+        return charset.decode(view).toString();
+    }
+
+    /**
+     * remove the spool file. a mapped view handed out before stays readable until it is collected.
+     */
+    public synchronized void delete(){
+        deleted = true;
+        buffer = null;
+        try{
+            Files.deleteIfExists(path);
+        }catch (IOException e){
+            // the spool directory is cleaned up by whoever owns it.
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path + "(" + size() + " bytes)";
+    }
+}
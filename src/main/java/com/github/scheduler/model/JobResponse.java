@@ -1,10 +1,49 @@
 package com.github.scheduler.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
 public class JobResponse {
     private final String jobId;
     private int retCode;
     private String output;
     private String error;
+    // captured bytes of the output, decoded by the first getOutput()/getError().
+    private CapturedOutput capturedOutput;
+    private CapturedOutput capturedError;
+    // output spooled to files by the command, null if it was captured in memory.
+    private JobOutput outputSpool;
+    private JobOutput errorSpool;
+    // size of the output and what a bounded capture dropped of it, null if the capture was unbounded.
+    private OutputStats outputStats;
+    private OutputStats errorStats;
+    // the output listener stopped the run.
+    private boolean stoppedByListener;
+    // what the output patterns matched, null if the job has none.
+    private OutputMatches outputMatches;
+    // the run exited with 0 but failed as an output pattern matched.
+    private boolean failedByMatch;
+    // number of attempts made, and the backoff before each retry in milliseconds.
+    private int attempts = 1;
+    private List<Long> backoffMillis = Collections.emptyList();
+    // a retry was due but the scheduler-wide retry budget was exhausted.
+    private boolean retryBudgetExhausted;
+    // process settings applied at launch, empty for none.
+    private String processSettings = "";
+    // resources used by the run, null if it had no cgroup of its own.
+    private ResourceUsage resourceUsage;
+    // the command ran into its timeout and was killed.
+    private boolean timedOut;
+    // processes killed on cancel, timeout or as leftovers, and how long the kill took.
+    private List<Long> killedPids = Collections.emptyList();
+    private long killMillis = -1;
+    // time the run was stopped by the memory pressure throttle.
+    private long pausedMillis;
+    // lead of a pre-launched process and delay of its release after the fire time, -1 if not pre-launched.
+    private long preLaunchMillis = -1;
+    private long releaseLagMicros = -1;
 
     public JobResponse(String jobId){
         this.jobId = jobId;
@@ -20,20 +59,252 @@ public class JobResponse {
 
     public void setOutput(String output){
         this.output = output;
+        this.capturedOutput = null;
+    }
+
+    /**
+     * @param capturedOutput the output as captured, decoded only if it is asked for.
+     */
+    public void setCapturedOutput(CapturedOutput capturedOutput){
+        this.capturedOutput = capturedOutput;
+        this.output = null;
     }
 
+    public CapturedOutput getCapturedOutput(){
+        return this.capturedOutput;
+    }
+
+    /**
+     * @return the output. a spooled output is decoded whole onto the heap on every call and
+     * not kept, which undoes what spooling saves; a spool over 2GB can't be decoded at all
+     * and throws UncheckedIOException. handlers of spooled jobs read {@link #getOutputSpool()}
+     * instead, e.g. its head or a stream of it.
+     */
     public String getOutput(){
+        if(output == null && capturedOutput != null){
+            output = capturedOutput.decode();
+            capturedOutput.release();
+            capturedOutput = null;
+        }
+        if(output == null && outputSpool != null){
+            return decode(outputSpool);
+        }
         return this.output;
     }
 
     public void setError(String error){
         this.error = error;
+        this.capturedError = null;
     }
 
+    /**
+     * @param capturedError the error output as captured, decoded only if it is asked for.
+     */
+    public void setCapturedError(CapturedOutput capturedError){
+        this.capturedError = capturedError;
+        this.error = null;
+    }
+
+    public CapturedOutput getCapturedError(){
+        return this.capturedError;
+    }
+
+    /**
+     * @return the error output, decoded from the spool like {@link #getOutput()};
+     * see {@link #getErrorSpool()}.
+     */
     public String getError(){
+        if(error == null && capturedError != null){
+            error = capturedError.decode();
+            capturedError.release();
+            capturedError = null;
+        }
+        if(error == null && errorSpool != null){
+            return decode(errorSpool);
+        }
         return this.error;
     }
 
+    private static String decode(JobOutput spool){
+        try{
+            return spool.asString();
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void setOutputSpool(JobOutput outputSpool){
+        this.outputSpool = outputSpool;
+    }
+
+    /**
+     * @return the spooled output, null if the output was captured in memory.
+     */
+    public JobOutput getOutputSpool(){
+        return this.outputSpool;
+    }
+
+    public void setErrorSpool(JobOutput errorSpool){
+        this.errorSpool = errorSpool;
+    }
+
+    /**
+     * @return the spooled error output, null if it was captured in memory or merged into the output.
+     */
+    public JobOutput getErrorSpool(){
+        return this.errorSpool;
+    }
+
+    public void setOutputStats(OutputStats outputStats){
+        this.outputStats = outputStats;
+    }
+
+    public OutputStats getOutputStats(){
+        return this.outputStats;
+    }
+
+    public void setErrorStats(OutputStats errorStats){
+        this.errorStats = errorStats;
+    }
+
+    public OutputStats getErrorStats(){
+        return this.errorStats;
+    }
+
+    public void setStoppedByListener(boolean stoppedByListener){
+        this.stoppedByListener = stoppedByListener;
+    }
+
+    public boolean isStoppedByListener(){
+        return this.stoppedByListener;
+    }
+
+    public void setOutputMatches(OutputMatches outputMatches){
+        this.outputMatches = outputMatches;
+    }
+
+    public OutputMatches getOutputMatches(){
+        return this.outputMatches;
+    }
+
+    public void setFailedByMatch(boolean failedByMatch){
+        this.failedByMatch = failedByMatch;
+    }
+
+    public boolean isFailedByMatch(){
+        return this.failedByMatch;
+    }
+
+    /**
+     * release what the response holds outside the heap: pooled output buffers go back
+     * to their pool and the spool files are deleted. output not decoded before is lost;
+     * a handler keeping the output moves or copies the spool files first.
+     */
+    public void release(){
+        if(capturedOutput != null){
+            capturedOutput.release();
+            capturedOutput = null;
+        }
+        if(capturedError != null){
+            capturedError.release();
+            capturedError = null;
+        }
+        if(outputSpool != null){
+            outputSpool.delete();
+        }
+        if(errorSpool != null){
+            errorSpool.delete();
+        }
+    }
+
+    public void setAttempts(int attempts){
+        this.attempts = attempts;
+    }
+
+    public int getAttempts(){
+        return this.attempts;
+    }
+
+    public void setBackoffMillis(List<Long> backoffMillis){
+        this.backoffMillis = backoffMillis;
+    }
+
+    public List<Long> getBackoffMillis(){
+        return this.backoffMillis;
+    }
+
+    public void setRetryBudgetExhausted(boolean retryBudgetExhausted){
+        this.retryBudgetExhausted = retryBudgetExhausted;
+    }
+
+    public boolean isRetryBudgetExhausted(){
+        return this.retryBudgetExhausted;
+    }
+
+    public void setProcessSettings(String processSettings){
+        this.processSettings = processSettings;
+    }
+
+    public String getProcessSettings(){
+        return this.processSettings;
+    }
+
+    public void setResourceUsage(ResourceUsage resourceUsage){
+        this.resourceUsage = resourceUsage;
+    }
+
+    public ResourceUsage getResourceUsage(){
+        return this.resourceUsage;
+    }
+
+    public void setTimedOut(boolean timedOut){
+        this.timedOut = timedOut;
+    }
+
+    public boolean isTimedOut(){
+        return this.timedOut;
+    }
+
+    public void setKilledPids(List<Long> killedPids){
+        this.killedPids = killedPids;
+    }
+
+    public List<Long> getKilledPids(){
+        return this.killedPids;
+    }
+
+    public void setKillMillis(long killMillis){
+        this.killMillis = killMillis;
+    }
+
+    public long getKillMillis(){
+        return this.killMillis;
+    }
+
+    public void setPausedMillis(long pausedMillis){
+        this.pausedMillis = pausedMillis;
+    }
+
+    public long getPausedMillis(){
+        return this.pausedMillis;
+    }
+
+    public void setPreLaunchMillis(long preLaunchMillis){
+        this.preLaunchMillis = preLaunchMillis;
+    }
+
+    public long getPreLaunchMillis(){
+        return this.preLaunchMillis;
+    }
+
+    public void setReleaseLagMicros(long releaseLagMicros){
+        this.releaseLagMicros = releaseLagMicros;
+    }
+
+    public long getReleaseLagMicros(){
+        return this.releaseLagMicros;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -43,12 +314,76 @@ public class JobResponse {
         sb.append("code:");
         sb.append(retCode);
         sb.append("\n");
+        // spooled output may be huge, only where it is gets printed.
         sb.append("output:");
-        sb.append(this.output);
+        sb.append(outputSpool != null && output == null ? "spooled to " + outputSpool : getOutput());
         sb.append("\n");
         sb.append("error:");
-        sb.append(this.error);
+        sb.append(errorSpool != null && error == null ? "spooled to " + errorSpool : getError());
         sb.append("\n");
+        if(outputStats != null && outputStats.isTruncated()){
+            sb.append("output truncated:");
+            sb.append(outputStats);
+            sb.append("\n");
+        }
+        if(errorStats != null && errorStats.isTruncated()){
+            sb.append("error truncated:");
+            sb.append(errorStats);
+            sb.append("\n");
+        }
+        if(attempts > 1 || retryBudgetExhausted){
+            sb.append("attempts:");
+            sb.append(attempts);
+            sb.append(" backoff(ms):");
+            sb.append(backoffMillis);
+            if(retryBudgetExhausted){
+                sb.append(" retry budget exhausted");
+            }
+            sb.append("\n");
+        }
+        if(processSettings != null && !processSettings.isEmpty()){
+            sb.append("process settings:");
+            sb.append(processSettings);
+            sb.append("\n");
+        }
+        if(resourceUsage != null){
+            sb.append("resource usage:");
+            sb.append(resourceUsage);
+            sb.append("\n");
+        }
+        if(timedOut){
+            sb.append("timed out\n");
+        }
+        if(stoppedByListener){
+            sb.append("stopped by output listener\n");
+        }
+        if(outputMatches != null && outputMatches.isMatched()){
+            sb.append("output matches:");
+            sb.append(outputMatches);
+            sb.append("\n");
+        }
+        if(failedByMatch){
+            sb.append("failed by output match\n");
+        }
+        if(!killedPids.isEmpty()){
+            sb.append("killed pids:");
+            sb.append(killedPids);
+            sb.append(" in(ms):");
+            sb.append(killMillis);
+            sb.append("\n");
+        }
+        if(pausedMillis > 0){
+            sb.append("paused(ms):");
+            sb.append(pausedMillis);
+            sb.append("\n");
+        }
+        if(preLaunchMillis >= 0){
+            sb.append("pre-launched(ms):");
+            sb.append(preLaunchMillis);
+            sb.append(" release lag(us):");
+            sb.append(releaseLagMicros);
+            sb.append("\n");
+        }
         return sb.toString();
     }
 }
@@ -0,0 +1,94 @@
+package com.github.scheduler.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * an {@link OutputListener} receiving whole lines, without their line end. a line longer
+ * than the line limit is passed on in pieces of the limit, so a command printing no line
+ * ends can't grow the pending line without bound.
+ */
+public abstract class LineOutputListener implements OutputListener {
+    public static final int DEFAULT_MAX_LINE_BYTES = 64 * 1024;
+
+    private final Charset charset;
+    private final int maxLineBytes;
+    // the unfinished last line of each stream.
+    private final ByteArrayOutputStream[] pending = new ByteArrayOutputStream[Stream.values().length];
+
+    protected LineOutputListener() {
+        this(Charset.defaultCharset(), DEFAULT_MAX_LINE_BYTES);
+    }
+
+    protected LineOutputListener(Charset charset, int maxLineBytes) {
+        if (maxLineBytes <= 0) {
+            throw new IllegalArgumentException("max line bytes must be positive:" + maxLineBytes);
+        }
+        this.charset = charset;
+        this.maxLineBytes = maxLineBytes;
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new ByteArrayOutputStream();
+        }
+    }
+
+    /**
+     * @param line the line without its line end.
+     * @return false to stop the command.
+     */
+    protected abstract boolean onLine(Stream stream, String line);
+
+    @Override
+    public final boolean onOutput(Stream stream, byte[] data, int offset, int length) {
+        ByteArrayOutputStream line = pending[stream.ordinal()];
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (data[i] == '\n') {
+                line.write(data, start, i - start);
+                start = i + 1;
+                if (!emit(stream, line)) {
+                    return false;
+                }
+            } else if (line.size() + i + 1 - start >= maxLineBytes) {
+                line.write(data, start, i + 1 - start);
+                start = i + 1;
+                if (!emit(stream, line)) {
+                    return false;
+                }
+            }
+        }
+        line.write(data, start, end - start);
+        return true;
+    }
+
+    private boolean emit(Stream stream, ByteArrayOutputStream line) {
+        byte[] bytes = line.toByteArray();
+        line.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return onLine(stream, new String(bytes, 0, length, charset));
+    }
+
+    /**
+     * drops what a stopped run left pending.
+     */
+    @Override
+    public void onStart() {
+        for (ByteArrayOutputStream line : pending) {
+            line.reset();
+        }
+    }
+
+    /**
+     * passes on the last line if it has no line end.
+     */
+    @Override
+    public void onEnd(Stream stream) {
+        ByteArrayOutputStream line = pending[stream.ordinal()];
+        if (line.size() > 0) {
+            emit(stream, line);
+        }
+    }
+}
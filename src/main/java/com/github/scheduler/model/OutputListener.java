@@ -0,0 +1,43 @@
+package com.github.scheduler.model;
+
+/**
+ * receives the output of a running command as it is read, instead of after the exit.
+ *
+ * the callbacks run on the threads reading the command's pipes, one call at a time.
+ * the command is not read on while a callback runs: once the pipe is full, the command
+ * blocks in its writes until the listener catches up, so a slow listener slows the
+ * command down instead of piling its output up in memory.
+ */
+public interface OutputListener {
+    enum Stream {
+        STDOUT,
+        STDERR
+    }
+
+    /**
+     * a run starts, before anything is read.
+     */
+    default void onStart() {
+    }
+
+    /**
+     * bytes the command wrote, as read from its pipe.
+     * @param data the buffer, reused after the call returns.
+     * @return false to stop the command, which is killed; the listener gets nothing more.
+     */
+    boolean onOutput(Stream stream, byte[] data, int offset, int length);
+
+    /**
+     * the stream reached its end, unless the listener stopped the command before.
+     */
+    default void onEnd(Stream stream) {
+    }
+
+    /**
+     * @return true if the output is also captured for the response, false if the listener
+     * consumes it and the response's output stays empty.
+     */
+    default boolean isCapturing() {
+        return true;
+    }
+}
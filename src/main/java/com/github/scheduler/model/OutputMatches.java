@@ -0,0 +1,59 @@
+package com.github.scheduler.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * what the {@link OutputPatterns} of a job found in the output of one run.
+ */
+public class OutputMatches {
+    // the patterns which matched, in the order they were configured.
+    private final List<PatternMatch> matches;
+
+    public OutputMatches(List<PatternMatch> matches) {
+        this.matches = Collections.unmodifiableList(matches);
+    }
+
+    public List<PatternMatch> getMatches() {
+        return this.matches;
+    }
+
+    public boolean isMatched() {
+        return !matches.isEmpty();
+    }
+
+    /**
+     * @return the match of a pattern, null if it didn't match.
+     */
+    public PatternMatch get(String pattern) {
+        for (PatternMatch match : matches) {
+            if (match.getPattern().equals(pattern)) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * matches of all patterns.
+     */
+    public long getTotalCount() {
+        long count = 0;
+        for (PatternMatch match : matches) {
+            count += match.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        if (matches.isEmpty()) {
+            return "none";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (PatternMatch match : matches) {
+            sb.append("\n  ").append(match);
+        }
+        return sb.toString();
+    }
+}
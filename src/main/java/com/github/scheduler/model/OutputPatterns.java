@@ -0,0 +1,104 @@
+package com.github.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * per-job signatures searched for in the output of every run, e.g. "ERROR", "Exception"
+ * or "OutOfMemoryError". both streams are scanned once for all patterns at a time while
+ * they are read, so a job can be checked for its failure signatures without keeping its
+ * output at all, see {@link #isDiscardOutput()}.
+ *
+ * patterns are plain strings, no expressions, matched as bytes of the charset the output
+ * is decoded with.
+ */
+public class OutputPatterns {
+    public static final int DEFAULT_MAX_SAMPLES = 3;
+    public static final int DEFAULT_MAX_SAMPLE_BYTES = 512;
+
+    // distinct patterns in the order they were given.
+    private final List<String> patterns;
+
+    // ascii letters match regardless of their case.
+    private final boolean ignoreCase;
+
+    // exit code of a run which exited with 0 but matched a pattern, 0 to keep the exit code.
+    private final int failExitCode;
+
+    // capture none of the output, only what matched.
+    private final boolean discardOutput;
+
+    // lines kept per pattern, and bytes kept of each of them.
+    private final int maxSamples;
+    private final int maxSampleBytes;
+
+    public OutputPatterns(List<String> patterns) {
+        this(patterns, false, 0, false, DEFAULT_MAX_SAMPLES, DEFAULT_MAX_SAMPLE_BYTES);
+    }
+
+    public OutputPatterns(List<String> patterns,
+                          boolean ignoreCase,
+                          int failExitCode,
+                          boolean discardOutput,
+                          int maxSamples,
+                          int maxSampleBytes) {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("empty output pattern");
+            }
+            distinct.add(pattern);
+        }
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("no output pattern");
+        }
+        if (maxSamples < 0 || maxSampleBytes <= 0) {
+            throw new IllegalArgumentException("sample sizes are invalid:" + maxSamples + "," + maxSampleBytes);
+        }
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(distinct));
+        this.ignoreCase = ignoreCase;
+        this.failExitCode = failExitCode;
+        this.discardOutput = discardOutput;
+        this.maxSamples = maxSamples;
+        this.maxSampleBytes = maxSampleBytes;
+    }
+
+    public List<String> getPatterns() {
+        return this.patterns;
+    }
+
+    public boolean isIgnoreCase() {
+        return this.ignoreCase;
+    }
+
+    public int getFailExitCode() {
+        return this.failExitCode;
+    }
+
+    /**
+     * @return true if a run which exited with 0 fails once a pattern matched.
+     */
+    public boolean isFailOnMatch() {
+        return failExitCode != 0;
+    }
+
+    public boolean isDiscardOutput() {
+        return this.discardOutput;
+    }
+
+    public int getMaxSamples() {
+        return this.maxSamples;
+    }
+
+    public int getMaxSampleBytes() {
+        return this.maxSampleBytes;
+    }
+
+    @Override
+    public String toString() {
+        return patterns.size() + " patterns" + (ignoreCase ? " ignoring case" : "") +
+                (failExitCode != 0 ? " failing with " + failExitCode : "") + (discardOutput ? " discarding output" : "");
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.scheduler.model;
+
+/**
+ * size of a captured stream and what a bounded capture dropped of it.
+ */
+public class OutputStats {
+    private final long totalBytes;
+    private final long totalLines;
+    private final long droppedBytes;
+    private final long droppedLines;
+
+    public OutputStats(long totalBytes, long totalLines, long droppedBytes, long droppedLines) {
+        this.totalBytes = totalBytes;
+        this.totalLines = totalLines;
+        this.droppedBytes = droppedBytes;
+        this.droppedLines = droppedLines;
+    }
+
+    /**
+     * bytes the command wrote.
+     */
+    public long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * line ends the command wrote.
+     */
+    public long getTotalLines() {
+        return this.totalLines;
+    }
+
+    public long getDroppedBytes() {
+        return this.droppedBytes;
+    }
+
+    /**
+     * line ends among the dropped bytes.
+     */
+    public long getDroppedLines() {
+        return this.droppedLines;
+    }
+
+    public boolean isTruncated() {
+        return droppedBytes > 0;
+    }
+
+    @Override
+    public String toString() {
+        return totalBytes + " bytes " + totalLines + " lines, dropped " + droppedBytes + " bytes " + droppedLines + " lines";
+    }
+}
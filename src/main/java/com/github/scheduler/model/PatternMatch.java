@@ -0,0 +1,64 @@
+package com.github.scheduler.model;
+
+import java.util.List;
+
+/**
+ * how often one of the {@link OutputPatterns} matched in a run, where it matched first
+ * and a few of the lines it matched in.
+ */
+public class PatternMatch {
+    private final String pattern;
+    private final long count;
+    // byte offset of the first match in each stream, -1 if it didn't match there.
+    private final long firstOutputOffset;
+    private final long firstErrorOffset;
+    // the first lines matched, output lines before error lines, without their line end.
+    private final List<String> samples;
+
+    public PatternMatch(String pattern, long count, long firstOutputOffset, long firstErrorOffset, List<String> samples) {
+        this.pattern = pattern;
+        this.count = count;
+        this.firstOutputOffset = firstOutputOffset;
+        this.firstErrorOffset = firstErrorOffset;
+        this.samples = samples;
+    }
+
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * matches in both streams, overlapping ones included.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getFirstOutputOffset() {
+        return this.firstOutputOffset;
+    }
+
+    public long getFirstErrorOffset() {
+        return this.firstErrorOffset;
+    }
+
+    public List<String> getSamples() {
+        return this.samples;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('"').append(pattern).append("\" x").append(count);
+        if (firstOutputOffset >= 0) {
+            sb.append(" first at output:").append(firstOutputOffset);
+        }
+        if (firstErrorOffset >= 0) {
+            sb.append(" first at error:").append(firstErrorOffset);
+        }
+        for (String sample : samples) {
+            sb.append("\n    ").append(sample);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.scheduler.model;
+
+import java.util.regex.Pattern;
+
+/**
+ * per-job scheduling settings of the launched process: cpu affinity, nice value,
+ * io scheduling class and cpu scheduling policy. unset values (null) leave the
+ * process with what it inherits from the scheduler.
+ */
+public class ProcessSettings {
+    private static final Pattern CPU_LIST_PATTERN = Pattern.compile("\\d+(-\\d+)?(,\\d+(-\\d+)?)*");
+
+    /**
+     * io scheduling classes of ionice(1).
+     * */
+    public enum IoClass {
+        REALTIME(1),
+        BEST_EFFORT(2),
+        IDLE(3);
+
+        private final int code;
+
+        IoClass(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return this.code;
+        }
+    }
+
+    /**
+     * cpu scheduling policies for background work, see chrt(1).
+     * */
+    public enum SchedPolicy {
+        BATCH("-b"),
+        IDLE("-i");
+
+        private final String chrtOption;
+
+        SchedPolicy(String chrtOption) {
+            this.chrtOption = chrtOption;
+        }
+
+        public String getChrtOption() {
+            return this.chrtOption;
+        }
+    }
+
+    // cpu list as taskset(1) takes it, e.g. "0-3,6".
+    private String cpuSet;
+    private Integer nice;
+    private IoClass ioClass;
+    // priority inside the io class, 0 (highest) to 7.
+    private Integer ioLevel;
+    private SchedPolicy schedPolicy;
+
+    public void setCpuSet(String cpuSet){
+        if(cpuSet != null && !CPU_LIST_PATTERN.matcher(cpuSet).matches()){
+            throw new IllegalArgumentException("invalid cpu list:" + cpuSet);
+        }
+        this.cpuSet = cpuSet;
+    }
+
+    public String getCpuSet(){
+        return this.cpuSet;
+    }
+
+    public void setNice(Integer nice){
+        if(nice != null && (nice < -20 || nice > 19)){
+            throw new IllegalArgumentException("nice must be in [-20,19]:" + nice);
+        }
+        this.nice = nice;
+    }
+
+    public Integer getNice(){
+        return this.nice;
+    }
+
+    public void setIoClass(IoClass ioClass){
+        this.ioClass = ioClass;
+    }
+
+    public IoClass getIoClass(){
+        return this.ioClass;
+    }
+
+    public void setIoLevel(Integer ioLevel){
+        if(ioLevel != null && (ioLevel < 0 || ioLevel > 7)){
+            throw new IllegalArgumentException("io level must be in [0,7]:" + ioLevel);
+        }
+        this.ioLevel = ioLevel;
+    }
+
+    public Integer getIoLevel(){
+        return this.ioLevel;
+    }
+
+    public void setSchedPolicy(SchedPolicy schedPolicy){
+        this.schedPolicy = schedPolicy;
+    }
+
+    public SchedPolicy getSchedPolicy(){
+        return this.schedPolicy;
+    }
+
+    /**
+     * @return true if no setting is made, the process runs as launched.
+     */
+    public boolean isEmpty(){
+        return cpuSet == null && nice == null && ioClass == null && schedPolicy == null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if(cpuSet != null){
+            sb.append("cpus=").append(cpuSet).append(' ');
+        }
+        if(nice != null){
+            sb.append("nice=").append(nice).append(' ');
+        }
+        if(ioClass != null){
+            sb.append("io=").append(ioClass.name().toLowerCase().replace('_','-'));
+            if(ioLevel != null){
+                sb.append(':').append(ioLevel);
+            }
+            sb.append(' ');
+        }
+        if(schedPolicy != null){
+            sb.append("sched=").append(schedPolicy.name().toLowerCase()).append(' ');
+        }
+        return sb.toString().trim();
+    }
+}
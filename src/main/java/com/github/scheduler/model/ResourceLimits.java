@@ -0,0 +1,76 @@
+package com.github.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * per-job cgroup v2 limits. an execution of a job with limits runs in its own child
+ * cgroup, which is also used to account its resource usage (see {@link ResourceUsage});
+ * limits left at 0/empty are not set, so empty limits only account.
+ */
+public class ResourceLimits {
+    // period of cpu.max in microseconds.
+    public static final long CPU_PERIOD_MICROS = 100000L;
+
+    // number of cpus the job may use, e.g. 0.5; 0 for no limit.
+    private double cpuMax;
+
+    // memory.max in bytes, 0 for no limit.
+    private long memoryMaxBytes;
+
+    // io.max lines, e.g. "8:0 rbps=1048576 wbps=1048576".
+    private List<String> ioMax = Collections.emptyList();
+
+    public void setCpuMax(double cpuMax){
+        if(cpuMax < 0){
+            throw new IllegalArgumentException("cpu max must not be negative:" + cpuMax);
+        }
+        this.cpuMax = cpuMax;
+    }
+
+    public double getCpuMax(){
+        return this.cpuMax;
+    }
+
+    /**
+     * the cpu.max value: quota and period in microseconds.
+     */
+    public String cpuMaxValue(){
+        return Math.max(1000L, (long) (cpuMax * CPU_PERIOD_MICROS)) + " " + CPU_PERIOD_MICROS;
+    }
+
+    public void setMemoryMaxBytes(long memoryMaxBytes){
+        if(memoryMaxBytes < 0){
+            throw new IllegalArgumentException("memory max must not be negative:" + memoryMaxBytes);
+        }
+        this.memoryMaxBytes = memoryMaxBytes;
+    }
+
+    public long getMemoryMaxBytes(){
+        return this.memoryMaxBytes;
+    }
+
+    public void setIoMax(List<String> ioMax){
+        this.ioMax = Collections.unmodifiableList(new ArrayList<>(ioMax));
+    }
+
+    public List<String> getIoMax(){
+        return this.ioMax;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if(cpuMax > 0){
+            sb.append("cpu.max=").append(cpuMax).append(' ');
+        }
+        if(memoryMaxBytes > 0){
+            sb.append("memory.max=").append(memoryMaxBytes).append(' ');
+        }
+        for(String io : ioMax){
+            sb.append("io.max=").append(io).append(' ');
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.scheduler.model;
+
+/**
+ * resources used by one execution, read from its cgroup when it exited.
+ * a value the kernel doesn't provide is -1.
+ */
+public class ResourceUsage {
+    private long cpuUsageMicros = -1;
+    private long cpuUserMicros = -1;
+    private long cpuSystemMicros = -1;
+    private long cpuThrottledMicros = -1;
+    private long memoryPeakBytes = -1;
+    private long ioReadBytes = -1;
+    private long ioWriteBytes = -1;
+    // the limits which could be set on the cgroup.
+    private String appliedLimits = "";
+
+    public void setCpuUsageMicros(long cpuUsageMicros){
+        this.cpuUsageMicros = cpuUsageMicros;
+    }
+
+    public long getCpuUsageMicros(){
+        return this.cpuUsageMicros;
+    }
+
+    public void setCpuUserMicros(long cpuUserMicros){
+        this.cpuUserMicros = cpuUserMicros;
+    }
+
+    public long getCpuUserMicros(){
+        return this.cpuUserMicros;
+    }
+
+    public void setCpuSystemMicros(long cpuSystemMicros){
+        this.cpuSystemMicros = cpuSystemMicros;
+    }
+
+    public long getCpuSystemMicros(){
+        return this.cpuSystemMicros;
+    }
+
+    public void setCpuThrottledMicros(long cpuThrottledMicros){
+        this.cpuThrottledMicros = cpuThrottledMicros;
+    }
+
+    public long getCpuThrottledMicros(){
+        return this.cpuThrottledMicros;
+    }
+
+    public void setMemoryPeakBytes(long memoryPeakBytes){
+        this.memoryPeakBytes = memoryPeakBytes;
+    }
+
+    public long getMemoryPeakBytes(){
+        return this.memoryPeakBytes;
+    }
+
+    public void setIoReadBytes(long ioReadBytes){
+        this.ioReadBytes = ioReadBytes;
+    }
+
+    public long getIoReadBytes(){
+        return this.ioReadBytes;
+    }
+
+    public void setIoWriteBytes(long ioWriteBytes){
+        this.ioWriteBytes = ioWriteBytes;
+    }
+
+    public long getIoWriteBytes(){
+        return this.ioWriteBytes;
+    }
+
+    public void setAppliedLimits(String appliedLimits){
+        this.appliedLimits = appliedLimits;
+    }
+
+    public String getAppliedLimits(){
+        return this.appliedLimits;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("cpu(us):").append(cpuUsageMicros);
+        sb.append(" user(us):").append(cpuUserMicros);
+        sb.append(" system(us):").append(cpuSystemMicros);
+        sb.append(" throttled(us):").append(cpuThrottledMicros);
+        sb.append(" memory peak:").append(memoryPeakBytes);
+        sb.append(" io read:").append(ioReadBytes);
+        sb.append(" io write:").append(ioWriteBytes);
+        if(!appliedLimits.isEmpty()){
+            sb.append(" limits:").append(appliedLimits);
+        }
+        return sb.toString();
+    }
+}
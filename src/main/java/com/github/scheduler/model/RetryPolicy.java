@@ -0,0 +1,87 @@
+package com.github.scheduler.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * per-job retry settings: how many attempts, which exit codes are worth another
+ * attempt, and the exponential backoff with jitter between attempts.
+ */
+public class RetryPolicy {
+    /**
+     * a single attempt, failures are not retried.
+     * */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0L, 0L, 1.0, 0.0, Collections.<Integer>emptySet());
+
+    // total number of attempts including the first one.
+    private final int maxAttempts;
+
+    // backoff before the first retry.
+    private final long initialBackoffMillis;
+
+    // upper bound of a single backoff.
+    private final long maxBackoffMillis;
+
+    // growth of the backoff per attempt.
+    private final double multiplier;
+
+    // fraction of the backoff which is randomized away, 0 for none, 1 for full jitter.
+    private final double jitter;
+
+    // exit codes to retry, empty for every non-zero code.
+    private final Set<Integer> retryableExitCodes;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis) {
+        this(maxAttempts, initialBackoffMillis, 60000L, 2.0, 0.5, Collections.<Integer>emptySet());
+    }
+
+    public RetryPolicy(int maxAttempts,
+                       long initialBackoffMillis,
+                       long maxBackoffMillis,
+                       double multiplier,
+                       double jitter,
+                       Set<Integer> retryableExitCodes) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("max attempts must be positive:" + maxAttempts);
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be in [0,1]:" + jitter);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.retryableExitCodes = Collections.unmodifiableSet(new HashSet<>(retryableExitCodes));
+    }
+
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    public Set<Integer> getRetryableExitCodes() {
+        return this.retryableExitCodes;
+    }
+
+    /**
+     * @param exitCode exit code of the failed attempt.
+     * @return true if an attempt ending with this code may be retried.
+     */
+    public boolean isRetryable(int exitCode) {
+        return exitCode != 0 && (retryableExitCodes.isEmpty() || retryableExitCodes.contains(exitCode));
+    }
+
+    /**
+     * backoff before the next attempt.
+     * @param attempt number of the attempt which just failed, starting at 1.
+     * @return delay in milliseconds.
+     */
+    public long backoffMillis(int attempt) {
+        double backoff = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+        backoff = Math.min(backoff, maxBackoffMillis);
+        backoff -= backoff * jitter * ThreadLocalRandom.current().nextDouble();
+        return (long) backoff;
+    }
+}
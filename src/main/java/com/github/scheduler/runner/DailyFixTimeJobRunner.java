@@ -1,8 +1,6 @@
 package com.github.scheduler.runner;
 
-import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
-import com.github.scheduler.utils.DailyJobThread;
 import com.github.scheduler.utils.ScheduleMode;
 import com.github.scheduler.utils.Shell;
 import com.github.scheduler.utils.Utils;
@@ -30,7 +28,6 @@ public class DailyFixTimeJobRunner extends JobRunner{
     @Override
     public void start() {
         init();
-        int scheduleCode = this.getScheduleMode().getMode();
         long theSecondOfDay = Utils.theSecondOfDay(executeTime) * 1000L;
 
         long preDailyStartTimeStamp = Utils.dailyStartTimeStamp();
@@ -41,33 +38,9 @@ public class DailyFixTimeJobRunner extends JobRunner{
         while (true){
             long dailyExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
 
-            if(!jobExecuteFlag && System.currentTimeMillis() >= dailyExecuteTimeStamp){
-                DailyJobThread dailyJobThread = new DailyJobThread("daily_fixed_time_job") {
-                    @Override
-                    public void run() {
-                        try{
-                            // do real job by shell.
-                            shell.execute();
-
-                            long tid = Thread.currentThread().getId();
-                            String id = Utils.createJobId(scheduleCode,tid);
-                            int retCode = shell.getExitCode();
-                            String output = shell.getOutput();
-                            String error = shell.getError();
-                            JobResponse jobResponse = new JobResponse(id);
-                            jobResponse.setRetCode(retCode);
-                            jobResponse.setOutput(output);
-                            jobResponse.setError(error);
-                            handler.handler(jobResponse);
-
-                        }catch (Exception e){
-                            String errorMsg = Utils.stackTrace(e);
-                            LOG.error(errorMsg);
-                        }
-                    }
-                };
-
-                dailyJobThread.start();
+            if(!jobExecuteFlag && System.currentTimeMillis() >= launchTime(dailyExecuteTimeStamp)){
+                // nothing to submit if it was launched ahead before midnight.
+                submitFire(dailyExecuteTimeStamp);
                 jobExecuteFlag = true;
             }else{
                 long nextExecuteTimeStamp = Utils.nextDayStartTimeStamp() + theSecondOfDay;
@@ -76,6 +49,11 @@ public class DailyFixTimeJobRunner extends JobRunner{
                     nextExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
                 }
 
+                if(isLaunchDue(nextExecuteTimeStamp)){
+                    submitFire(nextExecuteTimeStamp);
+                    continue;
+                }
+
                 long millsDelta = nextExecuteTimeStamp - System.currentTimeMillis();
 
                 StringBuilder sb = new StringBuilder();
@@ -93,7 +71,7 @@ public class DailyFixTimeJobRunner extends JobRunner{
                     secondsSleep = 10L;
                 }
 
-                Utils.sleepQuietly(secondsSleep * 1000L);
+                Utils.sleepQuietly(sleepBeforeLaunch(secondsSleep * 1000L, nextExecuteTimeStamp));
             }
 
             // 跨天重置.
@@ -1,6 +1,5 @@
 package com.github.scheduler.runner;
 
-import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
 import com.github.scheduler.utils.*;
 import org.apache.logging.log4j.LogManager;
@@ -34,7 +33,6 @@ public class DateFixTimeJobRunner extends JobRunner{
     @Override
     public void start() {
         init();
-        int scheduleCode = this.getScheduleMode().getMode();
         long theSecondOfDay = Utils.theSecondOfDay(executeTime) * 1000L;
 
         long preDailyStartTimeStamp = Utils.dailyStartTimeStamp();
@@ -48,33 +46,9 @@ public class DateFixTimeJobRunner extends JobRunner{
             if(datesList.contains(currentDate)){
                 long dailyExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
 
-                if(!jobExecuteFlag && System.currentTimeMillis() >= dailyExecuteTimeStamp){
-                    DailyJobThread dailyJobThread = new DailyJobThread("date_fix_time_job") {
-                        @Override
-                        public void run() {
-                            try{
-                                // do real job by shell.
-                                shell.execute();
-
-                                long tid = Thread.currentThread().getId();
-                                String id = Utils.createJobId(scheduleCode,tid);
-                                int retCode = shell.getExitCode();
-                                String output = shell.getOutput();
-                                String error = shell.getError();
-                                JobResponse jobResponse = new JobResponse(id);
-                                jobResponse.setRetCode(retCode);
-                                jobResponse.setOutput(output);
-                                jobResponse.setError(error);
-                                handler.handler(jobResponse);
-
-                            }catch (Exception e){
-                                String errorMsg = Utils.stackTrace(e);
-                                LOG.error(errorMsg);
-                            }
-                        }
-                    };
-
-                    dailyJobThread.start();
+                if(!jobExecuteFlag && System.currentTimeMillis() >= launchTime(dailyExecuteTimeStamp)){
+                    // nothing to submit if it was launched ahead before midnight.
+                    submitFire(dailyExecuteTimeStamp);
                     jobExecuteFlag = true;
                 }else{
                     String nextExecuteDate = Utils.getNextExecuteDate(datesList);
@@ -88,6 +62,11 @@ public class DateFixTimeJobRunner extends JobRunner{
                         nextExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
                     }
 
+                    if(isLaunchDue(nextExecuteTimeStamp)){
+                        submitFire(nextExecuteTimeStamp);
+                        continue;
+                    }
+
                     long millsDelta = nextExecuteTimeStamp - System.currentTimeMillis();
                     StringBuilder sb = new StringBuilder();
 
@@ -105,7 +84,7 @@ public class DateFixTimeJobRunner extends JobRunner{
                         secondsSleep = 10L;
                     }
 
-                    Utils.sleepQuietly(secondsSleep * 1000L);
+                    Utils.sleepQuietly(sleepBeforeLaunch(secondsSleep * 1000L, nextExecuteTimeStamp));
                 }
             }else{
                 String nextExecuteDate = Utils.getNextExecuteDate(datesList);
@@ -115,6 +94,11 @@ public class DateFixTimeJobRunner extends JobRunner{
                 }
 
                 long nextExecuteTimeStamp = Utils.dateParse("yyyy-MM-dd",nextExecuteDate).getTime() + theSecondOfDay;
+                if(isLaunchDue(nextExecuteTimeStamp)){
+                    submitFire(nextExecuteTimeStamp);
+                    continue;
+                }
+
                 long millsDelta = nextExecuteTimeStamp - System.currentTimeMillis();
                 StringBuilder sb = new StringBuilder();
                 Utils.appendPosixTime(sb,millsDelta);
@@ -131,7 +115,7 @@ public class DateFixTimeJobRunner extends JobRunner{
                     secondsSleep = 10L;
                 }
 
-                Utils.sleepQuietly(secondsSleep * 1000L);
+                Utils.sleepQuietly(sleepBeforeLaunch(secondsSleep * 1000L, nextExecuteTimeStamp));
             }
 
             // 跨天重置.
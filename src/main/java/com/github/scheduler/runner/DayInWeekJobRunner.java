@@ -1,6 +1,5 @@
 package com.github.scheduler.runner;
 
-import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
 import com.github.scheduler.utils.*;
 import org.apache.logging.log4j.LogManager;
@@ -29,7 +28,6 @@ public class DayInWeekJobRunner extends JobRunner{
     @Override
     public void start() {
         init();
-        int scheduleCode = this.getScheduleMode().getMode();
         long theSecondOfDay = Utils.theSecondOfDay(executeTime) * 1000L;
 
         long preDailyStartTimeStamp = Utils.dailyStartTimeStamp();
@@ -43,33 +41,9 @@ public class DayInWeekJobRunner extends JobRunner{
             if(dayInWeeksList.contains(currentDayInWeek)){
                 long dailyExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
 
-                if(!jobExecuteFlag && System.currentTimeMillis() >= dailyExecuteTimeStamp){
-                    DailyJobThread dailyJobThread = new DailyJobThread("day_in_week_job") {
-                        @Override
-                        public void run() {
-                            try{
-                                // do real job by shell.
-                                shell.execute();
-
-                                long tid = Thread.currentThread().getId();
-                                String id = Utils.createJobId(scheduleCode,tid);
-                                int retCode = shell.getExitCode();
-                                String output = shell.getOutput();
-                                String error = shell.getError();
-                                JobResponse jobResponse = new JobResponse(id);
-                                jobResponse.setRetCode(retCode);
-                                jobResponse.setOutput(output);
-                                jobResponse.setError(error);
-                                handler.handler(jobResponse);
-
-                            }catch (Exception e){
-                                String errorMsg = Utils.stackTrace(e);
-                                LOG.error(errorMsg);
-                            }
-                        }
-                    };
-
-                    dailyJobThread.start();
+                if(!jobExecuteFlag && System.currentTimeMillis() >= launchTime(dailyExecuteTimeStamp)){
+                    // nothing to submit if it was launched ahead before midnight.
+                    submitFire(dailyExecuteTimeStamp);
                     jobExecuteFlag = true;
                 }else{
                     Tuple<String,Long> tuple = Utils.getNextExecuteDayInWeek(dayInWeeksList);
@@ -79,6 +53,11 @@ public class DayInWeekJobRunner extends JobRunner{
                         nextExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
                     }
 
+                    if(isLaunchDue(nextExecuteTimeStamp)){
+                        submitFire(nextExecuteTimeStamp);
+                        continue;
+                    }
+
                     long millsDelta = nextExecuteTimeStamp - System.currentTimeMillis();
 
                     StringBuilder sb = new StringBuilder();
@@ -96,12 +75,19 @@ public class DayInWeekJobRunner extends JobRunner{
                         secondsSleep = 10L;
                     }
 
-                    Utils.sleepQuietly(secondsSleep * 1000L);
+                    Utils.sleepQuietly(sleepBeforeLaunch(secondsSleep * 1000L, nextExecuteTimeStamp));
                 }
             }else{
                 Tuple<String,Long> tuple = Utils.getNextExecuteDayInWeek(dayInWeeksList);
                 long nextExecuteTimeStamp = Utils.dailyStartTimeStamp() + theSecondOfDay;
                 long millsDelta = tuple.v2() + (nextExecuteTimeStamp - System.currentTimeMillis());
+
+                long nextFireTime = tuple.v2() + nextExecuteTimeStamp;
+                if(isLaunchDue(nextFireTime)){
+                    submitFire(nextFireTime);
+                    continue;
+                }
+
                 StringBuilder sb = new StringBuilder();
                 Utils.appendPosixTime(sb,millsDelta);
                 LOG.info("time to wait before next execute: {}",sb.toString());
@@ -117,7 +103,7 @@ public class DayInWeekJobRunner extends JobRunner{
                     secondsSleep = 10L;
                 }
 
-                Utils.sleepQuietly(secondsSleep * 1000L);
+                Utils.sleepQuietly(sleepBeforeLaunch(secondsSleep * 1000L, nextFireTime));
             }
 
             // 跨天重置.
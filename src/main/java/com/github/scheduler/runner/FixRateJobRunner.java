@@ -17,6 +17,9 @@ public class FixRateJobRunner extends JobRunner{
     private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
     private WrappedRunnable runnable;
     private ScheduledFuture<?> future;
+    // fire time of the first run and number of runs so far, the runs fire period apart.
+    private long firstFireTime;
+    private long runs;
 
     public FixRateJobRunner(ScheduleMode scheduleMode,
                             List<String> cmdList,
@@ -32,22 +35,17 @@ public class FixRateJobRunner extends JobRunner{
     @Override
     public void init(){
         this.shell = new Shell.ShellCommandExecutor(Utils.cmdListToArray(this.cmdList));
-        int scheduleCode = this.getScheduleMode().getMode();
         this.runnable = new WrappedRunnable() {
             @Override
             protected JobResponse doWork() throws Exception {
-                // do real job by shell.
-                shell.execute();
-
-                long tid = Thread.currentThread().getId();
-                String id = Utils.createJobId(scheduleCode,tid);
-                int retCode = shell.getExitCode();
-                String output = shell.getOutput();
-                String error = shell.getError();
-                JobResponse jobResponse = new JobResponse(id);
-                jobResponse.setRetCode(retCode);
-                jobResponse.setOutput(output);
-                jobResponse.setError(error);
+                // run on the shared execution pool, wait for it to keep runs from overlapping.
+                final long fireTime = firstFireTime + (runs++) * timeUnit.toMillis(period);
+                JobResponse jobResponse = submitExecution(new Callable<JobResponse>() {
+                    @Override
+                    public JobResponse call() throws Exception {
+                        return executeShell(fireTime);
+                    }
+                }).get();
 
                 handler.handler(jobResponse);
 
@@ -59,12 +57,14 @@ public class FixRateJobRunner extends JobRunner{
     @Override
     public void start() {
         init();
+        firstFireTime = System.currentTimeMillis() + this.timeUnit.toMillis(this.initialDelay);
+        // runs are submitted ahead of their fire times by the pre-launch lead.
         future = ExecutorServiceUtil.scheduleAtFixedRate(
                     this.executorService,
                     this.runnable,
-                    this.initialDelay,
-                    this.period,
-                    this.timeUnit);
+                    Math.max(0L, launchTime(firstFireTime) - System.currentTimeMillis()),
+                    this.timeUnit.toMillis(this.period),
+                    TimeUnit.MILLISECONDS);
     }
 
     @Override
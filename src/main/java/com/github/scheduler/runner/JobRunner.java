@@ -1,15 +1,49 @@
 package com.github.scheduler.runner;
 
+import com.github.scheduler.executor.ExecutionControl;
+import com.github.scheduler.executor.ExecutionPools;
+import com.github.scheduler.executor.JobExecutionPool;
+import com.github.scheduler.executor.JobHandle;
+import com.github.scheduler.model.JobConfig;
+import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
+import com.github.scheduler.model.OutputListener;
+import com.github.scheduler.model.OutputMatches;
+import com.github.scheduler.model.OutputPatterns;
+import com.github.scheduler.task.TaskExecutor;
+import com.github.scheduler.task.TaskPlugins;
+import com.github.scheduler.utils.DirectBufferPool;
 import com.github.scheduler.utils.ScheduleMode;
 import com.github.scheduler.utils.Shell;
+import com.github.scheduler.utils.Utils;
+import com.github.scheduler.utils.WorkerShellPool;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
 
 public abstract class JobRunner {
+    private static final Logger LOG = LogManager.getLogger(JobRunner.class);
+
     protected final ScheduleMode scheduleMode;
     protected final List<String> cmdList;
+    protected final JobConfig jobConfig;
     protected Shell.ShellCommandExecutor shell;
+    protected volatile WorkerShellPool.WorkerCommandExecutor workerCommand;
+    protected WorkerShellPool workerShellPool = WorkerShellPool.getDefault();
+    protected volatile TaskExecutor taskExecutor;
     protected JobResponseHandler handler;
+    protected OutputListener outputListener;
+    protected ExecutionPools executionPools = ExecutionPools.getDefault();
+
+    // fire time of the execution submitted last, a fire launched ahead is not submitted again.
+    private long lastFireTime = Long.MIN_VALUE;
 
     protected abstract void init();
 
@@ -24,6 +58,270 @@ public abstract class JobRunner {
     public JobRunner(ScheduleMode scheduleMode,List<String> cmdList){
         this.scheduleMode = scheduleMode;
         this.cmdList = cmdList;
+        this.jobConfig = new JobConfig(printCmdList().trim());
+    }
+
+    /**
+     * submit an execution to the pool the job is routed to.
+     * cancelling the returned handle kills the running command,
+     * pausing it stops the command's process tree.
+     * */
+    protected JobHandle submitExecution(Callable<JobResponse> callable){
+        JobExecutionPool pool = executionPools.route(jobConfig);
+        final Shell.ShellCommandExecutor executor = shell;
+        return pool.submit(jobConfig, callable, new ExecutionControl() {
+            @Override
+            public void cancel() {
+                TaskExecutor task = taskExecutor;
+                if(task != null){
+                    task.cancel();
+                }
+                WorkerShellPool.WorkerCommandExecutor worker = workerCommand;
+                if(worker != null){
+                    worker.kill(jobConfig.getKillGraceMillis());
+                }
+                executor.kill(jobConfig.getKillGraceMillis());
+            }
+
+            @Override
+            public boolean pause() {
+                WorkerShellPool.WorkerCommandExecutor worker = workerCommand;
+                if(worker != null && worker.pause()){
+                    return true;
+                }
+                return executor.pause();
+            }
+
+            @Override
+            public void resume() {
+                WorkerShellPool.WorkerCommandExecutor worker = workerCommand;
+                if(worker != null){
+                    worker.resume();
+                }
+                executor.resume();
+            }
+        });
+    }
+
+    /**
+     * do real job by shell and collect its response.
+     * */
+    protected JobResponse executeShell() throws IOException {
+        if(jobConfig.isTask()){
+            return executeTask();
+        }
+        if(useWorkerShell()){
+            return executeWorkerShell();
+        }
+        shell.setProcessSettings(jobConfig.getProcessSettings());
+        shell.setResourceLimits(jobConfig.getResourceLimits());
+        shell.setKillGraceMillis(jobConfig.getKillGraceMillis());
+        shell.setTimeoutInterval(jobConfig.getTimeoutMillis());
+        shell.setSpoolDirectory(jobConfig.getSpoolDirectory() == null ? null : new File(jobConfig.getSpoolDirectory()));
+        shell.setCapturePolicy(jobConfig.getCapturePolicy());
+        shell.setOutputListener(outputListener);
+        shell.setOutputPatterns(jobConfig.getOutputPatterns());
+        shell.setBufferPool(jobConfig.isPooledCapture() ? DirectBufferPool.getDefault() : null);
+        shell.execute();
+
+        long tid = Thread.currentThread().getId();
+        String id = Utils.createJobId(scheduleMode.getMode(),tid);
+        JobResponse jobResponse = new JobResponse(id);
+        jobResponse.setRetCode(shell.getExitCode());
+        if(shell.getOutputSpool() != null){
+            // the response takes the spool files over, the output is never read here.
+            jobResponse.setOutputSpool(shell.getOutputSpool());
+            jobResponse.setErrorSpool(shell.getErrorSpool());
+        }else{
+            // the bytes are decoded only if the handler reads the output.
+            jobResponse.setCapturedOutput(shell.takeCapturedOutput());
+            jobResponse.setCapturedError(shell.takeCapturedError());
+            jobResponse.setOutputStats(shell.getOutputStats());
+            jobResponse.setErrorStats(shell.getErrorStats());
+        }
+        jobResponse.setStoppedByListener(shell.isStoppedByListener());
+        jobResponse.setOutputMatches(shell.getOutputMatches());
+        failOnMatch(jobResponse);
+        jobResponse.setProcessSettings(shell.getEffectiveProcessSettings());
+        jobResponse.setResourceUsage(shell.getResourceUsage());
+        jobResponse.setTimedOut(shell.isTimedOut());
+        jobResponse.setKilledPids(shell.getKilledPids());
+        jobResponse.setKillMillis(shell.getKillMillis());
+        jobResponse.setPreLaunchMillis(shell.getPreLaunchMillis());
+        jobResponse.setReleaseLagMicros(shell.getReleaseLagMicros());
+        return jobResponse;
+    }
+
+    /**
+     * a run which exited with 0 fails with the exit code of the output patterns if one
+     * matched, so it is retried and reported like any failed run.
+     * */
+    private void failOnMatch(JobResponse jobResponse){
+        OutputPatterns patterns = jobConfig.getOutputPatterns();
+        OutputMatches matches = jobResponse.getOutputMatches();
+        if(patterns == null || !patterns.isFailOnMatch() || matches == null || !matches.isMatched()
+                || jobResponse.getRetCode() != 0){
+            return;
+        }
+        LOG.warn("job {} exited with 0 but its output matched {} times, failing it with {}",
+                jobConfig.getName(), matches.getTotalCount(), patterns.getFailExitCode());
+        jobResponse.setRetCode(patterns.getFailExitCode());
+        jobResponse.setFailedByMatch(true);
+    }
+
+    /**
+     * do real job fired at a known time. with a pre-launch lead the execution is submitted
+     * that much ahead (see {@link #launchTime(long)}), the process is launched gated and
+     * released at the fire time; tasks and worker shells only wait for the fire time.
+     * @param fireTime wall clock time in milliseconds.
+     * */
+    protected JobResponse executeShell(long fireTime) throws IOException {
+        if(jobConfig.getPreLaunchMillis() <= 0){
+            return executeShell();
+        }
+        if(jobConfig.isTask() || useWorkerShell()){
+            try{
+                Utils.sleepUntil(fireTime);
+            }catch (InterruptedException ie){
+                InterruptedIOException iie = new InterruptedIOException(ie.toString());
+                iie.initCause(ie);
+                throw iie;
+            }
+            return executeShell();
+        }
+        shell.setReleaseTime(fireTime);
+        try{
+            return executeShell();
+        }finally {
+            shell.setReleaseTime(0L);
+        }
+    }
+
+    /**
+     * @return the time an execution fired at fireTime is submitted, earlier by the pre-launch lead.
+     * */
+    protected long launchTime(long fireTime){
+        return fireTime - Math.max(0L, jobConfig.getPreLaunchMillis());
+    }
+
+    /**
+     * submit the execution of a fire time once; the final response, after any retries,
+     * goes to the handler.
+     * */
+    protected void submitFire(final long fireTime){
+        if(isSubmitted(fireTime)){
+            return;
+        }
+        lastFireTime = fireTime;
+        submitExecution(new Callable<JobResponse>() {
+            @Override
+            public JobResponse call() throws Exception {
+                return executeShell(fireTime);
+            }
+        }).whenComplete(new BiConsumer<JobResponse, Throwable>() {
+            @Override
+            public void accept(JobResponse jobResponse, Throwable throwable) {
+                if(throwable instanceof CancellationException){
+                    LOG.info("execution of job {} fired at {} was cancelled", jobConfig.getName(), fireTime);
+                }else if(throwable != null){
+                    LOG.error(Utils.stackTrace(throwable));
+                }else{
+                    handler.handler(jobResponse);
+                }
+            }
+        });
+    }
+
+    protected boolean isSubmitted(long fireTime){
+        return fireTime <= lastFireTime;
+    }
+
+    /**
+     * @return true if a pre-launched fire is due for submission, which may be before the
+     * day of the fire starts, e.g. for a fire at 00:00:00.
+     * */
+    protected boolean isLaunchDue(long fireTime){
+        return jobConfig.getPreLaunchMillis() > 0 && !isSubmitted(fireTime)
+                && System.currentTimeMillis() >= launchTime(fireTime);
+    }
+
+    /**
+     * @return sleepMillis, shortened so a loop polling for the fire time wakes up at its launch time.
+     * */
+    protected long sleepBeforeLaunch(long sleepMillis, long fireTime){
+        if(jobConfig.getPreLaunchMillis() <= 0 || isSubmitted(fireTime)){
+            return sleepMillis;
+        }
+        return Math.max(1L, Math.min(sleepMillis, launchTime(fireTime) - System.currentTimeMillis()));
+    }
+
+    /**
+     * a worker shell runs the command only if the job needs no cgroup and no process settings,
+     * which are applied when a process is launched, and neither spools, bounds, scans nor listens to its output.
+     * */
+    private boolean useWorkerShell(){
+        if(!jobConfig.isWorkerShell()){
+            return false;
+        }
+        if(jobConfig.getResourceLimits() != null || !jobConfig.getProcessSettings().isEmpty()
+                || jobConfig.getSpoolDirectory() != null || jobConfig.getCapturePolicy() != null
+                || jobConfig.getOutputPatterns() != null || outputListener != null){
+            LOG.debug("job {} has resource limits, process settings or an output policy, launching it without a worker shell", jobConfig.getName());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * do real job on a pooled worker shell and collect its response.
+     * */
+    private JobResponse executeWorkerShell() throws IOException {
+        WorkerShellPool.WorkerCommandExecutor worker = workerCommand;
+        if(worker == null){
+            worker = new WorkerShellPool.WorkerCommandExecutor(shell.getExecString(), workerShellPool);
+            workerCommand = worker;
+        }
+        worker.setKillGraceMillis(jobConfig.getKillGraceMillis());
+        worker.setTimeoutInterval(jobConfig.getTimeoutMillis());
+        worker.execute();
+
+        long tid = Thread.currentThread().getId();
+        String id = Utils.createJobId(scheduleMode.getMode(),tid);
+        JobResponse jobResponse = new JobResponse(id);
+        jobResponse.setRetCode(worker.getExitCode());
+        jobResponse.setOutput(worker.getOutput());
+        jobResponse.setError(worker.getError());
+        jobResponse.setTimedOut(worker.isTimedOut());
+        jobResponse.setKilledPids(worker.getKilledPids());
+        jobResponse.setKillMillis(worker.getKillMillis());
+        return jobResponse;
+    }
+
+    /**
+     * run the job's task in-process and collect its response.
+     * */
+    private JobResponse executeTask() throws IOException {
+        TaskExecutor task = taskExecutor;
+        if(task == null){
+            TaskPlugins plugins = TaskPlugins.getDefault();
+            if(plugins == null){
+                throw new IOException("no plugin directory for task " + cmdList.get(0)
+                        + ", set " + TaskPlugins.PLUGIN_DIR_PROPERTY + " or ---plugin_dir");
+            }
+            task = new TaskExecutor(jobConfig.getName(), cmdList, plugins);
+            taskExecutor = task;
+        }
+        task.setTimeoutInterval(jobConfig.getTimeoutMillis());
+        task.execute();
+
+        long tid = Thread.currentThread().getId();
+        String id = Utils.createJobId(scheduleMode.getMode(),tid);
+        JobResponse jobResponse = new JobResponse(id);
+        jobResponse.setRetCode(task.getExitCode());
+        jobResponse.setOutput(task.getOutput());
+        jobResponse.setError(task.getError());
+        jobResponse.setTimedOut(task.isTimedOut());
+        return jobResponse;
     }
 
     public ScheduleMode getScheduleMode(){
@@ -43,7 +341,39 @@ public abstract class JobRunner {
         return sb.toString();
     }
 
+    public JobConfig getJobConfig(){
+        return this.jobConfig;
+    }
+
     public Shell getShell(){
         return this.shell;
     }
+
+    public ExecutionPools getExecutionPools(){
+        return this.executionPools;
+    }
+
+    public void setExecutionPools(ExecutionPools executionPools){
+        this.executionPools = Utils.checkNotNull(executionPools);
+    }
+
+    public OutputListener getOutputListener(){
+        return this.outputListener;
+    }
+
+    /**
+     * pass the output of launched commands to a listener while they run.
+     * @param outputListener the listener, null for none.
+     * */
+    public void setOutputListener(OutputListener outputListener){
+        this.outputListener = outputListener;
+    }
+
+    public WorkerShellPool getWorkerShellPool(){
+        return this.workerShellPool;
+    }
+
+    public void setWorkerShellPool(WorkerShellPool workerShellPool){
+        this.workerShellPool = Utils.checkNotNull(workerShellPool);
+    }
 }
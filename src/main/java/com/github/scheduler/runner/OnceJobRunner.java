@@ -1,8 +1,8 @@
 package com.github.scheduler.runner;
 
+import com.github.scheduler.executor.JobHandle;
 import com.github.scheduler.model.JobResponse;
 import com.github.scheduler.model.JobResponseHandler;
-import com.github.scheduler.utils.ExecutorServiceUtil;
 import com.github.scheduler.utils.ScheduleMode;
 import com.github.scheduler.utils.Shell;
 import com.github.scheduler.utils.Utils;
@@ -11,15 +11,18 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 
 public class OnceJobRunner extends JobRunner{
     private static final Logger LOG = LogManager.getLogger(OnceJobRunner.class);
     private final long delay;
     private final TimeUnit timeUnit;
     private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
+    private final CompletableFuture<JobResponse> responseFuture = new CompletableFuture<>();
     private Callable<JobResponse> callable;
-    private ExecutorServiceUtil.CallableTaskWrapper<JobResponse> wrapper;
-    private JobResponse jobResponse;
+    private ScheduledFuture<?> scheduledFuture;
+    private volatile JobHandle handle;
+    private volatile long fireTime;
 
     public OnceJobRunner(ScheduleMode scheduleMode,
                          List<String> cmdList,
@@ -41,23 +44,10 @@ public class OnceJobRunner extends JobRunner{
     @Override
     protected void init() {
         this.shell = new Shell.ShellCommandExecutor(Utils.cmdListToArray(this.cmdList));
-        int scheduleCode = this.getScheduleMode().getMode();
         callable = new Callable<JobResponse>() {
             @Override
             public JobResponse call() throws Exception {
-                // do real job by shell.
-                shell.execute();
-
-                long tid = Thread.currentThread().getId();
-                String id = Utils.createJobId(scheduleCode,tid);
-                int retCode = shell.getExitCode();
-                String output = shell.getOutput();
-                String error = shell.getError();
-                JobResponse jobResponse = new JobResponse(id);
-                jobResponse.setRetCode(retCode);
-                jobResponse.setOutput(output);
-                jobResponse.setError(error);
-                return jobResponse;
+                return executeShell(fireTime);
             }
         };
     }
@@ -65,20 +55,74 @@ public class OnceJobRunner extends JobRunner{
     @Override
     public void start() {
         init();
-        wrapper = ExecutorServiceUtil.schedule(executorService,callable,this.delay,this.timeUnit);
+        fireTime = System.currentTimeMillis() + this.timeUnit.toMillis(this.delay);
+        // the handler is called back on completion, no thread waits for the job.
+        responseFuture.whenComplete(new BiConsumer<JobResponse, Throwable>() {
+            @Override
+            public void accept(JobResponse jobResponse, Throwable throwable) {
+                // the handler only gets a response, a failed or cancelled run has none.
+                if(throwable instanceof CancellationException){
+                    LOG.info("execution of job {} fired at {} was cancelled", jobConfig.getName(), fireTime);
+                }else if(throwable != null){
+                    LOG.error(Utils.stackTrace(throwable));
+                }else{
+                    handler.handler(jobResponse);
+                }
+            }
+        });
+
+        scheduledFuture = executorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    handle = submitExecution(callable);
+                    handle.whenComplete(new BiConsumer<JobResponse, Throwable>() {
+                        @Override
+                        public void accept(JobResponse jobResponse, Throwable throwable) {
+                            if(throwable != null){
+                                responseFuture.completeExceptionally(throwable);
+                            }else{
+                                responseFuture.complete(jobResponse);
+                            }
+                        }
+                    });
+                }catch (Exception e){
+                    responseFuture.completeExceptionally(e);
+                }
+            }
+        },launchTime(fireTime) - System.currentTimeMillis(),TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * future of the job response, completed when the job finishes, fails or is cancelled.
+     * */
+    public CompletableFuture<JobResponse> getResponseFuture(){
+        return this.responseFuture;
+    }
+
+    /**
+     * cancel the job without waiting: before its delay elapsed it never runs,
+     * while running its command is killed.
+     * */
+    public boolean cancel(){
+        boolean cancelled = scheduledFuture != null && scheduledFuture.cancel(false);
+        JobHandle current = handle;
+        if(current != null){
+            cancelled = current.cancel(true) || cancelled;
+        }
+        if(cancelled){
+            responseFuture.cancel(false);
+        }
+        return cancelled;
     }
 
     @Override
     public void waitComplete() {
         try{
-            wrapper.waitTillDone();
-            jobResponse = wrapper.get();
+            responseFuture.get();
         }catch (Exception ex){
-            String errorMsg = Utils.stackTrace(ex);
-            LOG.error(errorMsg);
+            LOG.debug("job did not complete normally: {}", ex.toString());
         }
-
-        handler.handler(jobResponse);
     }
 
     @Override
@@ -0,0 +1,70 @@
+package com.github.scheduler.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cancellation of one task run, requested by a cancel of the execution or its timeout.
+ * the task polls it or registers callbacks, e.g. to close a connection it blocks on.
+ */
+public class CancellationToken {
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final List<Runnable> callbacks = new ArrayList<>();
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    /**
+     * @throws CancellationException if the run is cancelled.
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("task cancelled");
+        }
+    }
+
+    /**
+     * wait for the cancellation, e.g. instead of a sleep between steps.
+     * @return true if the run was cancelled within the time.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return cancelled.await(timeout, unit);
+    }
+
+    /**
+     * run a callback on the cancelling thread when the run is cancelled, or at once if it
+     * is cancelled already. callbacks must not block.
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (callbacks) {
+            if (!isCancelled()) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * @return false if the run was cancelled already.
+     */
+    boolean cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (isCancelled()) {
+                return false;
+            }
+            cancelled.countDown();
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : toRun) {
+            callback.run();
+        }
+        return true;
+    }
+}
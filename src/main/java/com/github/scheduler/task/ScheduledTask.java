@@ -0,0 +1,23 @@
+package com.github.scheduler.task;
+
+/**
+ * a job implemented in java, run inside the scheduler instead of a process of its own.
+ *
+ * implementations are packaged as jars in the plugin directory and registered in
+ * META-INF/services/com.github.scheduler.task.ScheduledTask, see {@link TaskPlugins}.
+ * every run gets a fresh instance, created by the public no-arg constructor.
+ */
+public interface ScheduledTask {
+    /**
+     * @return the name jobs select the task by, unique among all plugins.
+     */
+    String getName();
+
+    /**
+     * run the task on a thread of the execution pool. a long running task checks
+     * {@link TaskContext#getCancellationToken()} and returns early once cancelled.
+     * @return exit code of the run, 0 for success, as for a command.
+     * @throws Exception fails the run with exit code 1 and the stack trace as error.
+     */
+    int run(TaskContext context) throws Exception;
+}
@@ -0,0 +1,53 @@
+package com.github.scheduler.task;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * what a {@link ScheduledTask} gets for one run.
+ */
+public class TaskContext {
+    private final String jobName;
+    private final List<String> args;
+    private final CancellationToken cancellationToken;
+    private final PrintWriter output;
+    private final PrintWriter error;
+
+    TaskContext(String jobName, List<String> args, CancellationToken cancellationToken,
+                PrintWriter output, PrintWriter error) {
+        this.jobName = jobName;
+        this.args = args;
+        this.cancellationToken = cancellationToken;
+        this.output = output;
+        this.error = error;
+    }
+
+    public String getJobName() {
+        return this.jobName;
+    }
+
+    /**
+     * arguments of the job after the task name.
+     */
+    public List<String> getArgs() {
+        return this.args;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return this.cancellationToken;
+    }
+
+    /**
+     * becomes the output of the job response.
+     */
+    public PrintWriter getOutput() {
+        return this.output;
+    }
+
+    /**
+     * becomes the error of the job response.
+     */
+    public PrintWriter getError() {
+        return this.error;
+    }
+}
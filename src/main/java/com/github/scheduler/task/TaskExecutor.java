@@ -0,0 +1,155 @@
+package com.github.scheduler.task;
+
+import com.github.scheduler.utils.Shell;
+import com.github.scheduler.utils.TimeoutWatchdog;
+import com.github.scheduler.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * runs a {@link ScheduledTask} in-process on the calling thread, with the exit code,
+ * output and error of a command. a cancel or timeout trips the run's cancellation
+ * token and interrupts the thread; a task which ignores both runs to its end.
+ */
+public class TaskExecutor implements Shell.CommandExecutor {
+    private static final Logger LOG = LogManager.getLogger(TaskExecutor.class);
+
+    public static final int EXIT_FAILURE = 1;
+    // as a command terminated by SIGTERM, so retry policies treat both alike.
+    public static final int EXIT_CANCELLED = 143;
+
+    private final String jobName;
+    private final String taskName;
+    private final List<String> args;
+    private final TaskPlugins plugins;
+    private long timeOutInterval = 0L;
+    private CancellationToken token;
+    private Thread runner;
+    private volatile boolean timedOut;
+    private int exitCode;
+    private String output = "";
+    private String error = "";
+
+    /**
+     * @param command the task name and its arguments.
+     */
+    public TaskExecutor(String jobName, List<String> command, TaskPlugins plugins) {
+        if (command.isEmpty()) {
+            throw new IllegalArgumentException("task name missing");
+        }
+        this.jobName = jobName;
+        this.taskName = command.get(0);
+        this.args = new ArrayList<>(command.subList(1, command.size()));
+        this.plugins = Utils.checkNotNull(plugins);
+    }
+
+    @Override
+    public void execute() throws IOException {
+        ScheduledTask task = plugins.newTask(taskName);
+        CancellationToken cancellation = new CancellationToken();
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        PrintWriter outWriter = new PrintWriter(out);
+        PrintWriter errWriter = new PrintWriter(err);
+        TaskContext context = new TaskContext(jobName, args, cancellation, outWriter, errWriter);
+
+        timedOut = false;
+        synchronized (this) {
+            token = cancellation;
+            runner = Thread.currentThread();
+        }
+        TimeoutWatchdog.Timeout timeout = null;
+        if (timeOutInterval > 0) {
+            timeout = TimeoutWatchdog.getShared().arm(timeOutInterval, new Runnable() {
+                @Override
+                public void run() {
+                    timedOut = true;
+                    cancel();
+                }
+            });
+        }
+
+        // the task's own classes and resources come from its plugin's loader.
+        Thread current = Thread.currentThread();
+        ClassLoader contextLoader = current.getContextClassLoader();
+        current.setContextClassLoader(task.getClass().getClassLoader());
+        try {
+            exitCode = task.run(context);
+        } catch (CancellationException | InterruptedException e) {
+            exitCode = EXIT_CANCELLED;
+            errWriter.println("task cancelled");
+        } catch (Exception e) {
+            exitCode = cancellation.isCancelled() ? EXIT_CANCELLED : EXIT_FAILURE;
+            errWriter.print(Utils.stackTrace(e));
+        } finally {
+            current.setContextClassLoader(contextLoader);
+            if (timeout != null) {
+                timeout.disarm();
+            }
+            synchronized (this) {
+                runner = null;
+                token = null;
+            }
+            // an interrupt of the cancel must not hit the next work of the pool thread.
+            Thread.interrupted();
+        }
+        if (cancellation.isCancelled() && exitCode == 0) {
+            LOG.debug("task {} finished despite its cancellation", taskName);
+        }
+
+        outWriter.flush();
+        errWriter.flush();
+        output = out.toString();
+        error = err.toString();
+        if (exitCode != 0) {
+            LOG.error("task {} failed, exit code:{} ,errMsg:{}", taskName, exitCode, error);
+        }
+    }
+
+    /**
+     * cancel the running task without waiting for it.
+     */
+    public synchronized void cancel() {
+        if (token != null && token.cancel()) {
+            runner.interrupt();
+        }
+    }
+
+    public void setTimeoutInterval(long timeOutInterval) {
+        this.timeOutInterval = timeOutInterval;
+    }
+
+    public String getTaskName() {
+        return this.taskName;
+    }
+
+    public boolean isTimedOut() {
+        return this.timedOut;
+    }
+
+    @Override
+    public int getExitCode() {
+        return this.exitCode;
+    }
+
+    @Override
+    public String getOutput() {
+        return this.output;
+    }
+
+    @Override
+    public String getError() {
+        return this.error;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.scheduler.task;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * the {@link ScheduledTask}s of a plugin directory.
+ *
+ * every jar in the directory gets a class loader of its own, whose parent only
+ * exposes this package and the platform classes, so plugins neither see the
+ * scheduler's dependencies nor each other's. the tasks of a jar are discovered
+ * with {@link ServiceLoader}. the directory is taken from the system property
+ * {@value #PLUGIN_DIR_PROPERTY}.
+ */
+public class TaskPlugins {
+    private static final Logger LOG = LogManager.getLogger(TaskPlugins.class);
+
+    public static final String PLUGIN_DIR_PROPERTY = "tiny.scheduler.plugin.dir";
+
+    private static final String API_PACKAGE = ScheduledTask.class.getPackage().getName() + ".";
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile TaskPlugins defaultPlugins;
+
+    private final Path dir;
+    private final Map<String, Class<? extends ScheduledTask>> tasks;
+    private final List<URLClassLoader> loaders;
+
+    private TaskPlugins(Path dir, Map<String, Class<? extends ScheduledTask>> tasks, List<URLClassLoader> loaders) {
+        this.dir = dir;
+        this.tasks = tasks;
+        this.loaders = loaders;
+    }
+
+    /**
+     * load the tasks of every jar in a directory; a jar which fails to load is skipped.
+     * @throws IOException if the directory can not be listed, or two tasks have the same name.
+     */
+    public static TaskPlugins load(Path dir) throws IOException {
+        ClassLoader api = new TaskApiClassLoader(ScheduledTask.class.getClassLoader());
+        Map<String, Class<? extends ScheduledTask>> tasks = new TreeMap<>();
+        List<URLClassLoader> loaders = new ArrayList<>();
+        List<Path> jars = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.jar")) {
+            for (Path jar : stream) {
+                jars.add(jar);
+            }
+        }
+        Collections.sort(jars);
+
+        for (Path jar : jars) {
+            URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, api);
+            int found = 0;
+            try {
+                for (ScheduledTask task : ServiceLoader.load(ScheduledTask.class, loader)) {
+                    Class<? extends ScheduledTask> previous = tasks.put(task.getName(), task.getClass());
+                    if (previous != null) {
+                        throw new IOException("task " + task.getName() + " defined twice, again in " + jar);
+                    }
+                    found++;
+                }
+            } catch (ServiceConfigurationError | LinkageError e) {
+                LOG.error("can not load the tasks of {}:{}", jar, e.toString());
+            }
+            if (found == 0) {
+                closeQuietly(loader);
+            } else {
+                loaders.add(loader);
+                LOG.info("loaded {} tasks from {}", found, jar);
+            }
+        }
+        return new TaskPlugins(dir, Collections.unmodifiableMap(tasks), loaders);
+    }
+
+    /**
+     * the plugins of the system property's directory, null if it isn't set or not usable.
+     */
+    public static TaskPlugins getDefault() {
+        if (defaultPlugins == null) {
+            synchronized (DEFAULT_LOCK) {
+                if (defaultPlugins == null) {
+                    String dir = System.getProperty(PLUGIN_DIR_PROPERTY);
+                    if (dir != null && !dir.isEmpty()) {
+                        try {
+                            defaultPlugins = load(Paths.get(dir));
+                        } catch (IOException e) {
+                            LOG.error("plugin directory not usable:{}", e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        return defaultPlugins;
+    }
+
+    public static void setDefault(TaskPlugins plugins) {
+        synchronized (DEFAULT_LOCK) {
+            defaultPlugins = plugins;
+        }
+    }
+
+    /**
+     * a fresh instance of a task.
+     * @throws IOException if there is no task of the name or it can not be instantiated.
+     */
+    public ScheduledTask newTask(String name) throws IOException {
+        Class<? extends ScheduledTask> type = tasks.get(name);
+        if (type == null) {
+            throw new IOException("no task " + name + " in " + dir + ", known:" + tasks.keySet());
+        }
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("can not instantiate task " + name, e);
+        }
+    }
+
+    public Set<String> getTaskNames() {
+        return this.tasks.keySet();
+    }
+
+    public Path getDir() {
+        return this.dir;
+    }
+
+    /**
+     * close the class loaders; tasks still running keep the classes they loaded.
+     */
+    public void close() {
+        for (URLClassLoader loader : loaders) {
+            closeQuietly(loader);
+        }
+    }
+
+    private static void closeQuietly(URLClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            LOG.debug("can not close class loader:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * parent of the plugin class loaders: the platform classes and this package.
+     */
+    private static final class TaskApiClassLoader extends ClassLoader {
+        private final ClassLoader api;
+
+        private TaskApiClassLoader(ClassLoader api) {
+            // the extension loader on java 8, the platform loader later.
+            super(ClassLoader.getSystemClassLoader().getParent());
+            this.api = api;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith(API_PACKAGE)) {
+                return api.loadClass(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.CapturePolicy;
+import com.github.scheduler.model.CapturedOutput;
+import com.github.scheduler.model.OutputStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * a stream capture which never grows past its bound: the head is kept as it comes,
+ * then the last bytes roll through a fixed ring buffer. bytes falling out of the ring,
+ * or past it when a write is larger than the ring, are counted with their line ends.
+ *
+ * the head grows up to its size as the output arrives and the ring is only allocated
+ * once the head is full, so a short output costs what it is long.
+ */
+public class BoundedCapture extends OutputStream {
+    private static final int INITIAL_HEAD = 1024;
+    private static final int DRAIN_BUFFER = 8192;
+
+    private final int headSize;
+    private final int tailSize;
+    private byte[] head;
+    private int headCount;
+    private byte[] ring;
+    // next write position in the ring, and the number of valid bytes in it.
+    private int ringPos;
+    private int ringCount;
+    private long totalBytes;
+    private long totalLines;
+    private long droppedBytes;
+    private long droppedLines;
+
+    public BoundedCapture(CapturePolicy policy) {
+        this.headSize = policy.getHeadBytes();
+        this.tailSize = policy.getTailBytes();
+        this.head = new byte[Math.min(headSize, INITIAL_HEAD)];
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        totalBytes += len;
+        totalLines += countLines(b, off, len);
+
+        int toHead = Math.min(len, headSize - headCount);
+        if (toHead > 0) {
+            if (headCount + toHead > head.length) {
+                head = Arrays.copyOf(head, Math.min(headSize, Math.max(head.length * 2, headCount + toHead)));
+            }
+            System.arraycopy(b, off, head, headCount, toHead);
+            headCount += toHead;
+            off += toHead;
+            len -= toHead;
+        }
+        if (len == 0) {
+            return;
+        }
+
+        // what doesn't fit into the ring at all is dropped right away.
+        if (len > tailSize) {
+            int skip = len - tailSize;
+            drop(b, off, skip);
+            off += skip;
+            len -= skip;
+        }
+        if (len == 0) {
+            return;
+        }
+        if (ring == null) {
+            ring = new byte[tailSize];
+        }
+
+        // the oldest bytes of a full ring are overwritten.
+        int overwritten = Math.max(0, ringCount + len - tailSize);
+        if (overwritten > 0) {
+            int oldest = (ringPos - ringCount + tailSize) % tailSize;
+            int first = Math.min(overwritten, tailSize - oldest);
+            drop(ring, oldest, first);
+            drop(ring, 0, overwritten - first);
+            ringCount -= overwritten;
+        }
+        int first = Math.min(len, tailSize - ringPos);
+        System.arraycopy(b, off, ring, ringPos, first);
+        System.arraycopy(b, off + first, ring, 0, len - first);
+        ringPos = (ringPos + len) % tailSize;
+        ringCount += len;
+    }
+
+    private void drop(byte[] b, int off, int len) {
+        droppedBytes += len;
+        droppedLines += countLines(b, off, len);
+    }
+
+    private static int countLines(byte[] b, int off, int len) {
+        int lines = 0;
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * read the stream to its end into the capture.
+     */
+    public void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[DRAIN_BUFFER];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            write(buf, 0, n);
+        }
+    }
+
+    public OutputStats getStats() {
+        return new OutputStats(totalBytes, totalLines, droppedBytes, droppedLines);
+    }
+
+    /**
+     * the head, a line telling what was dropped if anything was, and the tail, as
+     * bytes decoded on demand. the tail may start within a line, or within a
+     * multi-byte character.
+     */
+    public CapturedOutput toCaptured(Charset charset) {
+        CapturedOutput captured = new CapturedOutput(charset);
+        captured.write(head, 0, headCount);
+        if (droppedBytes > 0) {
+            StringBuilder marker = new StringBuilder();
+            if (headCount > 0 && head[headCount - 1] != '\n') {
+                marker.append('\n');
+            }
+            marker.append("... [").append(droppedBytes).append(" bytes, ").append(droppedLines)
+                    .append(" lines dropped] ...\n");
+            byte[] bytes = marker.toString().getBytes(charset);
+            captured.write(bytes, 0, bytes.length);
+        }
+        if (ringCount > 0) {
+            int oldest = (ringPos - ringCount + tailSize) % tailSize;
+            int first = Math.min(ringCount, tailSize - oldest);
+            captured.write(ring, oldest, first);
+            captured.write(ring, 0, ringCount - first);
+        }
+        return captured;
+    }
+
+    public String toString(Charset charset) {
+        return toCaptured(charset).decode();
+    }
+
+    @Override
+    public String toString() {
+        return toString(Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.ResourceLimits;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a cgroup v2 directory delegated to the scheduler, under which every execution
+ * with {@link ResourceLimits} gets its own child cgroup (see {@link JobCgroup}).
+ *
+ * the slice is taken from the system property {@value #SLICE_PROPERTY}, e.g. a
+ * systemd unit with Delegate=yes. the scheduler process must not live in the slice
+ * itself, since cgroup v2 only lets leaf cgroups hold processes. without a usable
+ * slice jobs run without a cgroup.
+ */
+public class CgroupSlice {
+    private static final Logger LOG = LogManager.getLogger(CgroupSlice.class);
+
+    public static final String SLICE_PROPERTY = "tiny.scheduler.cgroup.slice";
+
+    private static final Set<String> CONTROLLERS = new HashSet<>(Arrays.asList("cpu", "memory", "io"));
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile CgroupSlice defaultSlice;
+    private static volatile boolean defaultResolved;
+
+    private final Path path;
+    private final Set<String> controllers;
+    private final AtomicLong counter = new AtomicLong(0);
+
+    private CgroupSlice(Path path, Set<String> controllers) {
+        this.path = path;
+        this.controllers = controllers;
+    }
+
+    /**
+     * open a delegated slice and enable the cpu, memory and io controllers for its children,
+     * as far as the parent delegates them.
+     * @param path directory of the slice in the cgroup v2 hierarchy.
+     * @throws IOException if the directory isn't a writable cgroup v2 directory.
+     */
+    public static CgroupSlice open(Path path) throws IOException {
+        Path controllersFile = path.resolve("cgroup.controllers");
+        if (!Files.isReadable(controllersFile) || !Files.isWritable(path)) {
+            throw new IOException("not a writable cgroup v2 directory:" + path);
+        }
+
+        Set<String> available = new HashSet<>(Arrays.asList(read(controllersFile).trim().split("\\s+")));
+        Set<String> enabled = new HashSet<>();
+        for (String controller : CONTROLLERS) {
+            if (!available.contains(controller)) {
+                continue;
+            }
+            try {
+                write(path.resolve("cgroup.subtree_control"), "+" + controller);
+                enabled.add(controller);
+            } catch (IOException e) {
+                LOG.warn("can not enable the {} controller in {}:{}", controller, path, e.getMessage());
+            }
+        }
+        if (!enabled.containsAll(CONTROLLERS)) {
+            LOG.warn("cgroup slice {} lacks controllers, limits on them are not applied, enabled:{}", path, enabled);
+        }
+        return new CgroupSlice(path, enabled);
+    }
+
+    /**
+     * the slice of the system property, null if it isn't set or not usable.
+     */
+    public static CgroupSlice getDefault() {
+        if (!defaultResolved) {
+            synchronized (DEFAULT_LOCK) {
+                if (!defaultResolved) {
+                    String slice = System.getProperty(SLICE_PROPERTY);
+                    if (slice != null && !slice.isEmpty()) {
+                        try {
+                            defaultSlice = open(Paths.get(slice));
+                        } catch (IOException e) {
+                            LOG.warn("cgroup slice not usable, jobs run without cgroups:{}", e.getMessage());
+                        }
+                    }
+                    defaultResolved = true;
+                }
+            }
+        }
+        return defaultSlice;
+    }
+
+    public static void setDefault(CgroupSlice slice) {
+        synchronized (DEFAULT_LOCK) {
+            defaultSlice = slice;
+            defaultResolved = true;
+        }
+    }
+
+    /**
+     * create the child cgroup of one execution and set its limits; a limit whose
+     * controller isn't available is skipped with a warning.
+     * @param jobName name of the job, part of the cgroup name.
+     * @param limits limits of the job.
+     * @return the cgroup, null if it can not be created.
+     */
+    public JobCgroup create(String jobName, ResourceLimits limits) {
+        String name = "job-" + System.currentTimeMillis() + "-" + counter.incrementAndGet() + "-" + sanitize(jobName);
+        Path dir = path.resolve(name);
+        try {
+            Files.createDirectory(dir);
+        } catch (IOException e) {
+            LOG.warn("can not create cgroup {}, running without it:{}", dir, e.getMessage());
+            return null;
+        }
+
+        StringBuilder applied = new StringBuilder();
+        if (limits.getCpuMax() > 0 && setLimit(dir, "cpu", "cpu.max", limits.cpuMaxValue())) {
+            applied.append("cpu.max=").append(limits.cpuMaxValue()).append(' ');
+        }
+        if (limits.getMemoryMaxBytes() > 0 && setLimit(dir, "memory", "memory.max", String.valueOf(limits.getMemoryMaxBytes()))) {
+            applied.append("memory.max=").append(limits.getMemoryMaxBytes()).append(' ');
+        }
+        for (String io : limits.getIoMax()) {
+            if (setLimit(dir, "io", "io.max", io)) {
+                applied.append("io.max=").append(io).append(' ');
+            }
+        }
+        return new JobCgroup(dir, applied.toString().trim());
+    }
+
+    private boolean setLimit(Path dir, String controller, String file, String value) {
+        if (!controllers.contains(controller)) {
+            LOG.warn("{} controller not enabled in {}, {} not applied", controller, path, file);
+            return false;
+        }
+        try {
+            write(dir.resolve(file), value);
+            return true;
+        } catch (IOException e) {
+            LOG.warn("can not set {} of {} to {}:{}", file, dir, value, e.getMessage());
+            return false;
+        }
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    private static String sanitize(String jobName) {
+        String name = jobName.replaceAll("[^A-Za-z0-9_.-]", "_");
+        return name.length() > 40 ? name.substring(0, 40) : name;
+    }
+
+    static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+    }
+
+    static void write(Path file, String value) throws IOException {
+        Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.scheduler.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a bounded pool of direct byte buffers in a few size classes, for output captured
+ * off the heap (see {@link PooledOutput}).
+ *
+ * each class keeps at most its share of the pool's bytes in an array backed queue,
+ * which neither allocates on offer nor on poll. a miss allocates a new direct buffer;
+ * a buffer given back to a full class is dropped and freed by the gc.
+ */
+public final class DirectBufferPool {
+    public static final int[] SIZE_CLASSES = {4 * 1024, 16 * 1024, 64 * 1024};
+
+    public static final long DEFAULT_MAX_POOLED_BYTES = 16L * 1024 * 1024;
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile DirectBufferPool defaultPool;
+
+    private final long maxPooledBytes;
+    private final ArrayBlockingQueue<ByteBuffer>[] classes;
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong returned = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong inUse = new AtomicLong(0);
+
+    /**
+     * @param maxPooledBytes bytes kept in the pool at most, shared equally by the size classes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DirectBufferPool(long maxPooledBytes) {
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("max pooled bytes must not be negative:" + maxPooledBytes);
+        }
+        this.maxPooledBytes = maxPooledBytes;
+        this.classes = new ArrayBlockingQueue[SIZE_CLASSES.length];
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            long perClass = maxPooledBytes / SIZE_CLASSES.length / SIZE_CLASSES[i];
+            classes[i] = new ArrayBlockingQueue<>((int) Math.max(1, Math.min(Integer.MAX_VALUE, perClass)));
+        }
+    }
+
+    /**
+     * the pool shared by all jobs capturing their output off the heap.
+     */
+    public static DirectBufferPool getDefault() {
+        if (defaultPool == null) {
+            synchronized (DEFAULT_LOCK) {
+                if (defaultPool == null) {
+                    defaultPool = new DirectBufferPool(DEFAULT_MAX_POOLED_BYTES);
+                }
+            }
+        }
+        return defaultPool;
+    }
+
+    public static void setDefault(DirectBufferPool pool) {
+        synchronized (DEFAULT_LOCK) {
+            defaultPool = Utils.checkNotNull(pool);
+        }
+    }
+
+    /**
+     * a cleared buffer of the smallest class holding minSize bytes, the largest class at most.
+     */
+    public ByteBuffer acquire(int minSize) {
+        int c = sizeClass(minSize);
+        ByteBuffer buffer = classes[c].poll();
+        if (buffer != null) {
+            hits.incrementAndGet();
+            buffer.clear();
+        } else {
+            misses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(SIZE_CLASSES[c]);
+        }
+        inUse.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * give a buffer of this pool back; it must not be used any more.
+     */
+    public void release(ByteBuffer buffer) {
+        inUse.decrementAndGet();
+        int c = sizeClass(buffer.capacity());
+        if (buffer.capacity() == SIZE_CLASSES[c] && classes[c].offer(buffer)) {
+            returned.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static int sizeClass(int size) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (size <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return SIZE_CLASSES.length - 1;
+    }
+
+    public long getMaxPooledBytes() {
+        return this.maxPooledBytes;
+    }
+
+    /**
+     * acquisitions served from the pool.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * acquisitions which allocated a new buffer.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * releases which were pooled.
+     */
+    public long getReturnedCount() {
+        return returned.get();
+    }
+
+    /**
+     * releases which were dropped since their class was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * buffers acquired and not released yet, including those never released but collected.
+     */
+    public long getInUseCount() {
+        return inUse.get();
+    }
+
+    /**
+     * buffers sitting in the pool.
+     */
+    public int getPooledCount() {
+        int count = 0;
+        for (ArrayBlockingQueue<ByteBuffer> c : classes) {
+            count += c.size();
+        }
+        return count;
+    }
+
+    /**
+     * bytes sitting in the pool.
+     */
+    public long getPooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < classes.length; i++) {
+            bytes += (long) classes[i].size() * SIZE_CLASSES[i];
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHitCount() + " misses=" + getMissCount() + " returned=" + getReturnedCount() +
+                " dropped=" + getDroppedCount() + " in use=" + getInUseCount() +
+                " pooled=" + getPooledCount() + "(" + getPooledBytes() + " bytes)";
+    }
+}
@@ -5,9 +5,8 @@ import java.util.concurrent.*;
 public class ExecutorServiceUtil {
     /**
      * Helper method to submit the callabale task, gets the original future object, and wrap it
-     * in another future object with the ability to decorate the {@link Future#cancel(boolean)} method;
-     * this decorator will block when future cancellation is invoked (and the "mayInterruptIfRunning"
-     * parameter is set to true).
+     * in another future object which tracks the execution state of the task; callers which need
+     * to wait for a cancelled task to stop running can use {@link CallableTaskWrapper#waitTillDone()}.
      *
      * @param service the executor service
      * @param callable a callable task
@@ -38,7 +37,7 @@ public class ExecutorServiceUtil {
         // Wrap the original callable object
         CallableTaskWrapper<T> wrapper = new CallableTaskWrapper<T>(callable);
         // Submit the wrapper object and set the original future object within the wrapper
-        wrapper.setFuture(service.schedule(callable,delay,timeUnit));
+        wrapper.setFuture(service.schedule(wrapper,delay,timeUnit));
 
         return wrapper;
     }
@@ -110,27 +109,15 @@ public class ExecutorServiceUtil {
         }
 
         /**
-         * This method will block waiting if the callbale thread is still executing and the "mayInterruptIfRunning"
-         * flag is set; this method will return when:
-         * <ul>
-         * <li>The callbale thread is done executing</li>
-         * <li>The current thread got interrupted; no exception will be thrown and instead the interrupted flag will
-         * be set</li>
-         * </ul>
+         * This method never blocks; when the "mayInterruptIfRunning" flag is set the callable thread is
+         * interrupted and may still be executing when this method returns, use {@link #waitTillDone()}
+         * to wait for it.
          *
          * @see {@link Future#cancel(boolean)}
          */
         @Override
         public boolean cancel(boolean mayInterruptIfRunning) {
-            try {
-                return future.cancel(mayInterruptIfRunning);
-            } finally {
-                // If this thread wishes immediate completion of the task and was interrupted (because it was still running),
-                // then block this thread till the callable task is done executing.
-                if (mayInterruptIfRunning) {
-                    waitTillDone();
-                }
-            }
+            return future.cancel(mayInterruptIfRunning);
         }
 
         /** {@inheritDoc} */
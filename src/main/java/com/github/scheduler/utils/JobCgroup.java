@@ -0,0 +1,146 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.ResourceUsage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * the child cgroup of one execution, created by {@link CgroupSlice#create}.
+ *
+ * the command enters the cgroup itself before it execs (see {@link #wrap(String[])}),
+ * so everything it forks is accounted and limited from the first instruction on.
+ */
+public class JobCgroup {
+    private static final Logger LOG = LogManager.getLogger(JobCgroup.class);
+
+    // rmdir of a cgroup whose killed processes are still exiting is retried this many times.
+    private static final int REMOVE_ATTEMPTS = 20;
+
+    private final Path path;
+    private final String appliedLimits;
+
+    JobCgroup(Path path, String appliedLimits) {
+        this.path = path;
+        this.appliedLimits = appliedLimits;
+    }
+
+    /**
+     * the command prefixed by a shell moving itself into the cgroup, then exec'ing the command.
+     */
+    public String[] wrap(String[] command) {
+        String[] wrapped = new String[command.length + 4];
+        wrapped[0] = "sh";
+        wrapped[1] = "-c";
+        wrapped[2] = "echo $$ > \"$0\" && exec \"$@\"";
+        wrapped[3] = path.resolve("cgroup.procs").toString();
+        System.arraycopy(command, 0, wrapped, 4, command.length);
+        return wrapped;
+    }
+
+    /**
+     * usage of the execution so far, read from cpu.stat, memory.peak and io.stat.
+     */
+    public ResourceUsage readUsage() {
+        ResourceUsage usage = new ResourceUsage();
+        usage.setAppliedLimits(appliedLimits);
+
+        String cpuStat = readQuietly("cpu.stat");
+        if (cpuStat != null) {
+            for (String line : cpuStat.split("\n")) {
+                String[] kv = line.trim().split("\\s+");
+                if (kv.length != 2) {
+                    continue;
+                }
+                long value = Long.parseLong(kv[1]);
+                switch (kv[0]) {
+                    case "usage_usec":
+                        usage.setCpuUsageMicros(value);
+                        break;
+                    case "user_usec":
+                        usage.setCpuUserMicros(value);
+                        break;
+                    case "system_usec":
+                        usage.setCpuSystemMicros(value);
+                        break;
+                    case "throttled_usec":
+                        usage.setCpuThrottledMicros(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        String memoryPeak = readQuietly("memory.peak");
+        if (memoryPeak != null) {
+            usage.setMemoryPeakBytes(Long.parseLong(memoryPeak.trim()));
+        }
+
+        // e.g. "8:0 rbytes=1459200 wbytes=314773504 rios=192 wios=353 dbytes=0 dios=0", one line per device.
+        String ioStat = readQuietly("io.stat");
+        if (ioStat != null) {
+            long read = 0;
+            long written = 0;
+            for (String line : ioStat.split("\n")) {
+                for (String field : line.trim().split("\\s+")) {
+                    if (field.startsWith("rbytes=")) {
+                        read += Long.parseLong(field.substring("rbytes=".length()));
+                    } else if (field.startsWith("wbytes=")) {
+                        written += Long.parseLong(field.substring("wbytes=".length()));
+                    }
+                }
+            }
+            usage.setIoReadBytes(read);
+            usage.setIoWriteBytes(written);
+        }
+        return usage;
+    }
+
+    /**
+     * kill what is left in the cgroup and remove it.
+     */
+    public void remove() {
+        if (Files.exists(path.resolve("cgroup.kill")) && isPopulated()) {
+            try {
+                CgroupSlice.write(path.resolve("cgroup.kill"), "1");
+            } catch (IOException e) {
+                LOG.warn("can not kill the processes left in {}:{}", path, e.getMessage());
+            }
+        }
+        for (int i = 0; i < REMOVE_ATTEMPTS; i++) {
+            try {
+                Files.delete(path);
+                return;
+            } catch (IOException e) {
+                Utils.sleepQuietly(10);
+            }
+        }
+        LOG.warn("can not remove cgroup {}, processes are still alive in it", path);
+    }
+
+    private boolean isPopulated() {
+        String events = readQuietly("cgroup.events");
+        return events == null || events.contains("populated 1");
+    }
+
+    private String readQuietly(String file) {
+        Path p = path.resolve(file);
+        if (!Files.isReadable(p)) {
+            return null;
+        }
+        try {
+            return CgroupSlice.read(p);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("can not read {}:{}", p, e.getMessage());
+            return null;
+        }
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.scheduler.utils;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * the ways the jdk starts child processes on unix, chosen by the system property
+ * {@value #PROPERTY}.
+ *
+ * POSIX_SPAWN starts the child through the jspawnhelper executable, VFORK shares the
+ * parent's address space until the exec, FORK copies the page tables of the whole jvm
+ * first, which gets slower the larger the heap is. the jdk reads the property once,
+ * when the first process is started, and fails every launch on a value the platform
+ * doesn't support, so {@link #apply()} checks the value and has to run before
+ * anything starts a process.
+ */
+public enum LaunchMechanism {
+    POSIX_SPAWN,
+    VFORK,
+    FORK;
+
+    public static final String PROPERTY = "jdk.lang.Process.launchMechanism";
+
+    /**
+     * @return true if the running jdk can launch processes this way.
+     */
+    public boolean isSupported() {
+        return supported().contains(this);
+    }
+
+    /**
+     * make the jdk launch every process of this jvm this way.
+     * @throws UnsupportedOperationException if the running jdk doesn't support it.
+     */
+    public void apply() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(name().toLowerCase(Locale.ENGLISH) +
+                    " is not supported on this platform, supported:" + supported());
+        }
+        System.setProperty(PROPERTY, name());
+    }
+
+    /**
+     * @param name mechanism name, case insensitive, e.g. "posix_spawn".
+     * @throws IllegalArgumentException if there is no such mechanism.
+     */
+    public static LaunchMechanism of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * the mechanism processes are launched with: the one set by the property, else the jdk's default.
+     * @return the mechanism, null on windows where processes are always created by CreateProcess.
+     */
+    public static LaunchMechanism current() {
+        if (Utils.WINDOWS) {
+            return null;
+        }
+        String property = System.getProperty(PROPERTY);
+        if (property != null) {
+            try {
+                return of(property);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        // linux launched by vfork until jdk 12 switched the default to posix_spawn.
+        if (Utils.LINUX && javaVersion() < 12) {
+            return VFORK;
+        }
+        return POSIX_SPAWN;
+    }
+
+    /**
+     * mechanisms the running jdk supports.
+     */
+    public static Set<LaunchMechanism> supported() {
+        if (Utils.WINDOWS) {
+            return EnumSet.noneOf(LaunchMechanism.class);
+        }
+        if (Utils.LINUX) {
+            // posix_spawn came to linux with jdk 9.
+            return javaVersion() < 9 ? EnumSet.of(VFORK, FORK) : EnumSet.allOf(LaunchMechanism.class);
+        }
+        // mac os and aix have no vfork launch.
+        return EnumSet.of(POSIX_SPAWN, FORK);
+    }
+
+    // the feature release, 8 for "1.8".
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+}
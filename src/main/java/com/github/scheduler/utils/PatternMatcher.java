@@ -0,0 +1,306 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.OutputListener;
+import com.github.scheduler.model.OutputMatches;
+import com.github.scheduler.model.OutputPatterns;
+import com.github.scheduler.model.PatternMatch;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * the {@link OutputPatterns} of a job compiled into one aho-corasick automaton over bytes,
+ * which finds all patterns in a single pass: every byte read costs a table lookup, however
+ * many patterns there are, and the output is never buffered or decoded for the search.
+ *
+ * bytes are mapped to the classes of the bytes occurring in the patterns plus one for all
+ * others, and the automaton is completed into a table of states times classes, so a scan
+ * never follows failure links. the matcher is immutable and shared by the runs of a job,
+ * each run scans with a {@link Scan} of its own.
+ */
+public final class PatternMatcher {
+    private final OutputPatterns patterns;
+    private final Charset charset;
+    private final int[] keyLengths;
+    // byte to its class, ascii letters folded into one class if case is ignored.
+    private final int[] classOf = new int[256];
+    private final int classes;
+    // next state by state * classes + class.
+    private final int[] delta;
+    // patterns ending in a state, those of its failure states included, null for none.
+    private final int[][] accepts;
+
+    public PatternMatcher(OutputPatterns patterns, Charset charset) {
+        this.patterns = patterns;
+        this.charset = charset;
+        List<String> keys = patterns.getPatterns();
+        byte[][] bytes = new byte[keys.size()][];
+        keyLengths = new int[keys.size()];
+        int maxStates = 1;
+        for (int p = 0; p < bytes.length; p++) {
+            bytes[p] = keys.get(p).getBytes(charset);
+            keyLengths[p] = bytes[p].length;
+            maxStates += bytes[p].length;
+        }
+
+        int next = 1;
+        for (byte[] key : bytes) {
+            for (byte b : key) {
+                int c = fold(b & 0xff);
+                if (classOf[c] == 0) {
+                    classOf[c] = next++;
+                }
+            }
+        }
+        if (patterns.isIgnoreCase()) {
+            for (int c = 'A'; c <= 'Z'; c++) {
+                classOf[c] = classOf[c + ('a' - 'A')];
+            }
+        }
+        classes = next;
+
+        // the trie, 0 standing for a missing edge as no edge leads back to the root.
+        int[] table = new int[maxStates * classes];
+        int[][] found = new int[maxStates][];
+        int states = 1;
+        for (int p = 0; p < bytes.length; p++) {
+            int s = 0;
+            for (byte b : bytes[p]) {
+                int edge = s * classes + classOf[b & 0xff];
+                if (table[edge] == 0) {
+                    table[edge] = states++;
+                }
+                s = table[edge];
+            }
+            found[s] = append(found[s], new int[]{p});
+        }
+
+        // breadth first, the failure state of a state is shallower and complete already.
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < classes; c++) {
+            if (table[c] != 0) {
+                queue[tail++] = table[c];
+            }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            found[s] = append(found[s], found[fail[s]]);
+            for (int c = 0; c < classes; c++) {
+                int edge = s * classes + c;
+                if (table[edge] != 0) {
+                    fail[table[edge]] = table[fail[s] * classes + c];
+                    queue[tail++] = table[edge];
+                } else {
+                    table[edge] = table[fail[s] * classes + c];
+                }
+            }
+        }
+        delta = Arrays.copyOf(table, states * classes);
+        accepts = Arrays.copyOf(found, states);
+    }
+
+    private int fold(int b) {
+        return patterns.isIgnoreCase() && b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    private static int[] append(int[] a, int[] b) {
+        if (b == null) {
+            return a;
+        }
+        if (a == null) {
+            return b;
+        }
+        int[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return all;
+    }
+
+    public OutputPatterns getPatterns() {
+        return this.patterns;
+    }
+
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    /**
+     * states of the automaton, its table takes this times the byte classes in ints.
+     */
+    public int getStateCount() {
+        return accepts.length;
+    }
+
+    public Scan newScan() {
+        return new Scan();
+    }
+
+    /**
+     * the scan of one run, a {@link StreamScan} for each stream.
+     */
+    public final class Scan {
+        private final StreamScan[] streams = new StreamScan[OutputListener.Stream.values().length];
+
+        private Scan() {
+            for (int i = 0; i < streams.length; i++) {
+                streams[i] = new StreamScan();
+            }
+        }
+
+        public StreamScan stream(OutputListener.Stream stream) {
+            return streams[stream.ordinal()];
+        }
+
+        /**
+         * @return true if only the matches are kept of the scanned output.
+         */
+        public boolean isDiscardOutput() {
+            return patterns.isDiscardOutput();
+        }
+
+        /**
+         * what matched, once both streams are scanned to their end.
+         */
+        public OutputMatches result() {
+            StreamScan out = stream(OutputListener.Stream.STDOUT);
+            StreamScan err = stream(OutputListener.Stream.STDERR);
+            List<PatternMatch> matches = new ArrayList<>();
+            for (int p = 0; p < keyLengths.length; p++) {
+                long count = out.counts[p] + err.counts[p];
+                if (count == 0) {
+                    continue;
+                }
+                List<String> samples = new ArrayList<>(out.samples(p));
+                for (String sample : err.samples(p)) {
+                    if (samples.size() < patterns.getMaxSamples()) {
+                        samples.add(sample);
+                    }
+                }
+                matches.add(new PatternMatch(patterns.getPatterns().get(p), count, out.first[p], err.first[p], samples));
+            }
+            return new OutputMatches(matches);
+        }
+    }
+
+    /**
+     * the scan of one stream, fed by the thread reading it.
+     *
+     * lines are only kept for samples: the part of the current line read before the
+     * buffer at hand is carried over, bounded by the sample size, and a line is decoded
+     * when it ends with a match in it for a pattern short of samples.
+     */
+    public final class StreamScan {
+        private final long[] counts = new long[keyLengths.length];
+        private final long[] first = new long[keyLengths.length];
+        private List<String>[] samples;
+        // patterns matched in the current line which want it as a sample.
+        private final boolean[] pending = new boolean[keyLengths.length];
+        private final int[] pendingList = new int[keyLengths.length];
+        private int pendingCount;
+        private byte[] carry;
+        private int carryLength;
+        private int state;
+        private long position;
+
+        private StreamScan() {
+            Arrays.fill(first, -1L);
+        }
+
+        public void write(byte[] data, int offset, int length) {
+            int[] delta = PatternMatcher.this.delta;
+            int[] classOf = PatternMatcher.this.classOf;
+            int classes = PatternMatcher.this.classes;
+            int s = state;
+            int end = offset + length;
+            int lineStart = offset;
+            for (int i = offset; i < end; i++) {
+                int b = data[i] & 0xff;
+                s = delta[s * classes + classOf[b]];
+                if (accepts[s] != null) {
+                    match(accepts[s], position + i - offset);
+                }
+                if (b == '\n') {
+                    if (pendingCount > 0) {
+                        sample(data, lineStart, i);
+                    }
+                    carryLength = 0;
+                    lineStart = i + 1;
+                }
+            }
+            state = s;
+            position += length;
+            carry(data, lineStart, end);
+        }
+
+        /**
+         * the stream ended, a last line without line end may still be a sample.
+         */
+        public void end() {
+            if (pendingCount > 0) {
+                sample(null, 0, 0);
+            }
+        }
+
+        private void match(int[] found, long endOffset) {
+            for (int p : found) {
+                counts[p]++;
+                if (first[p] < 0) {
+                    first[p] = endOffset - keyLengths[p] + 1;
+                }
+                if (!pending[p] && samples(p).size() < patterns.getMaxSamples()) {
+                    pending[p] = true;
+                    pendingList[pendingCount++] = p;
+                }
+            }
+        }
+
+        private void carry(byte[] data, int from, int to) {
+            int n = Math.min(to - from, patterns.getMaxSampleBytes() - carryLength);
+            if (n <= 0) {
+                return;
+            }
+            if (carry == null) {
+                carry = new byte[patterns.getMaxSampleBytes()];
+            }
+            System.arraycopy(data, from, carry, carryLength, n);
+            carryLength += n;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private List<String> samples(int p) {
+            if (samples == null) {
+                samples = new List[keyLengths.length];
+            }
+            if (samples[p] == null) {
+                samples[p] = new ArrayList<>(1);
+            }
+            return samples[p];
+        }
+
+        private void sample(byte[] data, int from, int to) {
+            int length = Math.min(carryLength + to - from, patterns.getMaxSampleBytes());
+            byte[] line = new byte[length];
+            int n = Math.min(carryLength, length);
+            if (n > 0) {
+                System.arraycopy(carry, 0, line, 0, n);
+            }
+            if (length > n) {
+                System.arraycopy(data, from, line, n, length - n);
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            String text = new String(line, 0, length, charset);
+            for (int i = 0; i < pendingCount; i++) {
+                int p = pendingList[i];
+                samples(p).add(text);
+                pending[p] = false;
+            }
+            pendingCount = 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.CapturedOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a captured stream held in direct buffers of a {@link DirectBufferPool}. segments grow
+ * through the pool's size classes; {@link #release()} gives them back, after which the
+ * output can't be read any more.
+ */
+public class PooledOutput extends CapturedOutput {
+    private final DirectBufferPool pool;
+    private final List<ByteBuffer> segments = new ArrayList<>(4);
+    private long size;
+    private boolean released;
+
+    public PooledOutput(DirectBufferPool pool, Charset charset) {
+        super(charset);
+        this.pool = pool;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        checkNotReleased();
+        size += len;
+        while (len > 0) {
+            ByteBuffer last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last == null || !last.hasRemaining()) {
+                int next = last == null ? DirectBufferPool.SIZE_CLASSES[0] : last.capacity() * 2;
+                last = pool.acquire(next);
+                segments.add(last);
+            }
+            int n = Math.min(len, last.remaining());
+            last.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public synchronized long size() {
+        return this.size;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized byte[] toByteArray() {
+        checkNotReleased();
+        byte[] bytes = new byte[(int) size];
+        int pos = 0;
+        for (ByteBuffer segment : segments) {
+            ByteBuffer view = (ByteBuffer) segment.duplicate().flip();
+            int n = view.remaining();
+            view.get(bytes, pos, n);
+            pos += n;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        checkNotReleased();
+        byte[] chunk = new byte[DirectBufferPool.SIZE_CLASSES[0]];
+        for (ByteBuffer segment : segments) {
+            ByteBuffer view = (ByteBuffer) segment.duplicate().flip();
+            while (view.hasRemaining()) {
+                int n = Math.min(chunk.length, view.remaining());
+                view.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String decode() {
+        checkNotReleased();
+        if (segments.size() == 1) {
+            return getCharset().decode((ByteBuffer) segments.get(0).duplicate().flip()).toString();
+        }
+        return new String(toByteArray(), getCharset());
+    }
+
+    /**
+     * give the segments back to the pool. the output is empty and unreadable afterwards.
+     */
+    @Override
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (ByteBuffer segment : segments) {
+            pool.release(segment);
+        }
+        segments.clear();
+    }
+
+    public synchronized boolean isReleased() {
+        return this.released;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("captured output was released to its pool");
+        }
+    }
+}
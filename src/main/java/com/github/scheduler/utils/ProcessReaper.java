@@ -0,0 +1,139 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * optional supervision of child processes by one epoll thread on linux.
+ *
+ * the reaper takes a pidfd of every child and the read ends of pipes the child
+ * writes its stdout/stderr into, and waits on all of them in a single epoll loop,
+ * so commands need neither a thread blocked in waitFor() nor stream drain threads.
+ * the children write to the pipes through /proc/self/fd/N, which ProcessBuilder
+ * opens as an ordinary redirect file.
+ *
+ * the implementation calls libc through the foreign function and memory API. it
+ * lives in src/main/java22 and is only compiled by the jdk22 build profile
+ * (mvn -Pjdk22 package); it is used once enabled by {@link #setEnabled(boolean)} or
+ * the system property {@value #REAPER_PROPERTY}=epoll. otherwise, on older runtimes
+ * or kernels without pidfd_open (before 5.3), shells keep their stream threads.
+ */
+public final class ProcessReaper {
+    private static final Logger LOG = LogManager.getLogger(ProcessReaper.class);
+
+    public static final String REAPER_PROPERTY = "tiny.scheduler.reaper";
+
+    private static final String SUPPORT_CLASS = "com.github.scheduler.utils.EpollReaper";
+
+    private static final Support SUPPORT = Utils.LINUX ? loadSupport() : null;
+
+    private static volatile boolean enabled = "epoll".equals(System.getProperty(REAPER_PROPERTY));
+
+    /**
+     * operations implemented on top of the java 22 foreign function API.
+     */
+    public interface Support {
+        /**
+         * @return a pipe {read fd, write fd}, the read end non-blocking; both close on exec.
+         */
+        int[] pipe() throws IOException;
+
+        void close(int fd);
+
+        /**
+         * watch the exit of the process and the read ends of its pipes.
+         * @param readFds read ends, owned by the reaper from now on, -1 to skip.
+         * @throws IOException if the process can not be watched.
+         */
+        void watch(Process process, long pid, int[] readFds, Watcher watcher) throws IOException;
+
+        /**
+         * number of processes watched right now.
+         */
+        int getWatchedCount();
+    }
+
+    /**
+     * events of a watched process, called on the reaper thread; they must not block.
+     */
+    public interface Watcher {
+        /**
+         * data read from a pipe.
+         * @param stream index of the pipe in the read fds.
+         */
+        void onData(int stream, byte[] data, int length);
+
+        /**
+         * a pipe reached its end, its fd is closed.
+         */
+        void onEof(int stream);
+
+        /**
+         * the process exited.
+         */
+        void onExit();
+    }
+
+    // no instance.
+    private ProcessReaper(){}
+
+    private static Support loadSupport() {
+        try {
+            return (Support) Class.forName(SUPPORT_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Throwable t) {
+            LOG.warn("epoll process reaper not available: {}", t.toString());
+            return null;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return SUPPORT != null;
+    }
+
+    /**
+     * @return true if shells hand their children to the reaper.
+     */
+    public static boolean isEnabled() {
+        return enabled && SUPPORT != null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the reaper is not available.
+     */
+    public static void setEnabled(boolean enable) {
+        if (enable && SUPPORT == null) {
+            throw new UnsupportedOperationException("epoll process reaper needs a jdk22 build running on java 22+ and linux 5.3+");
+        }
+        enabled = enable;
+    }
+
+    static int[] pipe() throws IOException {
+        return support().pipe();
+    }
+
+    static void close(int fd) {
+        support().close(fd);
+    }
+
+    static void watch(Process process, long pid, int[] readFds, Watcher watcher) throws IOException {
+        support().watch(process, pid, readFds, watcher);
+    }
+
+    /**
+     * number of processes watched right now, 0 if the reaper is not available.
+     */
+    public static int getWatchedCount() {
+        return SUPPORT == null ? 0 : SUPPORT.getWatchedCount();
+    }
+
+    private static Support support() {
+        if (SUPPORT == null) {
+            throw new UnsupportedOperationException("epoll process reaper not available");
+        }
+        return SUPPORT;
+    }
+}
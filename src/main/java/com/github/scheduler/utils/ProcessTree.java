@@ -0,0 +1,263 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * pids of child processes and their descendants, and signals to them.
+ *
+ * java 8 has no api for either, so the pid is read reflectively (Process.pid() on
+ * java 9+, the pid field of the unix process implementation before), descendants
+ * are found by the parent pids in /proc/[pid]/stat and signals are sent by kill(1).
+ * everything degrades to "unknown"/false where the platform doesn't support it.
+ */
+public final class ProcessTree {
+    private static final Logger LOG = LogManager.getLogger(ProcessTree.class);
+
+    private static final Path PROC = Paths.get("/proc");
+
+    private ProcessTree() {
+    }
+
+    /**
+     * @return pid of the process, -1 if it can not be determined.
+     */
+    public static long pid(Process process) {
+        if (process == null) {
+            return -1;
+        }
+        try {
+            Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (NoSuchMethodException e) {
+            // java 8.
+        } catch (Exception e) {
+            return -1;
+        }
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * pids of all descendants of the process, children before grandchildren.
+     * empty if /proc is not available.
+     */
+    public static List<Long> descendants(long pid) {
+        if (pid <= 0) {
+            return new ArrayList<>();
+        }
+        return snapshot().descendants(Collections.singleton(pid));
+    }
+
+    /**
+     * pids of the live processes of a process group, including orphans reparented away from the leader.
+     */
+    public static List<Long> groupMembers(long pgid) {
+        return snapshot().groupMembers(pgid);
+    }
+
+    /**
+     * read the processes of the host once, to look up several trees and groups in it.
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot(readStats());
+    }
+
+    /**
+     * @return true if the process exists and is not a zombie waiting to be reaped.
+     */
+    public static boolean isAlive(long pid) {
+        long[] stat = readStat(PROC.resolve(String.valueOf(pid)).resolve("stat"));
+        return stat != null && stat[3] != 'Z';
+    }
+
+    /**
+     * @return true if the process group has a process, zombies included, as told by kill -0.
+     */
+    public static boolean groupExists(long pgid) {
+        return pgid > 0 && signal("0", Collections.singletonList(-pgid));
+    }
+
+    /**
+     * the process and all its descendants, the process first.
+     */
+    public static List<Long> tree(long pid) {
+        List<Long> pids = new ArrayList<>();
+        pids.add(pid);
+        pids.addAll(descendants(pid));
+        return pids;
+    }
+
+    /**
+     * send a signal to processes.
+     * @param signal signal name without the SIG prefix, e.g. STOP.
+     * @param pids target processes, negative for process groups.
+     * @return true if kill(1) signalled every process.
+     */
+    public static boolean signal(String signal, Collection<Long> pids) {
+        if (Utils.WINDOWS || pids.isEmpty()) {
+            return false;
+        }
+        List<String> cmd = new ArrayList<>(pids.size() + 3);
+        cmd.add("kill");
+        cmd.add("-" + signal);
+        // a negative pid is a process group.
+        cmd.add("--");
+        for (Long pid : pids) {
+            cmd.add(String.valueOf(pid));
+        }
+        try {
+            Process kill = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            try (InputStream in = kill.getInputStream()) {
+                byte[] buf = new byte[256];
+                while (in.read(buf) != -1) {
+                    // a process which exited in the meantime is reported here, nothing to do.
+                }
+            }
+            return kill.waitFor() == 0;
+        } catch (IOException e) {
+            LOG.warn("can not send SIG{} to {}:{}", signal, pids, e.getMessage());
+            return false;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * the processes of the host as read from /proc at one time, empty if it is not available.
+     */
+    public static final class Snapshot {
+        private final List<long[]> stats;
+        private final Map<Long, List<Long>> children = new HashMap<>();
+        private final Map<Long, long[]> byPid = new HashMap<>();
+
+        private Snapshot(List<long[]> stats) {
+            this.stats = stats;
+            for (long[] stat : stats) {
+                byPid.put(stat[0], stat);
+                List<Long> list = children.get(stat[1]);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    children.put(stat[1], list);
+                }
+                list.add(stat[0]);
+            }
+        }
+
+        /**
+         * pids of all descendants of the processes which are not among them, children
+         * before grandchildren.
+         */
+        public List<Long> descendants(Collection<Long> pids) {
+            Set<Long> seen = new HashSet<>(pids);
+            List<Long> descendants = new ArrayList<>();
+            Deque<Long> toVisit = new ArrayDeque<>(pids);
+            while (!toVisit.isEmpty()) {
+                List<Long> list = children.get(toVisit.poll());
+                if (list == null) {
+                    continue;
+                }
+                for (Long child : list) {
+                    if (seen.add(child)) {
+                        descendants.add(child);
+                        toVisit.add(child);
+                    }
+                }
+            }
+            return descendants;
+        }
+
+        /**
+         * like {@link ProcessTree#groupMembers(long)}.
+         */
+        public List<Long> groupMembers(long pgid) {
+            List<Long> members = new ArrayList<>();
+            for (long[] stat : stats) {
+                if (stat[2] == pgid && stat[3] != 'Z') {
+                    members.add(stat[0]);
+                }
+            }
+            return members;
+        }
+
+        /**
+         * like {@link ProcessTree#isAlive(long)} at the time of the snapshot.
+         */
+        public boolean isAlive(long pid) {
+            long[] stat = byPid.get(pid);
+            return stat != null && stat[3] != 'Z';
+        }
+
+        /**
+         * start time of the process in clock ticks after boot, -1 if it doesn't exist.
+         * a pid with another start time than before was reused by another process.
+         */
+        public long startTime(long pid) {
+            long[] stat = byPid.get(pid);
+            return stat == null ? -1 : stat[4];
+        }
+
+        /**
+         * @return the process group of the process, -1 if it doesn't exist.
+         */
+        public long group(long pid) {
+            long[] stat = byPid.get(pid);
+            return stat == null ? -1 : stat[2];
+        }
+    }
+
+    /**
+     * pid, parent pid, process group, state and start time of every process, empty if /proc is not available.
+     */
+    private static List<long[]> readStats() {
+        List<long[]> stats = new ArrayList<>();
+        if (!Utils.LINUX) {
+            return stats;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(PROC, "[0-9]*")) {
+            for (Path dir : dirs) {
+                long[] stat = readStat(dir.resolve("stat"));
+                if (stat != null) {
+                    stats.add(stat);
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("can not list {}:{}", PROC, e.getMessage());
+        }
+        return stats;
+    }
+
+    /**
+     * pid, parent pid, process group, state and start time from a /proc/[pid]/stat file, null if the process is gone.
+     */
+    private static long[] readStat(Path stat) {
+        try {
+            String content = new String(Files.readAllBytes(stat), StandardCharsets.US_ASCII);
+            // "pid (comm) state ppid pgrp ... starttime ...", comm may contain spaces and parentheses,
+            // the start time is field 22 counting pid as 1.
+            String[] fields = content.substring(content.lastIndexOf(')') + 2).split(" ");
+            long pid = Long.parseLong(content.substring(0, content.indexOf(' ')));
+            return new long[]{pid, Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[0].charAt(0),
+                    Long.parseLong(fields[19])};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,12 +1,31 @@
 package com.github.scheduler.utils;
 
+import com.github.scheduler.model.CapturePolicy;
+import com.github.scheduler.model.CapturedOutput;
+import com.github.scheduler.model.JobOutput;
+import com.github.scheduler.model.OutputListener;
+import com.github.scheduler.model.OutputMatches;
+import com.github.scheduler.model.OutputPatterns;
+import com.github.scheduler.model.OutputStats;
+import com.github.scheduler.model.ProcessSettings;
+import com.github.scheduler.model.ResourceLimits;
+import com.github.scheduler.model.ResourceUsage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author yusheng
@@ -37,13 +56,75 @@ public abstract class Shell {
     private Map<String, String> environment;
 
     // sub process used to execute the command.
-    private Process process;
+    private volatile Process process;
 
     // exit code.
     private int exitCode;
 
     private Thread waitingThread;
 
+    // affinity, nice, io class and scheduling policy applied at launch, null for none.
+    private ProcessSettings processSettings;
+
+    // the settings which the last launch actually applied.
+    private String effectiveProcessSettings = "";
+
+    // the launch command of the current command and process settings, see launchCommand().
+    private LaunchTemplate launchTemplate;
+
+    // directory the command writes its output files into, null to capture the output in memory.
+    private File spoolDirectory;
+
+    // output files of the last run, null if it was not spooled.
+    private JobOutput outputSpool;
+    private JobOutput errorSpool;
+
+    // bound of the captured output, null to capture all of it.
+    private CapturePolicy capturePolicy;
+
+    // pool of the direct buffers the output is captured in, null to capture it on the heap.
+    private DirectBufferPool bufferPool;
+
+    // read buffer of the stream draining threads, reused by their runs.
+    private static final ThreadLocal<byte[]> DRAIN_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+
+    // receives the output while the command runs, null for none.
+    private OutputListener outputListener;
+
+    // the listener stopped the last run.
+    private volatile boolean stoppedByListener;
+
+    // patterns the output of the following runs is scanned for, null for none.
+    private OutputPatterns outputPatterns;
+
+    // the patterns compiled, kept while they and the charset don't change.
+    private PatternMatcher patternMatcher;
+
+    // what the patterns matched in the last run, null if it had none or was spooled.
+    private OutputMatches outputMatches;
+
+    // what the last run wrote and a bounded capture dropped, null if its capture was unbounded.
+    private OutputStats outputStats;
+    private OutputStats errorStats;
+
+    // the builder of every launch, holding the final environment and directory; null until the first launch.
+    private ProcessBuilder launchBuilder;
+    private boolean launchBuilderInheritsEnv;
+
+    // cgroup limits of the launched command, null to run it without a cgroup of its own.
+    private ResourceLimits resourceLimits;
+
+    // usage of the last launch read from its cgroup, null if it had none.
+    private ResourceUsage resourceUsage;
+
+    // availability of the launch prefix tools by name.
+    private static final Map<String, Boolean> availableTools = new ConcurrentHashMap<>();
+
     // indicates if the parent env vars should be inherited or not
     protected boolean inheritParentEnv = true;
 
@@ -52,15 +133,62 @@ public abstract class Shell {
     // after timeOutInterval milliseconds which the executing script would be timed out.
     protected long timeOutInterval = 0L;
 
+    // timeout of the running command, suspended while it is paused; null if it has none.
+    private volatile TimeoutWatchdog.Timeout runTimeout;
+
     // if or not script timed out
     private final AtomicBoolean timedOut = new AtomicBoolean(false);
 
     // flag to indicate whether or not the script has finished executing.
     private final AtomicBoolean completed = new AtomicBoolean(false);
 
+    // the command leads its own process group, see launchCommand().
+    private volatile boolean processGroup;
+
+    // pid of the running command, -1 if unknown.
+    private volatile long pid = -1;
+
+    // the kill of the running command's process tree, null if it is not killed.
+    private final AtomicReference<TreeKill> treeKill = new AtomicReference<>();
+
+    // the exited command's group was checked for leftovers in this run, guarded by the lock.
+    private final Object leftoversLock = new Object();
+    private boolean leftoversChecked;
+
+    // pids killed in the last run and the time it took, -1 if nothing was killed.
+    private List<Long> killedPids = Collections.emptyList();
+    private long killMillis = -1;
+
+    // time the process tree gets to exit after SIGTERM on a timeout.
+    protected long killGraceMillis = 5000L;
+
+    // wall clock time at which a pre-launched command is released, 0 to start it at once.
+    private volatile long releaseTime;
+
+    // lead of the launch before the release and delay of the release after its time, -1 if not gated.
+    private long preLaunchMillis = -1;
+    private long releaseLagMicros = -1;
+
+    // the process tree is stopped by pause().
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+
     // Windows CreateProcess synchronization object.
     private static final Object WindowsProcessLaunchLock = new Object();
 
+    // a pre-launched command reads its release line before it starts.
+    private static final String RELEASE_GATE = "IFS= read -r _ || exit 125;";
+
+    // escalates kills of cancelled commands to a forcible kill after their grace period.
+    static final ScheduledExecutorService KILL_ESCALATOR =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Shell kill escalation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     /**
      * create an instance with no minimum interval between runs;
      * stderr is not merged with stdout.
@@ -116,75 +244,159 @@ public abstract class Shell {
      *  run the command.
      * */
     private void runCommand() throws IOException {
-        ProcessBuilder builder = new ProcessBuilder(getExecString());
-        Timer timeOutTimer = null;
-        ShellTimeoutTimerTask timeoutTimerTask = null;
+        JobCgroup cgroup = createCgroup();
+        resourceUsage = null;
+        boolean gated = releaseTime > 0 && !WINDOWS;
+        ProcessBuilder builder = launchBuilder();
+        builder.command(launchCommand(cgroup, gated));
+        TimeoutWatchdog.Timeout timeout = null;
         timedOut.set(false);
         completed.set(false);
-
-        // Remove all env vars from the Builder to prevent leaking of env vars from
-        // the parent process.
-        if (!inheritParentEnv) {
-            builder.environment().clear();
+        paused.set(false);
+        treeKill.set(null);
+        synchronized (leftoversLock) {
+            leftoversChecked = false;
         }
+        killedPids = Collections.emptyList();
+        killMillis = -1;
+        preLaunchMillis = -1;
+        releaseLagMicros = -1;
+        outputSpool = null;
+        errorSpool = null;
+        outputStats = null;
+        errorStats = null;
+        stoppedByListener = false;
+        outputMatches = null;
+        final OutputListener listener = outputListener;
+        long launchNanos = System.nanoTime();
 
-        builder.environment().putAll(this.environment);
-
-        if (dir != null) {
-            builder.directory(this.dir);
+        Charset charset = Charset.defaultCharset();
+        if(WINDOWS){
+            charset = Charset.forName("GBK");
         }
+        PatternMatcher.Scan scan = newPatternScan(charset);
 
         builder.redirectErrorStream(redirectErrorStream);
+        // the reaper redirects a launch into its pipes, the next one may not use it.
+        builder.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        builder.redirectError(ProcessBuilder.Redirect.PIPE);
+
+        // under the epoll reaper the command writes into pipes read by the reaper's loop,
+        // instead of being drained by threads of its own.
+        // spooled, the command writes its output files itself and no stream is read at all.
+        Path[] spool = null;
+        if (spoolDirectory != null && (listener != null || scan != null)) {
+            LOG.warn("output of {} is read by {}, capturing it instead of spooling it to {}", getExecString()[0],
+                    listener != null ? "an output listener" : "output patterns", spoolDirectory);
+        } else if (spoolDirectory != null) {
+            spool = createSpool(cgroup);
+            builder.redirectOutput(ProcessBuilder.Redirect.to(spool[0].toFile()));
+            if (!redirectErrorStream) {
+                builder.redirectError(ProcessBuilder.Redirect.to(spool[1].toFile()));
+            }
+        }
 
-        if (Shell.WINDOWS) {
-            synchronized (WindowsProcessLaunchLock) {
-                // To workaround the race condition issue with child processes
-                // inheriting unintended handles during process launch that can
-                // lead to hangs on reading output and error streams, we
-                // serialize process creation. More info available at:
-                // http://support.microsoft.com/kb/315939
+        // a listener may block, which the reaper's single thread must not.
+        ReapedOutput reaped = null;
+        if (spool == null && listener == null && ProcessReaper.isEnabled()) {
+            try {
+                reaped = new ReapedOutput(redirectErrorStream ? 1 : 2, charset, scan);
+                reaped.redirect(builder);
+            } catch (IOException e) {
+                LOG.warn("can not create pipes for the process reaper, using stream threads:{}", e.getMessage());
+            }
+        }
+
+        try {
+            if (Shell.WINDOWS) {
+                synchronized (WindowsProcessLaunchLock) {
+                    // To workaround the race condition issue with child processes
+                    // inheriting unintended handles during process launch that can
+                    // lead to hangs on reading output and error streams, we
+                    // serialize process creation. More info available at:
+                    // http://support.microsoft.com/kb/315939
+                    process = builder.start();
+                }
+            } else {
                 process = builder.start();
             }
-        } else {
-            process = builder.start();
+        } catch (IOException ioe) {
+            if (reaped != null) {
+                reaped.close();
+            }
+            if (spool != null) {
+                deleteSpool(spool);
+            }
+            if (cgroup != null) {
+                cgroup.remove();
+            }
+            throw ioe;
+        }
+        pid = ProcessTree.pid(process);
+        if (reaped != null) {
+            // the child has its own copies now, the pipes reach eof once it and its children are gone.
+            reaped.closeWriteEnds();
         }
 
         waitingThread = Thread.currentThread();
         childShells.put(this, null);
 
-        if (timeOutInterval > 0) {
-            timeOutTimer = new Timer("Shell command timeout");
-            timeoutTimerTask = new ShellTimeoutTimerTask(this);
+        if (gated) {
+            try {
+                release(launchNanos);
+            } catch (InterruptedIOException iie) {
+                if (reaped != null) {
+                    reaped.close();
+                }
+                finishRun(cgroup);
+                // the command never ran, nobody takes its empty spool files over.
+                if (spool != null) {
+                    deleteSpool(spool);
+                }
+                throw iie;
+            }
+        }
 
-            // One time scheduling.
-            timeOutTimer.schedule(timeoutTimerTask, timeOutInterval);
+        // the timeout counts from the release of a pre-launched command.
+        if (timeOutInterval > 0) {
+            timeout = TimeoutWatchdog.getShared().arm(timeOutInterval, new ShellTimeoutTask(this));
+            runTimeout = timeout;
+            // paused in the meantime, the clock stands still until the command continues.
+            if (paused.get()) {
+                timeout.suspend();
+            }
         }
 
-        Charset charset = Charset.defaultCharset();
-        if(WINDOWS){
-            charset = Charset.forName("GBK");
+        if (spool != null) {
+            runSpooled(spool, cgroup, timeout, charset);
+            return;
         }
 
-        final BufferedReader errReader = new BufferedReader(new InputStreamReader(
-                process.getErrorStream(), charset));
+        if (reaped != null) {
+            runReaped(reaped, cgroup, timeout, charset, scan);
+            return;
+        }
 
-        BufferedReader inReader = new BufferedReader(new InputStreamReader(
-                process.getInputStream(), charset));
+        // both streams are captured as raw bytes, decoded only when the output is asked for.
+        if (listener != null) {
+            listener.onStart();
+        }
+        Object listenerLock = new Object();
+        StreamCapture outCapture = new StreamCapture(OutputListener.Stream.STDOUT, listener, listenerLock, charset, scan);
+        final StreamCapture errCapture = new StreamCapture(OutputListener.Stream.STDERR, listener, listenerLock, charset, scan);
+        InputStream inStream = process.getInputStream();
+        final InputStream errStream = process.getErrorStream();
 
-        final StringBuffer errMsg = new StringBuffer();
+        // executions on virtual threads drain their error stream on a virtual thread too.
+        final boolean virtual = VirtualThreads.isVirtual(Thread.currentThread());
 
         // read error and input streams as this would free up the buffers
         // free the error stream buffer
-        Thread errThread = new Thread() {
+        Runnable errDrainer = new Runnable() {
             @Override
             public void run() {
                 try {
-                    String line = errReader.readLine();
-                    while((line != null) && !isInterrupted()) {
-                        errMsg.append(line)
-                                .append(System.getProperty("line.separator"));
-                        line = errReader.readLine();
-                    }
+                    errCapture.drain(errStream);
                 } catch(IOException ioe) {
                     // Its normal to observe a "Stream closed" I/O error on
                     // command timeouts destroying the underlying process
@@ -198,6 +410,7 @@ public abstract class Shell {
                 }
             }
         };
+        Thread errThread = virtual ? VirtualThreads.newThread("shell-stderr", errDrainer) : new Thread(errDrainer);
 
         try {
             errThread.start();
@@ -209,29 +422,54 @@ public abstract class Shell {
             throw oe;
         }
 
-        try {
-            // parse the output
-            parseExecResult(inReader);
+        // orphans holding the output pipes open would block the reads until they exit,
+        // so they are killed as soon as the command itself exits.
+        Thread exitWatcher = null;
+        if (processGroup && pid > 0) {
+            final Process p = process;
+            Runnable watcher = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (virtual) {
+                            VirtualThreads.waitFor(p);
+                        } else {
+                            p.waitFor();
+                        }
+                        killLeftovers();
+                    } catch (InterruptedException ie) {
+                        // the run is over.
+                    }
+                }
+            };
+            exitWatcher = virtual ? VirtualThreads.newThread("shell-exit", watcher) : new Thread(watcher, "shell-exit");
+            exitWatcher.setDaemon(true);
+            exitWatcher.start();
+        }
 
-            // clear the input stream buffer
-            String line = inReader.readLine();
-            while(line != null) {
-                line = inReader.readLine();
-            }
+        try {
+            outCapture.drain(inStream);
 
             // wait for the process to finish and check the exit code
-            exitCode  = process.waitFor();
+            exitCode  = virtual ? VirtualThreads.waitFor(process) : process.waitFor();
 
             // make sure that the error thread exits
             joinThread(errThread);
 
-            setExecErrorResult(errMsg);
+            outputStats = outCapture.getStats();
+            errorStats = errCapture.getStats();
+            if (scan != null) {
+                outputMatches = scan.result();
+            }
+            CapturedOutput error = errCapture.captured();
+            setExecOutput(outCapture.captured(), error);
 
             completed.set(true);
             //the timeout thread handling
             //taken care in finally block
             if (exitCode != 0) {
-                LOG.error("exec error, exit code:{} ,errMsg:{}", exitCode, errMsg.toString());
+                // the error output is only decoded if the line is logged.
+                LOG.error("exec error, exit code:{} ,errMsg:{}", exitCode, error);
                 // throw new ExitCodeException(exitCode, errMsg.toString());
             }
         } catch (InterruptedException ie) {
@@ -239,13 +477,13 @@ public abstract class Shell {
             iie.initCause(ie);
             throw iie;
         } finally {
-            if (timeOutTimer != null) {
-                timeOutTimer.cancel();
+            if (timeout != null) {
+                timeout.disarm();
             }
 
             // close the input stream
             try {
-                inReader.close();
+                inStream.close();
             } catch (IOException ioe) {
                 LOG.warn("Error while closing the input stream", ioe);
             }
@@ -256,17 +494,499 @@ public abstract class Shell {
             }
 
             try {
-                errReader.close();
+                errStream.close();
             } catch (IOException ioe) {
                 LOG.warn("Error while closing the error stream", ioe);
             }
 
-            process.destroy();
-            waitingThread = null;
-            childShells.remove(this);
-            lastTime = monotonicNow();
+            if (exitWatcher != null) {
+                exitWatcher.interrupt();
+            }
+            finishRun(cgroup);
+        }
+
+    }
+
+    /**
+     * wait for the command under the {@link ProcessReaper}, which collects its output
+     * and tells when it exited.
+     */
+    private void runReaped(ReapedOutput reaped, JobCgroup cgroup, TimeoutWatchdog.Timeout timeout,
+                           Charset charset, PatternMatcher.Scan scan) throws IOException {
+        try {
+            reaped.watch(process, pid);
+
+            // exit of the command and eof of its pipes.
+            reaped.await();
+
+            // the command is gone already, this only collects the exit code.
+            exitCode = process.waitFor();
+
+            CapturedOutput error = redirectErrorStream ? new CapturedOutput(charset) : reaped.captured(1);
+            if (reaped.captures != null) {
+                outputStats = reaped.captures[0].getStats();
+                if (!redirectErrorStream) {
+                    errorStats = reaped.captures[1].getStats();
+                }
+            }
+            if (scan != null) {
+                outputMatches = scan.result();
+            }
+            setExecOutput(reaped.captured(0), error);
+
+            completed.set(true);
+            if (exitCode != 0) {
+                // the error output is only decoded if the line is logged.
+                LOG.error("exec error, exit code:{} ,errMsg:{}", exitCode, error);
+            }
+        } catch (InterruptedException ie) {
+            InterruptedIOException iie = new InterruptedIOException(ie.toString());
+            iie.initCause(ie);
+            throw iie;
+        } finally {
+            if (timeout != null) {
+                timeout.disarm();
+            }
+            finishRun(cgroup);
+        }
+    }
+
+    /**
+     * wait for a command writing its output into the spool files.
+     */
+    private void runSpooled(Path[] spool, JobCgroup cgroup, TimeoutWatchdog.Timeout timeout,
+                            Charset charset) throws IOException {
+        try {
+            exitCode = VirtualThreads.isVirtual(Thread.currentThread()) ?
+                    VirtualThreads.waitFor(process) : process.waitFor();
+            // orphans would keep writing into the spool.
+            if (processGroup && pid > 0) {
+                killLeftovers();
+            }
+
+            outputSpool = new JobOutput(spool[0], charset);
+            if (!redirectErrorStream) {
+                errorSpool = new JobOutput(spool[1], charset);
+            }
+            completed.set(true);
+            if (exitCode != 0) {
+                LOG.error("exec error, exit code:{} ,errMsg spooled to:{}", exitCode,
+                        errorSpool != null ? errorSpool : outputSpool);
+            }
+        } catch (InterruptedException ie) {
+            InterruptedIOException iie = new InterruptedIOException(ie.toString());
+            iie.initCause(ie);
+            throw iie;
+        } finally {
+            if (timeout != null) {
+                timeout.disarm();
+            }
+            finishRun(cgroup);
+            if (!completed.get()) {
+                deleteSpool(spool);
+            }
+        }
+    }
+
+    /**
+     * the output and error files of a spooled run, named after the command.
+     */
+    private Path[] createSpool(JobCgroup cgroup) throws IOException {
+        String name = new File(getExecString()[0]).getName().replaceAll("[^A-Za-z0-9_.-]", "_");
+        Path[] spool = new Path[redirectErrorStream ? 1 : 2];
+        try {
+            spool[0] = Files.createTempFile(spoolDirectory.toPath(), name + "-", ".out");
+            if (!redirectErrorStream) {
+                spool[1] = Files.createTempFile(spoolDirectory.toPath(), name + "-", ".err");
+            }
+        } catch (IOException e) {
+            deleteSpool(spool);
+            if (cgroup != null) {
+                cgroup.remove();
+            }
+            throw e;
+        }
+        return spool;
+    }
+
+    private static void deleteSpool(Path[] spool) {
+        for (Path path : spool) {
+            if (path == null) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOG.warn("can not delete spool file {}:{}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * wait for the release time, then let the pre-launched command go by a line on its stdin.
+     */
+    private void release(long launchNanos) throws InterruptedIOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(releaseTime - System.currentTimeMillis());
+        preLaunchMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - launchNanos));
+        OutputStream stdin = process.getOutputStream();
+        try {
+            Utils.sleepUntilNanos(deadline);
+        } catch (InterruptedException ie) {
+            InterruptedIOException iie = new InterruptedIOException(ie.toString());
+            iie.initCause(ie);
+            throw iie;
+        }
+        try {
+            stdin.write('\n');
+            stdin.flush();
+        } catch (IOException e) {
+            // killed before its release, the run ends with the exit code of the kill.
+            LOG.debug("can not release {}:{}", pid, e.getMessage());
+        }
+        // a launch which took longer than the lead is released late by that much.
+        releaseLagMicros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - deadline));
+        LOG.debug("released {} {} us after its time, launched {} ms ahead", pid, releaseLagMicros, preLaunchMillis);
+    }
+
+    /**
+     * end of a run: kill what is left of the command and release its cgroup.
+     */
+    private void finishRun(JobCgroup cgroup) {
+        runTimeout = null;
+        process.destroy();
+        awaitTreeKill();
+        if (cgroup != null) {
+            resourceUsage = cgroup.readUsage();
+            cgroup.remove();
+        }
+        waitingThread = null;
+        childShells.remove(this);
+        lastTime = monotonicNow();
+    }
+
+    /**
+     * the child cgroup of this launch, null if the command has no limits or no slice is usable.
+     */
+    private JobCgroup createCgroup() {
+        if (resourceLimits == null || WINDOWS) {
+            return null;
+        }
+        CgroupSlice slice = CgroupSlice.getDefault();
+        if (slice == null) {
+            LOG.debug("no cgroup slice, running {} without limits", join(" ", getExecString()));
+            return null;
+        }
+        return slice.create(getExecString()[0], resourceLimits);
+    }
+
+    /**
+     * the builder shared by all launches of this shell. the environment of the command,
+     * the parent's copied or not plus the configured variables, is computed on the first
+     * launch after it was set, instead of copying the whole parent environment every time.
+     */
+    private ProcessBuilder launchBuilder() {
+        ProcessBuilder builder = launchBuilder;
+        if (builder != null && launchBuilderInheritsEnv == inheritParentEnv) {
+            return builder;
+        }
+        builder = new ProcessBuilder();
+
+        // Remove all env vars from the Builder to prevent leaking of env vars from
+        // the parent process.
+        if (!inheritParentEnv) {
+            builder.environment().clear();
+        }
+
+        builder.environment().putAll(this.environment);
+
+        if (dir != null) {
+            builder.directory(this.dir);
+        }
+        launchBuilder = builder;
+        launchBuilderInheritsEnv = inheritParentEnv;
+        return builder;
+    }
+
+    /**
+     * the command prefixed by the tools placing it and applying the process settings,
+     * outermost first: the cgroup entry, setsid, chrt, taskset, nice, ionice. each of them
+     * execs the next, so the command keeps the pid of the launched process. a tool missing
+     * on the host is skipped with a warning. a gated command waits for its release
+     * after all of them. the prefix is only computed again when the command or the
+     * settings change.
+     */
+    private String[] launchCommand(JobCgroup cgroup, boolean gated) {
+        String[] command = getExecString();
+        ProcessSettings settings = this.processSettings;
+        if (settings == null || WINDOWS) {
+            settings = new ProcessSettings();
+        }
+        LaunchTemplate template = launchTemplate;
+        if (template == null || !template.matches(command, settings, gated)) {
+            template = new LaunchTemplate(command, settings, gated);
+            launchTemplate = template;
+        }
+        processGroup = template.processGroup;
+        effectiveProcessSettings = template.effectiveSettings;
+        return cgroup == null ? template.launch : cgroup.wrap(template.launch);
+    }
+
+    private static String[] buildLaunchCommand(String[] command, ProcessSettings settings, boolean processGroup,
+                                               boolean gated, StringBuilder effective) {
+        List<String> launch = new ArrayList<>();
+
+        // in a session of its own the command leads a process group, which is killed as a whole.
+        if (processGroup) {
+            launch.add("setsid");
+        }
+
+        if (settings.getSchedPolicy() != null && toolAvailable("chrt")) {
+            Collections.addAll(launch, "chrt", settings.getSchedPolicy().getChrtOption(), "0");
+            effective.append("sched=").append(settings.getSchedPolicy().name().toLowerCase()).append(' ');
+        }
+        if (settings.getCpuSet() != null && toolAvailable("taskset")) {
+            Collections.addAll(launch, "taskset", "-c", settings.getCpuSet());
+            effective.append("cpus=").append(settings.getCpuSet()).append(' ');
+        }
+        if (settings.getNice() != null && toolAvailable("nice")) {
+            Collections.addAll(launch, "nice", "-n", String.valueOf(settings.getNice()));
+            effective.append("nice=").append(settings.getNice()).append(' ');
+        }
+        if (settings.getIoClass() != null && toolAvailable("ionice")) {
+            Collections.addAll(launch, "ionice", "-c", String.valueOf(settings.getIoClass().getCode()));
+            effective.append("io=").append(settings.getIoClass().name().toLowerCase().replace('_', '-'));
+            // the idle class has no levels.
+            if (settings.getIoLevel() != null && settings.getIoClass() != ProcessSettings.IoClass.IDLE) {
+                Collections.addAll(launch, "-n", String.valueOf(settings.getIoLevel()));
+                effective.append(':').append(settings.getIoLevel());
+            }
+            effective.append(' ');
+        }
+        Collections.addAll(launch, gated ? gate(command) : command);
+        return launch.toArray(new String[0]);
+    }
+
+    /**
+     * a launch command with the command and settings it was computed for.
+     */
+    private static final class LaunchTemplate {
+        private final String[] command;
+        private final String cpuSet;
+        private final Integer nice;
+        private final ProcessSettings.IoClass ioClass;
+        private final Integer ioLevel;
+        private final ProcessSettings.SchedPolicy schedPolicy;
+        private final boolean gated;
+        private final boolean processGroup;
+        private final String[] launch;
+        private final String effectiveSettings;
+
+        private LaunchTemplate(String[] command, ProcessSettings settings, boolean gated) {
+            this.command = command;
+            this.cpuSet = settings.getCpuSet();
+            this.nice = settings.getNice();
+            this.ioClass = settings.getIoClass();
+            this.ioLevel = settings.getIoLevel();
+            this.schedPolicy = settings.getSchedPolicy();
+            this.gated = gated;
+            this.processGroup = Utils.LINUX && toolAvailable("setsid");
+            StringBuilder effective = new StringBuilder();
+            this.launch = buildLaunchCommand(command, settings, processGroup, gated, effective);
+            this.effectiveSettings = effective.toString().trim();
+        }
+
+        // the settings are compared by value, they are mutable.
+        private boolean matches(String[] command, ProcessSettings settings, boolean gated) {
+            return this.command == command && this.gated == gated &&
+                    Objects.equals(cpuSet, settings.getCpuSet()) &&
+                    Objects.equals(nice, settings.getNice()) &&
+                    ioClass == settings.getIoClass() &&
+                    Objects.equals(ioLevel, settings.getIoLevel()) &&
+                    schedPolicy == settings.getSchedPolicy();
+        }
+    }
+
+    /**
+     * the command blocked on a line from its stdin. a "bash -c" script waits in its
+     * bash, which is then started and linked already; any other command is exec'ed
+     * by a waiting sh. stdin closed before the release ends the command with 125.
+     */
+    private static String[] gate(String[] command) {
+        if (command.length == 3 && ("bash".equals(command[0]) || "sh".equals(command[0])) && "-c".equals(command[1])) {
+            return new String[]{command[0], command[1], RELEASE_GATE + "\n" + command[2]};
+        }
+        String[] gated = new String[command.length + 4];
+        gated[0] = "sh";
+        gated[1] = "-c";
+        gated[2] = RELEASE_GATE + " exec \"$@\"";
+        gated[3] = "gate";
+        System.arraycopy(command, 0, gated, 4, command.length);
+        return gated;
+    }
+
+    private static boolean toolAvailable(String tool) {
+        Boolean available = availableTools.get(tool);
+        if (available == null) {
+            available = false;
+            String path = System.getenv("PATH");
+            if (path != null) {
+                for (String dir : path.split(File.pathSeparator)) {
+                    if (new File(dir, tool).canExecute()) {
+                        available = true;
+                        break;
+                    }
+                }
+            }
+            if (!available) {
+                LOG.warn("{} not found on PATH, the setting is not applied", tool);
+            }
+            availableTools.put(tool, available);
+        }
+        return available;
+    }
+
+    /**
+     * kill the running command without waiting for it to exit: its process group and
+     * every descendant are asked to terminate now and are killed forcibly if still alive
+     * after the grace period (see {@link TreeKill}). without /proc only the command's
+     * own process is killed.
+     * @param graceMillis time in milliseconds the processes get to terminate.
+     */
+    public void kill(long graceMillis) {
+        final Process p = this.process;
+        if (p == null || completed.get()) {
+            return;
+        }
+
+        if (Utils.LINUX && pid > 0) {
+            TreeKill kill = new TreeKill(pid, processGroup, graceMillis, KILL_ESCALATOR);
+            if (treeKill.compareAndSet(null, kill)) {
+                startTreeKill(kill, true);
+            }
+            return;
+        }
+
+        p.destroy();
+        resume();
+        KILL_ESCALATOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (p.isAlive()) {
+                    LOG.warn("process still alive {} ms after destroy, killing it forcibly", graceMillis);
+                    p.destroyForcibly();
+                }
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * kill what the exited command left behind in its process group, e.g. by "cmd &".
+     * called on the exit and again before the run ends, the group is checked once per
+     * run: a later call waits for the first one's check and returns.
+     */
+    private void killLeftovers() {
+        if (!processGroup || pid <= 0) {
+            return;
+        }
+        synchronized (leftoversLock) {
+            if (leftoversChecked || treeKill.get() != null) {
+                return;
+            }
+            leftoversChecked = true;
+            // the group is mostly empty, which kill -0 tells without a scan of /proc.
+            if (!ProcessTree.groupExists(pid) || ProcessTree.groupMembers(pid).isEmpty()) {
+                return;
+            }
+            TreeKill kill = new TreeKill(pid, true, killGraceMillis, KILL_ESCALATOR);
+            if (treeKill.compareAndSet(null, kill)) {
+                LOG.warn("command {} left processes behind in its group, killing them", pid);
+                startTreeKill(kill, false);
+            }
+        }
+    }
+
+    /**
+     * start a tree kill on the kill escalation thread: it reads /proc and waits for kill(1),
+     * which must not hold up a canceller or the timeout watchdog.
+     * @param resume true to continue a paused command, which only acts on the termination then.
+     */
+    private void startTreeKill(final TreeKill kill, final boolean resume) {
+        KILL_ESCALATOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                kill.start();
+                if (resume) {
+                    resume();
+                }
+            }
+        });
+    }
+
+    /**
+     * wait for a kill of the process tree, started by {@link #kill(long)} or for leftovers,
+     * and record what was killed.
+     */
+    private void awaitTreeKill() {
+        killLeftovers();
+        TreeKill kill = treeKill.get();
+        if (kill != null) {
+            kill.await();
+            killedPids = kill.getPids();
+            killMillis = kill.getMillis();
+            if (!killedPids.isEmpty()) {
+                LOG.debug("killed process tree of {} in {} ms:{}", pid, killMillis, killedPids);
+            }
         }
+    }
+
+    /**
+     * stop the running command, its process group and its descendants with SIGSTOP.
+     * @return false if there is no running command or it can not be signalled.
+     */
+    public boolean pause() {
+        Process p = this.process;
+        if (p == null || completed.get() || !p.isAlive() || pid <= 0) {
+            return false;
+        }
+        if (!paused.compareAndSet(false, true)) {
+            return false;
+        }
+        if (!ProcessTree.signal("STOP", signalTargets())) {
+            paused.set(false);
+            return false;
+        }
+        // the scheduler took the time, the command doesn't time out for it.
+        TimeoutWatchdog.Timeout timeout = runTimeout;
+        if (timeout != null) {
+            timeout.suspend();
+        }
+        return true;
+    }
+
+    /**
+     * continue a command stopped by {@link #pause()} with SIGCONT.
+     */
+    public void resume() {
+        if (this.process == null || !paused.compareAndSet(true, false)) {
+            return;
+        }
+        TimeoutWatchdog.Timeout timeout = runTimeout;
+        if (timeout != null) {
+            timeout.resume();
+        }
+        ProcessTree.signal("CONT", signalTargets());
+    }
+
+    private List<Long> signalTargets() {
+        List<Long> targets = ProcessTree.tree(pid);
+        if (processGroup) {
+            targets.add(-pid);
+        }
+        return targets;
+    }
 
+    public boolean isPaused() {
+        return paused.get();
     }
 
     /**
@@ -292,14 +1012,234 @@ public abstract class Shell {
      */
     protected void setWorkingDirectory(File dir) {
         this.dir = dir;
+        this.launchBuilder = null;
     }
 
     /**
-     * set the environment for the command.
+     * set the environment for the command. the map is read on the next launch,
+     * later changes to it are not seen.
      * @param env Mapping of environment variables
      */
     protected void setEnvironment(Map<String, String> env) {
         this.environment = Objects.requireNonNull(env);
+        this.launchBuilder = null;
+    }
+
+    /**
+     * bound the output captured by the following runs, see {@link CapturePolicy}.
+     * @param capturePolicy the bound, null to capture everything.
+     */
+    public void setCapturePolicy(CapturePolicy capturePolicy) {
+        this.capturePolicy = capturePolicy;
+    }
+
+    public CapturePolicy getCapturePolicy() {
+        return this.capturePolicy;
+    }
+
+    /**
+     * size of the output of the last run and what its bounded capture dropped,
+     * null if the capture was unbounded or the output spooled.
+     */
+    public OutputStats getOutputStats() {
+        return this.outputStats;
+    }
+
+    /**
+     * like {@link #getOutputStats()} for the error output, null if it is merged into the output.
+     */
+    public OutputStats getErrorStats() {
+        return this.errorStats;
+    }
+
+    /**
+     * capture the output of the following runs in direct buffers of a pool instead of
+     * on the heap. the captured output then has to be released, see {@link PooledOutput}.
+     * @param bufferPool the pool, null to capture on the heap.
+     */
+    public void setBufferPool(DirectBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    public DirectBufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    /**
+     * pass the output of the following runs to a listener while they run. the output
+     * is then read by stream threads, neither spooled nor read by the epoll reaper.
+     * @param outputListener the listener, null for none.
+     */
+    public void setOutputListener(OutputListener outputListener) {
+        this.outputListener = outputListener;
+    }
+
+    public OutputListener getOutputListener() {
+        return this.outputListener;
+    }
+
+    /**
+     * @return true if the output listener stopped the last run.
+     */
+    public boolean isStoppedByListener() {
+        return this.stoppedByListener;
+    }
+
+    /**
+     * scan the output of the following runs for patterns while it is read. the output is
+     * then not spooled, as the scheduler has to read it.
+     * @param outputPatterns the patterns, null for none.
+     */
+    public void setOutputPatterns(OutputPatterns outputPatterns) {
+        this.outputPatterns = outputPatterns;
+    }
+
+    public OutputPatterns getOutputPatterns() {
+        return this.outputPatterns;
+    }
+
+    /**
+     * @return what the output patterns matched in the last run, null if there were none.
+     */
+    public OutputMatches getOutputMatches() {
+        return this.outputMatches;
+    }
+
+    /**
+     * a scan of the output patterns, compiled once for as long as they don't change.
+     */
+    private PatternMatcher.Scan newPatternScan(Charset charset) {
+        OutputPatterns patterns = outputPatterns;
+        if (patterns == null) {
+            return null;
+        }
+        PatternMatcher matcher = patternMatcher;
+        if (matcher == null || matcher.getPatterns() != patterns || !matcher.getCharset().equals(charset)) {
+            matcher = new PatternMatcher(patterns, charset);
+            patternMatcher = matcher;
+        }
+        return matcher.newScan();
+    }
+
+    /**
+     * spool the output of the following runs into files in a directory, which the command
+     * writes itself: no thread reads its streams and the output takes no heap.
+     * @param spoolDirectory existing directory, null to capture the output in memory.
+     */
+    public void setSpoolDirectory(File spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public File getSpoolDirectory() {
+        return this.spoolDirectory;
+    }
+
+    /**
+     * the output file of the last run, null if it was not spooled. it belongs to the caller,
+     * who deletes it.
+     */
+    public JobOutput getOutputSpool() {
+        return this.outputSpool;
+    }
+
+    /**
+     * the error file of the last run, null if it was not spooled or stderr is merged into the output.
+     */
+    public JobOutput getErrorSpool() {
+        return this.errorSpool;
+    }
+
+    /**
+     * set the affinity, nice value, io class and scheduling policy of the launched command.
+     * @param processSettings settings, null for none.
+     */
+    public void setProcessSettings(ProcessSettings processSettings) {
+        this.processSettings = processSettings;
+    }
+
+    public ProcessSettings getProcessSettings() {
+        return this.processSettings;
+    }
+
+    /**
+     * the process settings the last launch applied, e.g. "cpus=0-1 nice=10",
+     * without those whose tool is missing on the host; empty for none.
+     */
+    public String getEffectiveProcessSettings() {
+        return this.effectiveProcessSettings;
+    }
+
+    /**
+     * run the command in its own child cgroup with the given limits,
+     * see {@link CgroupSlice}; null to run it without one.
+     */
+    public void setResourceLimits(ResourceLimits resourceLimits) {
+        this.resourceLimits = resourceLimits;
+    }
+
+    public ResourceLimits getResourceLimits() {
+        return this.resourceLimits;
+    }
+
+    /**
+     * launch the next run ahead and release it at a time, see {@link #gate(String[])}.
+     * @param releaseTime wall clock time in milliseconds, 0 to start runs at once.
+     */
+    public void setReleaseTime(long releaseTime) {
+        this.releaseTime = releaseTime;
+    }
+
+    public long getReleaseTime() {
+        return this.releaseTime;
+    }
+
+    /**
+     * @return time the last run was launched ahead of its release, -1 if it wasn't gated.
+     */
+    public long getPreLaunchMillis() {
+        return this.preLaunchMillis;
+    }
+
+    /**
+     * @return delay of the last run's release after its time in microseconds, -1 if it wasn't gated.
+     */
+    public long getReleaseLagMicros() {
+        return this.releaseLagMicros;
+    }
+
+    /**
+     * set the time in milliseconds after which the command is killed and marked as timed out, 0 for none.
+     */
+    public void setTimeoutInterval(long timeOutInterval) {
+        this.timeOutInterval = timeOutInterval;
+    }
+
+    /**
+     * time the process tree gets to exit after SIGTERM before SIGKILL, on a timeout.
+     */
+    public void setKillGraceMillis(long killGraceMillis) {
+        this.killGraceMillis = killGraceMillis;
+    }
+
+    /**
+     * pids killed in the last run, on cancel, timeout or as leftovers of the command; empty for none.
+     */
+    public List<Long> getKilledPids() {
+        return this.killedPids;
+    }
+
+    /**
+     * time the kill of the last run took until the process tree was gone, -1 if nothing was killed.
+     */
+    public long getKillMillis() {
+        return this.killMillis;
+    }
+
+    /**
+     * usage of the last launch read from its cgroup, null if it ran without one.
+     */
+    public ResourceUsage getResourceUsage() {
+        return this.resourceUsage;
     }
 
     /**
@@ -392,7 +1332,7 @@ public abstract class Shell {
      * @param arg the argument to quote
      * @return the quoted string
      */
-    private static String bashQuote(String arg) {
+    static String bashQuote(String arg) {
         StringBuilder sb = new StringBuilder(arg.length() + 2);
         sb.append('\'').append(arg.replace("'", "'\\''")).append('\'');
         return sb.toString();
@@ -413,6 +1353,16 @@ public abstract class Shell {
      * */
     protected abstract void setExecErrorResult(StringBuffer errorMsg) throws IOException;
 
+    /**
+     * take the raw output of a run. this decodes it for {@link #parseExecResult} and
+     * {@link #setExecErrorResult}; a subclass keeping the bytes only decodes them when
+     * the output is asked for.
+     */
+    protected void setExecOutput(CapturedOutput output, CapturedOutput error) throws IOException {
+        parseExecResult(new BufferedReader(new StringReader(output.decode())));
+        setExecErrorResult(new StringBuffer(error.decode()));
+    }
+
     /**
      * get an environment variable.
      * @param env the environment var
@@ -463,6 +1413,11 @@ public abstract class Shell {
         private final String[] command;
         private StringBuffer output;
         private StringBuffer errorMsg;
+        // raw output of the last run, decoded on demand; null before the first run.
+        private CapturedOutput capturedOutput;
+        private CapturedOutput capturedError;
+        // the raw output was taken over by its owner, which releases it.
+        private boolean outputTaken;
 
         public ShellCommandExecutor(String[] execString) {
             this(execString, null);
@@ -553,11 +1508,59 @@ public abstract class Shell {
             this.errorMsg = errorMsg;
         }
 
+        /**
+         * keeps the bytes, {@link #getOutput()} decodes them.
+         */
+        @Override
+        protected void setExecOutput(CapturedOutput output, CapturedOutput error) {
+            this.capturedOutput = output;
+            this.capturedError = error;
+            this.outputTaken = false;
+            this.output = null;
+            this.errorMsg = null;
+        }
+
+        /**
+         * hands the raw output of the last run over to the caller, which releases it, null
+         * if it was spooled or nothing ran yet. the output is no longer read through this
+         * executor then, {@link #getOutput()} fails until the next run.
+         */
+        public CapturedOutput takeCapturedOutput() {
+            CapturedOutput taken = getOutputSpool() == null ? this.capturedOutput : null;
+            this.capturedOutput = null;
+            this.outputTaken = true;
+            return taken;
+        }
+
+        /**
+         * hands the raw error output of the last run over, like {@link #takeCapturedOutput()}.
+         */
+        public CapturedOutput takeCapturedError() {
+            CapturedOutput taken = getOutputSpool() == null ? this.capturedError : null;
+            this.capturedError = null;
+            this.outputTaken = true;
+            return taken;
+        }
+
+        private void checkNotTaken() throws IOException {
+            if (outputTaken) {
+                throw new IOException("the output of " + join(" ", command) + " was taken over");
+            }
+        }
+
         /**
          * get the output of the shell command.
          * */
         @Override
-        public String getOutput() {
+        public String getOutput() throws IOException {
+            JobOutput spool = getOutputSpool();
+            if (spool != null) {
+                return spool.asString();
+            }
+            checkNotTaken();
+            if (capturedOutput != null) {
+                return capturedOutput.decode();
+            }
             return (output == null) ? "" : output.toString();
         }
 
@@ -565,7 +1568,15 @@ public abstract class Shell {
          * get the error of the shell command.
          * */
         @Override
-        public String getError() {
+        public String getError() throws IOException {
+            JobOutput spool = getErrorSpool();
+            if (spool != null) {
+                return spool.asString();
+            }
+            checkNotTaken();
+            if (capturedError != null) {
+                return capturedError.decode();
+            }
             return (errorMsg == null) ? "" : errorMsg.toString();
         }
 
@@ -596,30 +1607,257 @@ public abstract class Shell {
     }
 
     /**
-     * Timer which is used to timeout scripts spawned off by shell.
+     * expiry action of the timeout of a script spawned off by shell. the kill walks /proc and
+     * forks kill(1), so it runs on the kill escalation thread, not on the shared watchdog's.
      */
-    private static class ShellTimeoutTimerTask extends TimerTask {
+    private static class ShellTimeoutTask implements Runnable {
         private final Shell shell;
 
-        public ShellTimeoutTimerTask(Shell shell) {
+        public ShellTimeoutTask(Shell shell) {
             this.shell = shell;
         }
 
         @Override
         public void run() {
-            Process p = shell.getProcess();
+            final Process p = shell.getProcess();
+            if (p != null && p.isAlive() && !shell.completed.get()) {
+                shell.setTimedOut();
+                KILL_ESCALATOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        shell.kill(shell.killGraceMillis);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * the raw bytes of one stream: passed to the output listener and the pattern scan as
+     * they are read, and captured bounded by the capture policy, in full, or not at all if
+     * the listener consumes them or the patterns discard them.
+     */
+    private class StreamCapture {
+        private final OutputListener.Stream stream;
+        private final OutputListener listener;
+        // listener calls of both streams are serialized.
+        private final Object listenerLock;
+        private final Charset charset;
+        private final BoundedCapture bounded;
+        private final CapturedOutput full;
+        private final PatternMatcher.StreamScan scan;
+        private boolean listening;
+
+        private StreamCapture(OutputListener.Stream stream, OutputListener listener, Object listenerLock,
+                              Charset charset, PatternMatcher.Scan scan) {
+            this.stream = stream;
+            this.listener = listener;
+            this.listenerLock = listenerLock;
+            this.charset = charset;
+            this.scan = scan == null ? null : scan.stream(stream);
+            this.listening = listener != null;
+            boolean capturing = (listener == null || listener.isCapturing())
+                    && (scan == null || !scan.isDiscardOutput());
+            this.bounded = capturing && capturePolicy != null ? new BoundedCapture(capturePolicy) : null;
+            this.full = capturing && capturePolicy == null ? newCapture(charset) : null;
+        }
+
+        private void drain(InputStream in) throws IOException {
+            byte[] buf = DRAIN_BUFFER.get();
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                if (scan != null) {
+                    scan.write(buf, 0, n);
+                }
+                if (listening && !listen(buf, n)) {
+                    listening = false;
+                    stopByListener();
+                }
+                if (bounded != null) {
+                    bounded.write(buf, 0, n);
+                } else if (full != null) {
+                    full.write(buf, 0, n);
+                }
+            }
+            if (scan != null) {
+                scan.end();
+            }
+            if (listening) {
+                synchronized (listenerLock) {
+                    listener.onEnd(stream);
+                }
+            }
+        }
+
+        private boolean listen(byte[] buf, int n) {
+            try {
+                synchronized (listenerLock) {
+                    return !stoppedByListener && listener.onOutput(stream, buf, 0, n);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("output listener failed, stopping the command:{}", Utils.stackTrace(e));
+                return false;
+            }
+        }
+
+        private OutputStats getStats() {
+            return bounded == null ? null : bounded.getStats();
+        }
+
+        private CapturedOutput captured() {
+            if (bounded != null) {
+                return bounded.toCaptured(charset);
+            }
+            return full == null ? new CapturedOutput(charset) : full;
+        }
+    }
+
+    /**
+     * an empty capture, in pooled direct buffers if this shell has a buffer pool.
+     */
+    private CapturedOutput newCapture(Charset charset) {
+        DirectBufferPool pool = bufferPool;
+        return pool == null ? new CapturedOutput(charset) : new PooledOutput(pool, charset);
+    }
+
+    /**
+     * the output listener asked to stop: the command is killed, its output is drained on.
+     */
+    private void stopByListener() {
+        stoppedByListener = true;
+        KILL_ESCALATOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                kill(killGraceMillis);
+            }
+        });
+    }
+
+    // the streams by the index of their pipe under the reaper.
+    private static final OutputListener.Stream[] REAPED_STREAMS = OutputListener.Stream.values();
+
+    /**
+     * output pipes of a command supervised by the {@link ProcessReaper}. the command
+     * opens the write ends through /proc/self/fd as its redirect files; the read ends
+     * belong to the reaper once the command is watched.
+     */
+    private class ReapedOutput implements ProcessReaper.Watcher {
+        private final int[] readFds;
+        private final int[] writeFds;
+        // the captures, null if the patterns discard the output.
+        private final CapturedOutput[] buffers;
+        // bounded captures instead of the buffers, null if the capture is unbounded.
+        private final BoundedCapture[] captures;
+        private final Charset charset;
+        private final PatternMatcher.Scan scan;
+        // the exit and the eof of every pipe.
+        private final CountDownLatch done;
+        private boolean watched;
+
+        private ReapedOutput(int streams, Charset charset, PatternMatcher.Scan scan) throws IOException {
+            this.charset = charset;
+            this.scan = scan;
+            readFds = new int[streams];
+            writeFds = new int[streams];
+            boolean capturing = scan == null || !scan.isDiscardOutput();
+            buffers = capturing ? new CapturedOutput[streams] : null;
+            CapturePolicy policy = capturePolicy;
+            captures = policy == null || !capturing ? null : new BoundedCapture[streams];
+            Arrays.fill(readFds, -1);
+            Arrays.fill(writeFds, -1);
             try {
-                p.exitValue();
-            } catch (Exception e) {
-                //Process has not terminated.
-                //So check if it has completed
-                //if not just destroy it.
-                if (p != null && !shell.completed.get()) {
-                    shell.setTimedOut();
-                    p.destroy();
+                for (int i = 0; i < streams; i++) {
+                    int[] fds = ProcessReaper.pipe();
+                    readFds[i] = fds[0];
+                    writeFds[i] = fds[1];
+                    if (captures != null) {
+                        captures[i] = new BoundedCapture(policy);
+                    } else if (buffers != null) {
+                        buffers[i] = newCapture(charset);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            done = new CountDownLatch(streams + 1);
+        }
+
+        private void redirect(ProcessBuilder builder) {
+            builder.redirectOutput(new File("/proc/self/fd/" + writeFds[0]));
+            if (writeFds.length > 1) {
+                builder.redirectError(new File("/proc/self/fd/" + writeFds[1]));
+            }
+        }
+
+        private void closeWriteEnds() {
+            for (int i = 0; i < writeFds.length; i++) {
+                if (writeFds[i] >= 0) {
+                    ProcessReaper.close(writeFds[i]);
+                    writeFds[i] = -1;
                 }
             }
         }
+
+        private void close() {
+            closeWriteEnds();
+            if (!watched) {
+                for (int i = 0; i < readFds.length; i++) {
+                    if (readFds[i] >= 0) {
+                        ProcessReaper.close(readFds[i]);
+                        readFds[i] = -1;
+                    }
+                }
+            }
+        }
+
+        private void watch(Process p, long pid) throws IOException {
+            watched = true;
+            ProcessReaper.watch(p, pid, readFds, this);
+        }
+
+        private void await() throws InterruptedException {
+            done.await();
+        }
+
+        private CapturedOutput captured(int stream) {
+            if (captures != null) {
+                return captures[stream].toCaptured(charset);
+            }
+            return buffers != null ? buffers[stream] : new CapturedOutput(charset);
+        }
+
+        @Override
+        public void onData(int stream, byte[] data, int length) {
+            if (scan != null) {
+                scan.stream(REAPED_STREAMS[stream]).write(data, 0, length);
+            }
+            if (captures != null) {
+                captures[stream].write(data, 0, length);
+            } else if (buffers != null) {
+                buffers[stream].write(data, 0, length);
+            }
+        }
+
+        @Override
+        public void onEof(int stream) {
+            if (scan != null) {
+                scan.stream(REAPED_STREAMS[stream]).end();
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onExit() {
+            // orphans holding the pipes open are killed, off the reaper thread.
+            KILL_ESCALATOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    killLeftovers();
+                }
+            });
+            done.countDown();
+        }
     }
 
     /**
@@ -0,0 +1,180 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one deadline watchdog for the timeouts of all live commands.
+ *
+ * timeouts sit in the delay queue (a binary heap) of a single-thread scheduled
+ * executor with remove-on-cancel, so arming and disarming are O(log n) and a
+ * disarmed timeout doesn't linger in the queue until its deadline. expiry actions
+ * run on the watchdog thread and must hand anything slow to another thread.
+ */
+public final class TimeoutWatchdog {
+    private static final Logger LOG = LogManager.getLogger(TimeoutWatchdog.class);
+
+    private static final TimeoutWatchdog SHARED = new TimeoutWatchdog("timeout-watchdog");
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicLong armed = new AtomicLong(0);
+    private final AtomicLong totalArmed = new AtomicLong(0);
+    private final AtomicLong expired = new AtomicLong(0);
+
+    public TimeoutWatchdog(final String name) {
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * the watchdog shared by all shells.
+     */
+    public static TimeoutWatchdog getShared() {
+        return SHARED;
+    }
+
+    /**
+     * arm a timeout.
+     * @param timeoutMillis time until expiry.
+     * @param onExpiry runs on the watchdog thread if the timeout expires before it is disarmed.
+     * @return the timeout, to disarm it.
+     */
+    public Timeout arm(long timeoutMillis, Runnable onExpiry) {
+        Timeout timeout = new Timeout(onExpiry);
+        timeout.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        armed.incrementAndGet();
+        totalArmed.incrementAndGet();
+        timeout.future = executor.schedule(timeout, timeoutMillis, TimeUnit.MILLISECONDS);
+        return timeout;
+    }
+
+    /**
+     * number of timeouts armed right now.
+     */
+    public long getArmedCount() {
+        return armed.get();
+    }
+
+    /**
+     * number of timeouts armed since start.
+     */
+    public long getTotalArmedCount() {
+        return totalArmed.get();
+    }
+
+    /**
+     * number of timeouts which expired since start.
+     */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * one armed timeout.
+     */
+    public final class Timeout implements Runnable {
+        private static final int ARMED = 0;
+        private static final int EXPIRED = 1;
+        private static final int DISARMED = 2;
+        private static final int SUSPENDED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(ARMED);
+        private final Runnable onExpiry;
+        private volatile ScheduledFuture<?> future;
+        // expiry while armed, the time left while suspended.
+        private volatile long deadlineNanos;
+        private volatile long remainingNanos;
+
+        private Timeout(Runnable onExpiry) {
+            this.onExpiry = onExpiry;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(ARMED, EXPIRED)) {
+                return;
+            }
+            armed.decrementAndGet();
+            expired.incrementAndGet();
+            try {
+                onExpiry.run();
+            } catch (Throwable t) {
+                LOG.error(Utils.stackTrace(t));
+            }
+        }
+
+        /**
+         * @return false if the timeout already expired.
+         */
+        public boolean disarm() {
+            if (!state.compareAndSet(ARMED, DISARMED) && !state.compareAndSet(SUSPENDED, DISARMED)) {
+                return false;
+            }
+            armed.decrementAndGet();
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            return true;
+        }
+
+        /**
+         * stop the clock, e.g. while the command is stopped by the scheduler; the time
+         * left is kept for {@link #resume()}.
+         * @return false if the timeout is not armed.
+         */
+        public boolean suspend() {
+            if (!state.compareAndSet(ARMED, SUSPENDED)) {
+                return false;
+            }
+            remainingNanos = Math.max(0L, deadlineNanos - System.nanoTime());
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+            return true;
+        }
+
+        /**
+         * let a suspended timeout run on for the time it had left.
+         */
+        public void resume() {
+            if (state.get() != SUSPENDED) {
+                return;
+            }
+            // only read while armed, set before a concurrent suspend can see the state.
+            deadlineNanos = System.nanoTime() + remainingNanos;
+            if (!state.compareAndSet(SUSPENDED, ARMED)) {
+                return;
+            }
+            ScheduledFuture<?> f = executor.schedule(this, remainingNanos, TimeUnit.NANOSECONDS);
+            future = f;
+            // disarmed or suspended again before the future was set.
+            if (state.get() != ARMED) {
+                f.cancel(false);
+            }
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
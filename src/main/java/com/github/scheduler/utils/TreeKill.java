@@ -0,0 +1,190 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * kill of a command's whole process tree.
+ *
+ * SIGTERM goes to the command's process group, if it leads one, and to every
+ * descendant found under it, so processes which left the group are hit too.
+ * the tree is polled until it is gone; whatever is still alive after the grace
+ * period gets SIGKILL. every poll reads /proc once and walks the tree again from
+ * every process found so far, since dying processes may still fork and orphans
+ * are reparented away from the command.
+ *
+ * processes are recorded with their start time, and a pid is only signalled while
+ * it still has it: a process which exited may have left its pid to an unrelated one.
+ */
+public class TreeKill {
+    private static final Logger LOG = LogManager.getLogger(TreeKill.class);
+
+    private static final long POLL_MILLIS = 50L;
+
+    // how long processes get to disappear after SIGKILL before we give up on them.
+    private static final long KILL_WAIT_MILLIS = 5000L;
+
+    private final long pid;
+    private final boolean processGroup;
+    private final long graceMillis;
+    private final ScheduledExecutorService timer;
+    // start time of every process found, by pid.
+    private final Map<Long, Long> pids = new LinkedHashMap<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private long startNanos;
+    private boolean escalated;
+    private ScheduledFuture<?> poll;
+    private volatile long millis = -1;
+
+    /**
+     * @param pid pid of the command.
+     * @param processGroup true if the command leads its own process group.
+     * @param graceMillis time the processes get to exit after SIGTERM.
+     * @param timer runs the polls.
+     */
+    TreeKill(long pid, boolean processGroup, long graceMillis, ScheduledExecutorService timer) {
+        this.pid = pid;
+        this.processGroup = processGroup;
+        this.graceMillis = graceMillis;
+        this.timer = timer;
+    }
+
+    /**
+     * send SIGTERM and start polling.
+     */
+    synchronized void start() {
+        startNanos = System.nanoTime();
+        try {
+            signal("TERM", collect());
+            poll = timer.scheduleWithFixedDelay(this::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Throwable t) {
+            // started off the waiter's thread, a failure must still release it.
+            LOG.error(Utils.stackTrace(t));
+            finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * add the processes of the tree which appeared since the last poll, from one read of /proc.
+     * @return the read, to tell which of them are alive.
+     */
+    private ProcessTree.Snapshot collect() {
+        ProcessTree.Snapshot snapshot = ProcessTree.snapshot();
+        if (pids.isEmpty()) {
+            record(snapshot, pid);
+        }
+        for (Long p : snapshot.descendants(alive(snapshot))) {
+            record(snapshot, p);
+        }
+        if (processGroup) {
+            for (Long p : snapshot.groupMembers(pid)) {
+                record(snapshot, p);
+            }
+        }
+        return snapshot;
+    }
+
+    private void record(ProcessTree.Snapshot snapshot, long p) {
+        if (snapshot.isAlive(p) && !pids.containsKey(p)) {
+            pids.put(p, snapshot.startTime(p));
+        }
+    }
+
+    /**
+     * the processes found which are still alive, reused pids left out.
+     */
+    private List<Long> alive(ProcessTree.Snapshot snapshot) {
+        List<Long> alive = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : pids.entrySet()) {
+            long p = entry.getKey();
+            if (snapshot.isAlive(p) && snapshot.startTime(p) == entry.getValue()) {
+                alive.add(p);
+            }
+        }
+        return alive;
+    }
+
+    private void signal(String signal, ProcessTree.Snapshot snapshot) {
+        List<Long> alive = alive(snapshot);
+        List<Long> targets = new ArrayList<>(alive);
+        // the group id is not reused while one of its members lives, so the group is
+        // still the command's if a process found in it is.
+        if (processGroup) {
+            for (Long p : alive) {
+                if (snapshot.group(p) == pid) {
+                    targets.add(-pid);
+                    break;
+                }
+            }
+        }
+        ProcessTree.signal(signal, targets);
+    }
+
+    private synchronized void poll() {
+        try {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            ProcessTree.Snapshot snapshot = collect();
+            if (alive(snapshot).isEmpty()) {
+                finish(elapsedMillis);
+            } else if (!escalated && elapsedMillis >= graceMillis) {
+                escalated = true;
+                LOG.warn("process tree of {} still alive {} ms after SIGTERM, sending SIGKILL", pid, elapsedMillis);
+                signal("KILL", snapshot);
+            } else if (escalated && elapsedMillis >= graceMillis + KILL_WAIT_MILLIS) {
+                LOG.error("process tree of {} survived SIGKILL, giving up:{}", pid, alive(snapshot));
+                finish(elapsedMillis);
+            }
+        } catch (Throwable t) {
+            // an exception would cancel the polling and leave waiters hanging.
+            LOG.error(Utils.stackTrace(t));
+            finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    private void finish(long elapsedMillis) {
+        millis = elapsedMillis;
+        if (poll != null) {
+            poll.cancel(false);
+        }
+        done.countDown();
+    }
+
+    /**
+     * wait until the tree is gone, without giving up on an interrupt.
+     * the interrupt status is kept.
+     */
+    void await() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * pids of every process the kill was sent to.
+     */
+    synchronized List<Long> getPids() {
+        return new ArrayList<>(pids.keySet());
+    }
+
+    /**
+     * time from SIGTERM until the tree was gone, -1 while it is still alive.
+     */
+    long getMillis() {
+        return this.millis;
+    }
+}
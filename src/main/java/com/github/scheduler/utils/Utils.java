@@ -10,10 +10,15 @@ import java.util.Calendar;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Pattern;
 
 public final class Utils {
     public static final boolean WINDOWS = System.getProperty("os.name") != null && System.getProperty("os.name").startsWith("Windows");
+    // the last stretch of sleepUntil() is spun instead of parked.
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
     public static final boolean LINUX = System.getProperty("os.name") != null && System.getProperty("os.name").startsWith("Linux");
 
     public static final Pattern COMMON_DATE_TIME_PATTERN = Pattern.compile(
@@ -341,6 +346,35 @@ public final class Utils {
         }
     }
 
+    /**
+     * sleep until a wall clock time. the thread parks until shortly before it and
+     * spins the rest, so it wakes up within microseconds instead of the timer slack.
+     * @param timeMillis wall clock time in milliseconds, returns at once if it passed.
+     */
+    public static void sleepUntil(long timeMillis) throws InterruptedException {
+        sleepUntilNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeMillis - System.currentTimeMillis()));
+    }
+
+    /**
+     * sleep until a {@link System#nanoTime()} deadline, see {@link #sleepUntil(long)}.
+     */
+    public static void sleepUntilNanos(long deadline) throws InterruptedException {
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
     /**
      * Get the stack trace from an exception as a string
      */
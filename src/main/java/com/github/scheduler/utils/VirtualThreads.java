@@ -0,0 +1,91 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * access to virtual threads from the java 8 code base.
+ *
+ * the implementation lives in src/main/java21 and is only compiled by the jdk21
+ * build profile (mvn -Pjdk21 package); with the default build, or on an older
+ * runtime, {@link #isAvailable()} is false and callers stay on platform threads.
+ */
+public final class VirtualThreads {
+    private static final Logger LOG = LogManager.getLogger(VirtualThreads.class);
+
+    private static final String SUPPORT_CLASS = "com.github.scheduler.utils.VirtualThreadSupport";
+
+    private static final Support SUPPORT = loadSupport();
+
+    /**
+     * operations implemented on top of the java 21 thread API.
+     */
+    public interface Support {
+        Thread newThread(String name, Runnable task);
+
+        ExecutorService newThreadPerTaskExecutor(String prefix);
+
+        boolean isVirtual(Thread thread);
+
+        int waitFor(Process process) throws InterruptedException;
+    }
+
+    // no instance.
+    private VirtualThreads(){}
+
+    private static Support loadSupport() {
+        try {
+            return (Support) Class.forName(SUPPORT_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Throwable t) {
+            LOG.warn("virtual threads not available: {}", t.toString());
+            return null;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return SUPPORT != null;
+    }
+
+    /**
+     * @return true if the given thread is a virtual thread.
+     */
+    public static boolean isVirtual(Thread thread) {
+        return SUPPORT != null && SUPPORT.isVirtual(thread);
+    }
+
+    /**
+     * an unstarted virtual thread.
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public static Thread newThread(String name, Runnable task) {
+        return support().newThread(name, task);
+    }
+
+    /**
+     * an executor starting a new virtual thread for every task.
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return support().newThreadPerTaskExecutor(prefix);
+    }
+
+    /**
+     * wait for the process to exit without pinning the carrier of a virtual thread,
+     * {@link Process#waitFor()} waits on a monitor.
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public static int waitFor(Process process) throws InterruptedException {
+        return support().waitFor(process);
+    }
+
+    private static Support support() {
+        if (SUPPORT == null) {
+            throw new UnsupportedOperationException("virtual threads need the jdk21 build profile and a java 21+ runtime");
+        }
+        return SUPPORT;
+    }
+}
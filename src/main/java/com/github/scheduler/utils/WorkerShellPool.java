@@ -0,0 +1,607 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * a pool of long-lived bash coprocesses running short commands, which saves the
+ * fork/exec of a fresh bash from the jvm for every execution.
+ *
+ * a command is written to the worker's stdin and runs in a subshell in the background
+ * of the worker, which has job control on so every command leads its own process group.
+ * the subshell first prints its pid, then evals a "bash -c" script or execs the command.
+ * when it is done the worker prints a sentinel line with a random per-worker token, the
+ * exit code and whether processes were left in the command's group, on stdout and on
+ * stderr, which delimits the command's output on both streams.
+ *
+ * a worker is recycled after {@link #getMaxCommands()} commands, after a command was
+ * killed or left processes behind, and on any protocol error.
+ */
+public class WorkerShellPool {
+    private static final Logger LOG = LogManager.getLogger(WorkerShellPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 4;
+    public static final int DEFAULT_MAX_COMMANDS = 500;
+
+    // the stderr sentinel follows the stdout one right away, a longer wait means the worker is broken.
+    private static final long ERROR_SENTINEL_WAIT_MILLIS = 10000L;
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile WorkerShellPool defaultPool;
+
+    private final int maxIdle;
+    private final int maxCommands;
+    private final BlockingDeque<Worker> idle = new LinkedBlockingDeque<>();
+    private final AtomicLong spawned = new AtomicLong(0);
+    private final AtomicLong recycled = new AtomicLong(0);
+    private final AtomicLong executed = new AtomicLong(0);
+    private volatile boolean shutdown;
+
+    /**
+     * @param maxIdle workers kept alive between commands.
+     * @param maxCommands commands a worker runs before it is replaced.
+     */
+    public WorkerShellPool(int maxIdle, int maxCommands) {
+        if (maxIdle < 0 || maxCommands < 1) {
+            throw new IllegalArgumentException("maxIdle must be >= 0 and maxCommands >= 1");
+        }
+        this.maxIdle = maxIdle;
+        this.maxCommands = maxCommands;
+    }
+
+    /**
+     * the pool shared by all jobs running with a worker shell.
+     */
+    public static WorkerShellPool getDefault() {
+        if (defaultPool == null) {
+            synchronized (DEFAULT_LOCK) {
+                if (defaultPool == null) {
+                    defaultPool = new WorkerShellPool(DEFAULT_MAX_IDLE, DEFAULT_MAX_COMMANDS);
+                }
+            }
+        }
+        return defaultPool;
+    }
+
+    public static void setDefault(WorkerShellPool pool) {
+        synchronized (DEFAULT_LOCK) {
+            defaultPool = Utils.checkNotNull(pool);
+        }
+    }
+
+    /**
+     * @return false on windows, where there is no bash to keep.
+     */
+    public static boolean isSupported() {
+        return !Utils.WINDOWS;
+    }
+
+    /**
+     * run a command on an idle worker, or a new one if none is idle.
+     * @throws IOException if the worker fails, the worker is then replaced.
+     */
+    void execute(WorkerCommandExecutor command) throws IOException {
+        if (shutdown) {
+            throw new IOException("worker shell pool is shut down");
+        }
+        Worker worker = idle.pollFirst();
+        if (worker == null) {
+            worker = new Worker();
+        }
+        boolean reusable = false;
+        try {
+            reusable = worker.run(command);
+            executed.incrementAndGet();
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        // the most recently used worker goes first, the others may idle out of the pool.
+        if (reusable && !shutdown && worker.commands < maxCommands && idle.size() < maxIdle) {
+            idle.offerFirst(worker);
+        } else {
+            worker.close(!reusable);
+        }
+    }
+
+    /**
+     * stop the idle workers; busy workers stop after their command.
+     */
+    public void shutdown() {
+        shutdown = true;
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            worker.close(false);
+        }
+    }
+
+    public int getMaxIdle() {
+        return this.maxIdle;
+    }
+
+    public int getMaxCommands() {
+        return this.maxCommands;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * number of workers started since start.
+     */
+    public long getSpawnedCount() {
+        return spawned.get();
+    }
+
+    /**
+     * number of workers stopped since start.
+     */
+    public long getRecycledCount() {
+        return recycled.get();
+    }
+
+    /**
+     * number of commands run since start.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * one bash coprocess.
+     */
+    private final class Worker {
+        private final Process process;
+        private final long pid;
+        private final OutputStream stdin;
+        private final InputStream stdout;
+        private final String token;
+        private final byte[] pidPrefix;
+        private final byte[] exitPrefix;
+        private final byte[] errorSentinel;
+        private final BlockingQueue<byte[]> errors = new ArrayBlockingQueue<>(1);
+        private final Thread errReader;
+        private final byte[] chunk = new byte[8192];
+        private int commands;
+
+        private Worker() throws IOException {
+            token = "__tiny_scheduler_" + UUID.randomUUID().toString().replace("-", "");
+            pidPrefix = (token + "_pid ").getBytes(StandardCharsets.US_ASCII);
+            exitPrefix = (token + " ").getBytes(StandardCharsets.US_ASCII);
+            errorSentinel = token.getBytes(StandardCharsets.US_ASCII);
+
+            process = new ProcessBuilder("bash", "--noprofile", "--norc", "-s").start();
+            pid = ProcessTree.pid(process);
+            stdin = process.getOutputStream();
+            stdout = process.getInputStream();
+            spawned.incrementAndGet();
+
+            errReader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    readErrors(process.getErrorStream());
+                }
+            }, "worker-shell-stderr-" + pid);
+            errReader.setDaemon(true);
+            errReader.start();
+
+            // job control: every command gets its own process group.
+            send("set -m\n");
+        }
+
+        private void send(String text) throws IOException {
+            stdin.write(text.getBytes(Charset.defaultCharset()));
+            stdin.flush();
+        }
+
+        /**
+         * @return true if the worker can run further commands.
+         */
+        private boolean run(WorkerCommandExecutor command) throws IOException {
+            commands++;
+            command.reset();
+            send(script(command.getExecString()));
+
+            Capture out = new Capture();
+            int lineStart = 0;
+            long commandPid = -1;
+            while (true) {
+                int n = stdout.read(chunk);
+                if (n < 0) {
+                    throw new IOException("worker shell " + pid + " exited");
+                }
+                for (int i = 0; i < n; i++) {
+                    out.write(chunk[i]);
+                    if (chunk[i] != '\n') {
+                        continue;
+                    }
+                    if (commandPid < 0) {
+                        // the subshell prints its pid before anything else.
+                        if (!out.startsWith(0, pidPrefix)) {
+                            throw new IOException("worker shell " + pid + " protocol error, no pid line");
+                        }
+                        commandPid = out.parseLong(pidPrefix.length, out.size() - 1);
+                        command.started(commandPid);
+                        out.reset();
+                        lineStart = 0;
+                    } else if (out.startsWith(lineStart, exitPrefix)) {
+                        String[] fields = out.string(lineStart + exitPrefix.length, out.size() - 1).split(" ");
+                        if (fields.length != 2) {
+                            throw new IOException("worker shell " + pid + " protocol error, bad sentinel");
+                        }
+                        // the sentinel line starts with a newline of its own.
+                        byte[] output = out.copy(Math.max(lineStart - 1, 0));
+                        byte[] error = awaitError();
+                        boolean leftovers = "1".equals(fields[1]);
+                        boolean killed = command.finished(Integer.parseInt(fields[0]), output, error, leftovers);
+                        // what a killed command or its leftovers still wrote would end up in the next output.
+                        return !killed && !leftovers;
+                    } else {
+                        lineStart = out.size();
+                    }
+                }
+            }
+        }
+
+        private byte[] awaitError() throws IOException {
+            try {
+                byte[] error = errors.poll(ERROR_SENTINEL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (error == null) {
+                    throw new IOException("worker shell " + pid + " protocol error, no stderr sentinel");
+                }
+                return error;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted waiting for worker shell " + pid, ie);
+            }
+        }
+
+        private void readErrors(InputStream stderr) {
+            Capture err = new Capture();
+            byte[] buf = new byte[8192];
+            int lineStart = 0;
+            try {
+                int n;
+                while ((n = stderr.read(buf)) >= 0) {
+                    for (int i = 0; i < n; i++) {
+                        err.write(buf[i]);
+                        if (buf[i] != '\n') {
+                            continue;
+                        }
+                        if (err.size() - 1 - lineStart == errorSentinel.length && err.startsWith(lineStart, errorSentinel)) {
+                            errors.put(err.copy(Math.max(lineStart - 1, 0)));
+                            err.reset();
+                            lineStart = 0;
+                        } else {
+                            lineStart = err.size();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOG.debug("stderr of worker shell {} closed:{}", pid, e.getMessage());
+            } catch (InterruptedException ie) {
+                // the worker is closed.
+            }
+        }
+
+        /**
+         * the protocol text of one command.
+         */
+        private String script(String[] command) {
+            String body;
+            if (command.length == 3 && ("bash".equals(command[0]) || "sh".equals(command[0])) && "-c".equals(command[1])) {
+                // a script runs in the subshell itself, no further bash is started.
+                body = "eval " + Shell.bashQuote(command[2]);
+            } else {
+                StringBuilder sb = new StringBuilder("exec");
+                for (String arg : command) {
+                    sb.append(' ').append(Shell.bashQuote(arg));
+                }
+                body = sb.toString();
+            }
+            return "( printf '%s %d\\n' " + token + "_pid \"$BASHPID\"; " + body + "\n) </dev/null & "
+                    + "__p=$!; wait $__p 2>/dev/null; __r=$?; "
+                    + "if kill -0 -- -$__p 2>/dev/null; then __l=1; else __l=0; fi; "
+                    + "printf '\\n%s %d %d\\n' " + token + " $__r $__l; "
+                    + "printf '\\n%s\\n' " + token + " >&2\n";
+        }
+
+        /**
+         * @param force kill the worker's process tree instead of letting it exit.
+         */
+        private void close(boolean force) {
+            recycled.incrementAndGet();
+            if (force && Utils.LINUX && pid > 0) {
+                ProcessTree.signal("KILL", ProcessTree.tree(pid));
+            }
+            try {
+                // bash exits at the end of its input.
+                stdin.close();
+            } catch (IOException e) {
+                LOG.debug("can not close stdin of worker shell {}:{}", pid, e.getMessage());
+            }
+            if (force) {
+                process.destroyForcibly();
+            }
+            errReader.interrupt();
+        }
+    }
+
+    /**
+     * a byte buffer with access to its content.
+     */
+    private static final class Capture extends ByteArrayOutputStream {
+        private boolean startsWith(int offset, byte[] prefix) {
+            if (count - offset < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buf[offset + i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long parseLong(int from, int to) throws IOException {
+            try {
+                return Long.parseLong(string(from, to).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("worker shell protocol error:" + e.getMessage());
+            }
+        }
+
+        private String string(int from, int to) {
+            return new String(buf, from, to - from, StandardCharsets.US_ASCII);
+        }
+
+        private byte[] copy(int length) {
+            byte[] copy = new byte[length];
+            System.arraycopy(buf, 0, copy, 0, length);
+            return copy;
+        }
+    }
+
+    /**
+     * a command run by a worker shell of a pool, with the kill, pause and timeout
+     * semantics of {@link Shell}: its process group and descendants are signalled.
+     */
+    public static class WorkerCommandExecutor implements Shell.CommandExecutor {
+        private final String[] command;
+        private final WorkerShellPool pool;
+        private long timeOutInterval = 0L;
+        private long killGraceMillis = 5000L;
+        private final AtomicBoolean timedOut = new AtomicBoolean(false);
+        private final AtomicBoolean paused = new AtomicBoolean(false);
+        private final AtomicReference<TreeKill> treeKill = new AtomicReference<>();
+        private volatile long pid = -1;
+        private volatile boolean running;
+        private volatile long pendingKillGraceMillis = -1;
+        // suspended while the command is paused.
+        private TimeoutWatchdog.Timeout timeout;
+        private int exitCode;
+        private String output = "";
+        private String error = "";
+        private List<Long> killedPids = Collections.emptyList();
+        private long killMillis = -1;
+
+        public WorkerCommandExecutor(String[] command, WorkerShellPool pool) {
+            this.command = command.clone();
+            this.pool = Utils.checkNotNull(pool);
+        }
+
+        @Override
+        public void execute() throws IOException {
+            pool.execute(this);
+        }
+
+        private synchronized void reset() {
+            exitCode = 0;
+            output = "";
+            error = "";
+            timedOut.set(false);
+            paused.set(false);
+            treeKill.set(null);
+            killedPids = Collections.emptyList();
+            killMillis = -1;
+            pid = -1;
+            pendingKillGraceMillis = -1;
+            running = true;
+        }
+
+        private void started(long commandPid) {
+            synchronized (this) {
+                pid = commandPid;
+                if (timeOutInterval > 0) {
+                    timeout = TimeoutWatchdog.getShared().arm(timeOutInterval, new Runnable() {
+                        @Override
+                        public void run() {
+                            timedOut.set(true);
+                            Shell.KILL_ESCALATOR.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    kill(killGraceMillis);
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+            // a kill requested before the pid was known.
+            if (pendingKillGraceMillis >= 0) {
+                kill(pendingKillGraceMillis);
+            }
+        }
+
+        /**
+         * @return true if the command was killed.
+         */
+        private boolean finished(int code, byte[] out, byte[] err, boolean leftovers) {
+            TimeoutWatchdog.Timeout t;
+            synchronized (this) {
+                running = false;
+                t = timeout;
+                timeout = null;
+            }
+            if (t != null) {
+                t.disarm();
+            }
+            if (leftovers && treeKill.get() == null) {
+                TreeKill kill = new TreeKill(pid, true, killGraceMillis, Shell.KILL_ESCALATOR);
+                if (treeKill.compareAndSet(null, kill)) {
+                    LOG.warn("command {} left processes behind in its group, killing them", pid);
+                    kill.start();
+                }
+            }
+            TreeKill kill = treeKill.get();
+            if (kill != null) {
+                kill.await();
+                killedPids = kill.getPids();
+                killMillis = kill.getMillis();
+                if (!killedPids.isEmpty()) {
+                    LOG.debug("killed process tree of {} in {} ms:{}", pid, killMillis, killedPids);
+                }
+            }
+
+            Charset charset = Charset.defaultCharset();
+            exitCode = code;
+            output = new String(out, charset);
+            error = new String(err, charset);
+            if (exitCode != 0) {
+                LOG.error("exec error, exit code:{} ,errMsg:{}", exitCode, error);
+            }
+            return kill != null;
+        }
+
+        /**
+         * kill the running command's process group and descendants, see {@link Shell#kill(long)}.
+         */
+        public void kill(long graceMillis) {
+            if (!running) {
+                return;
+            }
+            long p = pid;
+            if (p <= 0) {
+                pendingKillGraceMillis = graceMillis;
+                return;
+            }
+            TreeKill kill = new TreeKill(p, true, graceMillis, Shell.KILL_ESCALATOR);
+            if (treeKill.compareAndSet(null, kill)) {
+                kill.start();
+                resume();
+            }
+        }
+
+        /**
+         * stop the running command with SIGSTOP, see {@link Shell#pause()}.
+         */
+        public boolean pause() {
+            long p = pid;
+            if (!running || p <= 0 || !paused.compareAndSet(false, true)) {
+                return false;
+            }
+            if (!ProcessTree.signal("STOP", signalTargets(p))) {
+                paused.set(false);
+                return false;
+            }
+            TimeoutWatchdog.Timeout t;
+            synchronized (this) {
+                t = timeout;
+            }
+            if (t != null) {
+                t.suspend();
+            }
+            return true;
+        }
+
+        public void resume() {
+            long p = pid;
+            if (p <= 0 || !paused.compareAndSet(true, false)) {
+                return;
+            }
+            TimeoutWatchdog.Timeout t;
+            synchronized (this) {
+                t = timeout;
+            }
+            if (t != null) {
+                t.resume();
+            }
+            ProcessTree.signal("CONT", signalTargets(p));
+        }
+
+        private static List<Long> signalTargets(long p) {
+            List<Long> targets = new ArrayList<>(ProcessTree.tree(p));
+            targets.add(-p);
+            return targets;
+        }
+
+        public void setTimeoutInterval(long timeOutInterval) {
+            this.timeOutInterval = timeOutInterval;
+        }
+
+        public void setKillGraceMillis(long killGraceMillis) {
+            this.killGraceMillis = killGraceMillis;
+        }
+
+        public String[] getExecString() {
+            return this.command;
+        }
+
+        @Override
+        public int getExitCode() {
+            return this.exitCode;
+        }
+
+        @Override
+        public String getOutput() {
+            return this.output;
+        }
+
+        @Override
+        public String getError() {
+            return this.error;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut.get();
+        }
+
+        public boolean isPaused() {
+            return paused.get();
+        }
+
+        public List<Long> getKilledPids() {
+            return this.killedPids;
+        }
+
+        public long getKillMillis() {
+            return this.killMillis;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
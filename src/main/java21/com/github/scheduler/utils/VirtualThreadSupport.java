@@ -0,0 +1,37 @@
+package com.github.scheduler.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * virtual thread operations, compiled by the jdk21 build profile only.
+ * loaded reflectively by {@link VirtualThreads}.
+ */
+public class VirtualThreadSupport implements VirtualThreads.Support {
+
+    @Override
+    public Thread newThread(String name, Runnable task) {
+        return Thread.ofVirtual().name(name).unstarted(task);
+    }
+
+    @Override
+    public ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory());
+    }
+
+    @Override
+    public boolean isVirtual(Thread thread) {
+        return thread.isVirtual();
+    }
+
+    @Override
+    public int waitFor(Process process) throws InterruptedException {
+        // onExit completes from the jdk's shared process reaper, get() parks the virtual thread only.
+        try {
+            return process.onExit().get().exitValue();
+        } catch (ExecutionException e) {
+            return process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.scheduler.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+
+/**
+ * pidfd and pipe supervision in one epoll loop, calling libc through the foreign
+ * function API. compiled by the jdk22 build profile only, loaded reflectively by
+ * {@link ProcessReaper}.
+ *
+ * every fd is registered level-triggered with the fd itself as epoll data. a pidfd
+ * turns readable when its process exits; a pipe is read until EAGAIN or end of file,
+ * at most a few chunks per wakeup so one chatty command can't starve the others.
+ */
+public class EpollReaper implements ProcessReaper.Support {
+    private static final Logger LOG = LogManager.getLogger(EpollReaper.class);
+
+    private static final long SYS_PIDFD_OPEN = 434L;
+    private static final int EPOLL_CLOEXEC = 0x80000;
+    private static final int O_CLOEXEC = 0x80000;
+    private static final int O_NONBLOCK = 0x800;
+    private static final int EPOLL_CTL_ADD = 1;
+    private static final int EPOLLIN = 0x001;
+    private static final int EINTR = 4;
+    private static final int EAGAIN = 11;
+
+    // struct epoll_event is packed on x86_64: 4 bytes events, 8 bytes data.
+    private static final boolean PACKED_EVENT = "amd64".equals(System.getProperty("os.arch"))
+            || "x86_64".equals(System.getProperty("os.arch"));
+    private static final long EVENT_SIZE = PACKED_EVENT ? 12 : 16;
+    private static final long EVENT_DATA_OFFSET = PACKED_EVENT ? 4 : 8;
+
+    private static final int MAX_EVENTS = 256;
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final int READS_PER_WAKEUP = 4;
+
+    private final MethodHandle epollCreate1;
+    private final MethodHandle epollCtl;
+    private final MethodHandle epollWait;
+    private final MethodHandle pipe2;
+    private final MethodHandle read;
+    private final MethodHandle close;
+    private final MethodHandle syscall;
+    private final MemoryLayout stateLayout;
+    private final long errnoOffset;
+
+    private final int epfd;
+    private final Map<Integer, Registration> registrations = new ConcurrentHashMap<>();
+    private final AtomicInteger watched = new AtomicInteger(0);
+
+    public EpollReaper() throws Throwable {
+        Linker linker = Linker.nativeLinker();
+        SymbolLookup libc = linker.defaultLookup();
+        Linker.Option errno = Linker.Option.captureCallState("errno");
+        stateLayout = Linker.Option.captureStateLayout();
+        errnoOffset = stateLayout.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+        epollCreate1 = linker.downcallHandle(find(libc, "epoll_create1"),
+                FunctionDescriptor.of(JAVA_INT, JAVA_INT), errno);
+        epollCtl = linker.downcallHandle(find(libc, "epoll_ctl"),
+                FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS), errno);
+        epollWait = linker.downcallHandle(find(libc, "epoll_wait"),
+                FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT), errno);
+        pipe2 = linker.downcallHandle(find(libc, "pipe2"),
+                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT), errno);
+        read = linker.downcallHandle(find(libc, "read"),
+                FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), errno);
+        close = linker.downcallHandle(find(libc, "close"),
+                FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+        syscall = linker.downcallHandle(find(libc, "syscall"),
+                FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_INT, JAVA_INT),
+                errno, Linker.Option.firstVariadicArg(1));
+
+        // pidfd_open needs linux 5.3, fail here rather than on the first command.
+        int self = pidfdOpen(ProcessHandle.current().pid());
+        if (self < 0) {
+            throw new IOException("pidfd_open not supported, errno " + (-self));
+        }
+        close(self);
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment state = arena.allocate(stateLayout);
+            epfd = (int) epollCreate1.invokeExact(state, EPOLL_CLOEXEC);
+            if (epfd < 0) {
+                throw new IOException("epoll_create1 failed, errno " + errno(state));
+            }
+        }
+
+        Thread loop = new Thread(this::loop, "process-reaper");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    private static MemorySegment find(SymbolLookup lookup, String name) {
+        return lookup.find(name).orElseThrow(() -> new UnsatisfiedLinkError("libc function not found:" + name));
+    }
+
+    @Override
+    public int[] pipe() throws IOException {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment fds = arena.allocate(8, 4);
+            MemorySegment state = arena.allocate(stateLayout);
+            int ret = (int) pipe2.invokeExact(state, fds, O_NONBLOCK | O_CLOEXEC);
+            if (ret < 0) {
+                throw new IOException("pipe2 failed, errno " + errno(state));
+            }
+            // the child opens the write end through /proc/self/fd as a new, blocking file description.
+            return new int[]{fds.get(JAVA_INT, 0), fds.get(JAVA_INT, 4)};
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+    @Override
+    public void close(int fd) {
+        try {
+            int ret = (int) close.invokeExact(fd);
+        } catch (Throwable t) {
+            LOG.error(Utils.stackTrace(t));
+        }
+    }
+
+    @Override
+    public void watch(Process process, long pid, int[] readFds, ProcessReaper.Watcher watcher) throws IOException {
+        for (int i = 0; i < readFds.length; i++) {
+            if (readFds[i] < 0) {
+                continue;
+            }
+            try {
+                register(readFds[i], new Registration(watcher, i));
+            } catch (IOException e) {
+                for (int j = i; j < readFds.length; j++) {
+                    if (readFds[j] >= 0) {
+                        close(readFds[j]);
+                    }
+                }
+                throw e;
+            }
+        }
+
+        int pidfd = pidfdOpen(pid);
+        if (pidfd < 0 || !process.isAlive()) {
+            // already exited and reaped by the jdk, the pid may even belong to another process by now.
+            if (pidfd >= 0) {
+                close(pidfd);
+            }
+            watcher.onExit();
+            return;
+        }
+        watched.incrementAndGet();
+        register(pidfd, new Registration(watcher, -1));
+    }
+
+    @Override
+    public int getWatchedCount() {
+        return watched.get();
+    }
+
+    /**
+     * @return the pidfd, or -errno.
+     */
+    private int pidfdOpen(long pid) throws IOException {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment state = arena.allocate(stateLayout);
+            long ret = (long) syscall.invokeExact(state, SYS_PIDFD_OPEN, (int) pid, 0);
+            return ret < 0 ? -errno(state) : (int) ret;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+    private void register(int fd, Registration registration) throws IOException {
+        registrations.put(fd, registration);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment event = arena.allocate(EVENT_SIZE, 8);
+            event.set(JAVA_INT, 0, EPOLLIN);
+            event.set(JAVA_LONG_UNALIGNED, EVENT_DATA_OFFSET, fd);
+            MemorySegment state = arena.allocate(stateLayout);
+            int ret = (int) epollCtl.invokeExact(state, epfd, EPOLL_CTL_ADD, fd, event);
+            if (ret < 0) {
+                registrations.remove(fd);
+                throw new IOException("epoll_ctl failed for fd " + fd + ", errno " + errno(state));
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable t) {
+            registrations.remove(fd);
+            throw new IOException(t);
+        }
+    }
+
+    private void unregister(int fd, Registration registration) {
+        // out of the map before close, the fd number may be handed out again right after.
+        registrations.remove(fd);
+        if (registration.stream < 0) {
+            watched.decrementAndGet();
+        }
+        close(fd);
+    }
+
+    private void loop() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment events = arena.allocate(EVENT_SIZE * MAX_EVENTS, 8);
+            MemorySegment buffer = arena.allocate(READ_CHUNK);
+            MemorySegment state = arena.allocate(stateLayout);
+            while (true) {
+                int n = (int) epollWait.invokeExact(state, epfd, events, MAX_EVENTS, -1);
+                if (n < 0) {
+                    int err = errno(state);
+                    if (err == EINTR) {
+                        continue;
+                    }
+                    LOG.error("epoll_wait failed, errno {}, process reaper stopped", err);
+                    return;
+                }
+                for (int i = 0; i < n; i++) {
+                    int fd = (int) events.get(JAVA_LONG_UNALIGNED, i * EVENT_SIZE + EVENT_DATA_OFFSET);
+                    Registration registration = registrations.get(fd);
+                    if (registration == null) {
+                        continue;
+                    }
+                    try {
+                        if (registration.stream < 0) {
+                            unregister(fd, registration);
+                            registration.watcher.onExit();
+                        } else {
+                            drain(fd, registration, buffer, state);
+                        }
+                    } catch (Throwable t) {
+                        // a failing watcher must not stop the loop for all other processes.
+                        LOG.error(Utils.stackTrace(t));
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            LOG.error("process reaper stopped:{}", Utils.stackTrace(t));
+        }
+    }
+
+    private void drain(int fd, Registration registration, MemorySegment buffer, MemorySegment state) throws Throwable {
+        for (int i = 0; i < READS_PER_WAKEUP; i++) {
+            long count = (long) read.invokeExact(state, fd, buffer, (long) READ_CHUNK);
+            if (count > 0) {
+                byte[] data = buffer.asSlice(0, count).toArray(JAVA_BYTE);
+                registration.watcher.onData(registration.stream, data, data.length);
+                if (count < READ_CHUNK) {
+                    return;
+                }
+            } else if (count == 0) {
+                unregister(fd, registration);
+                registration.watcher.onEof(registration.stream);
+                return;
+            } else {
+                int err = errno(state);
+                if (err == EAGAIN) {
+                    return;
+                }
+                if (err != EINTR) {
+                    LOG.warn("read of fd {} failed, errno {}", fd, err);
+                    unregister(fd, registration);
+                    registration.watcher.onEof(registration.stream);
+                    return;
+                }
+            }
+        }
+    }
+
+    private int errno(MemorySegment state) {
+        return state.get(JAVA_INT, errnoOffset);
+    }
+
+    private static class Registration {
+        private final ProcessReaper.Watcher watcher;
+        // index of the pipe, -1 for the pidfd.
+        private final int stream;
+
+        private Registration(ProcessReaper.Watcher watcher, int stream) {
+            this.watcher = watcher;
+            this.stream = stream;
+        }
+    }
+}
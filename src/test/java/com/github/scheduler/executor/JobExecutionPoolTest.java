@@ -0,0 +1,121 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobConfig;
+import com.github.scheduler.model.JobResponse;
+import com.github.scheduler.model.RetryPolicy;
+import com.github.scheduler.utils.DirectBufferPool;
+import com.github.scheduler.utils.PooledOutput;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * a response nobody takes over, of a retried or a cancelled attempt, gives its pooled buffers back.
+ */
+public class JobExecutionPoolTest {
+
+    /**
+     * a response with its output in one buffer of the pool.
+     */
+    private static JobResponse response(DirectBufferPool buffers, int retCode) {
+        PooledOutput output = new PooledOutput(buffers, StandardCharsets.UTF_8);
+        byte[] line = ("exit " + retCode + "\n").getBytes(StandardCharsets.UTF_8);
+        output.write(line, 0, line.length);
+        JobResponse response = new JobResponse("test");
+        response.setRetCode(retCode);
+        response.setCapturedOutput(output);
+        return response;
+    }
+
+    private static void awaitReturned(DirectBufferPool buffers, long returned) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (buffers.getReturnedCount() < returned && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(returned, buffers.getReturnedCount());
+    }
+
+    @Test
+    public void releasesResponsesOfRetriedAttempts() throws Exception {
+        final DirectBufferPool buffers = new DirectBufferPool(1024 * 1024);
+        final AtomicInteger attempts = new AtomicInteger();
+        JobExecutionPool pool = new JobExecutionPool("retry-test");
+        try {
+            JobConfig config = new JobConfig("retried");
+            config.setRetryPolicy(new RetryPolicy(3, 1L));
+            JobResponse response = pool.submit(config, new Callable<JobResponse>() {
+                @Override
+                public JobResponse call() {
+                    // the first two attempts fail.
+                    return response(buffers, attempts.incrementAndGet() < 3 ? 1 : 0);
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertEquals(3, attempts.get());
+            assertEquals(0, response.getRetCode());
+            // only the buffer of the final response is still taken.
+            assertEquals(1, buffers.getInUseCount());
+            assertEquals("exit 0\n", response.getOutput());
+            assertEquals(0, buffers.getInUseCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void keepsOnlyFinalResponseOfFailingJob() throws Exception {
+        final DirectBufferPool buffers = new DirectBufferPool(1024 * 1024);
+        JobExecutionPool pool = new JobExecutionPool("exhausted-test");
+        try {
+            JobConfig config = new JobConfig("failing");
+            config.setRetryPolicy(new RetryPolicy(4, 1L));
+            JobResponse response = pool.submit(config, new Callable<JobResponse>() {
+                @Override
+                public JobResponse call() {
+                    return response(buffers, 2);
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertEquals(2, response.getRetCode());
+            assertEquals(1, buffers.getInUseCount());
+            response.release();
+            assertEquals(0, buffers.getInUseCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void releasesResponseOfCancelledAttempt() throws Exception {
+        final DirectBufferPool buffers = new DirectBufferPool(1024 * 1024);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        JobExecutionPool pool = new JobExecutionPool("cancel-test");
+        try {
+            JobHandle handle = pool.submit("cancelled", new Callable<JobResponse>() {
+                @Override
+                public JobResponse call() throws Exception {
+                    started.countDown();
+                    cancelled.await();
+                    return response(buffers, 0);
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(handle.cancel(false));
+            cancelled.countDown();
+
+            // the attempt completes after the cancel, its response has no taker.
+            awaitReturned(buffers, 1);
+            assertEquals(0, buffers.getInUseCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
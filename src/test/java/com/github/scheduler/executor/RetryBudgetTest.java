@@ -0,0 +1,110 @@
+package com.github.scheduler.executor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+    /**
+     * a budget over a window of one second, ten buckets of 100 ms, on a clock set by the test.
+     */
+    private static final class ManualBudget extends RetryBudget {
+        private long now;
+
+        private ManualBudget(double ratio, int minRetries) {
+            super(ratio, minRetries, 1000L);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static void recordExecutions(RetryBudget budget, int executions) {
+        for (int i = 0; i < executions; i++) {
+            budget.recordExecution();
+        }
+    }
+
+    private static void acquire(RetryBudget budget, int retries) {
+        for (int i = 0; i < retries; i++) {
+            assertTrue("retry " + i, budget.tryAcquireRetry());
+        }
+    }
+
+    @Test
+    public void allowsMinRetriesWithoutExecutions() {
+        ManualBudget budget = new ManualBudget(0.1, 2);
+        acquire(budget, 2);
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void limitsRetriesToRatioOfExecutions() {
+        ManualBudget budget = new ManualBudget(0.1, 0);
+        recordExecutions(budget, 50);
+        acquire(budget, 5);
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void keepsRetriesWithinWindow() {
+        ManualBudget budget = new ManualBudget(0.1, 2);
+        acquire(budget, 2);
+        budget.now = 500;
+        assertFalse(budget.tryAcquireRetry());
+        budget.now = 999;
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void releasesRetriesOfBucketLeavingWindow() {
+        ManualBudget budget = new ManualBudget(0.1, 2);
+        acquire(budget, 1);
+        budget.now = 550;
+        acquire(budget, 1);
+        assertFalse(budget.tryAcquireRetry());
+
+        // the bucket of the first retry rolls over, the one at 550 ms stays.
+        budget.now = 1000;
+        acquire(budget, 1);
+        assertFalse(budget.tryAcquireRetry());
+        budget.now = 1499;
+        assertFalse(budget.tryAcquireRetry());
+        budget.now = 1500;
+        acquire(budget, 1);
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void forgetsExecutionsOfBucketLeavingWindow() {
+        ManualBudget budget = new ManualBudget(0.5, 0);
+        recordExecutions(budget, 10);
+        budget.now = 500;
+        acquire(budget, 5);
+        assertFalse(budget.tryAcquireRetry());
+
+        // the executions are gone, the retries are not.
+        budget.now = 1000;
+        assertFalse(budget.tryAcquireRetry());
+        recordExecutions(budget, 20);
+        acquire(budget, 5);
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    public void clearsWindowAfterLongPause() {
+        ManualBudget budget = new ManualBudget(0.1, 2);
+        recordExecutions(budget, 100);
+        acquire(budget, 10);
+        assertFalse(budget.tryAcquireRetry());
+
+        // more than a whole ring later, every bucket is stale, whichever index it lands on.
+        budget.now = 123456;
+        acquire(budget, 2);
+        assertFalse(budget.tryAcquireRetry());
+    }
+}
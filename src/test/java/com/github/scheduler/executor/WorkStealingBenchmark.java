@@ -0,0 +1,119 @@
+package com.github.scheduler.executor;
+
+import com.github.scheduler.model.JobConfig;
+import com.github.scheduler.model.JobResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * compares dispatching bursts of due jobs through a ScheduledThreadPoolExecutor,
+ * which is what the runners used to do, with the work stealing dispatcher and
+ * with the execution pool in both worker modes.
+ *
+ * usage: WorkStealingBenchmark [threads] [burst size] [rounds]
+ */
+public class WorkStealingBenchmark {
+    private static final int WARMUP_ROUNDS = 10;
+
+    // busy work of a short job in nanoseconds.
+    private static final long WORK_NANOS = 20000L;
+
+    private static volatile long sink;
+
+    private static void work() {
+        long end = System.nanoTime() + WORK_NANOS;
+        long x = 0;
+        while (System.nanoTime() < end) {
+            x++;
+        }
+        sink += x;
+    }
+
+    private interface Burst {
+        void run(int size) throws Exception;
+    }
+
+    private static void measure(String name, int burstSize, int rounds, Burst burst) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            burst.run(burstSize);
+        }
+
+        long[] samples = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            burst.run(burstSize);
+            samples[i] = System.nanoTime() - start;
+        }
+
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (long sample : samples) {
+            total += sample;
+            min = Math.min(min, sample);
+            max = Math.max(max, sample);
+        }
+        double avgMillis = total / (double) rounds / 1000000.0;
+        double jobsPerSecond = burstSize * rounds / (total / 1000000000.0);
+        System.out.printf("%-40s burst avg:%8.3f ms  min:%8.3f ms  max:%8.3f ms  %10.0f jobs/s%n",
+                name, avgMillis, min / 1000000.0, max / 1000000.0, jobsPerSecond);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int burstSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        System.out.println("threads:" + threads + " burst size:" + burstSize + " rounds:" + rounds);
+
+        ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(threads);
+        measure("ScheduledThreadPoolExecutor", burstSize, rounds, size -> {
+            CountDownLatch latch = new CountDownLatch(size);
+            for (int i = 0; i < size; i++) {
+                scheduled.schedule(() -> {
+                    work();
+                    latch.countDown();
+                }, 0, TimeUnit.MILLISECONDS);
+            }
+            latch.await();
+        });
+        scheduled.shutdown();
+
+        WorkStealingDispatcher dispatcher = new WorkStealingDispatcher("benchmark", threads);
+        measure("WorkStealingDispatcher.executeAll", burstSize, rounds, size -> {
+            CountDownLatch latch = new CountDownLatch(size);
+            List<Runnable> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(() -> {
+                    work();
+                    latch.countDown();
+                });
+            }
+            dispatcher.executeAll(batch);
+            latch.await();
+        });
+        System.out.println("steals:" + dispatcher.getStealCount());
+        dispatcher.shutdown();
+
+        for (WorkerMode mode : WorkerMode.values()) {
+            JobExecutionPool pool = new JobExecutionPool("benchmark-" + mode,
+                    new AdaptiveConcurrencyLimiter(threads, threads, threads), new ExecutionHistory(),
+                    burstSize, RejectionPolicy.ABORT, mode);
+            JobConfig config = new JobConfig("benchmark");
+            measure("JobExecutionPool.submitAll " + mode, burstSize, rounds, size -> {
+                List<Callable<JobResponse>> callables = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    callables.add(() -> {
+                        work();
+                        return null;
+                    });
+                }
+                for (JobHandle handle : pool.submitAll(config, callables)) {
+                    handle.get();
+                }
+            });
+            pool.shutdown();
+        }
+    }
+}
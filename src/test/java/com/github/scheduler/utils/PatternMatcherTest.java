@@ -0,0 +1,163 @@
+package com.github.scheduler.utils;
+
+import com.github.scheduler.model.OutputListener;
+import com.github.scheduler.model.OutputMatches;
+import com.github.scheduler.model.OutputPatterns;
+import com.github.scheduler.model.PatternMatch;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class PatternMatcherTest {
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+
+    private static PatternMatcher matcher(String... patterns) {
+        return new PatternMatcher(new OutputPatterns(Arrays.asList(patterns)), UTF_8);
+    }
+
+    /**
+     * scan the text as stdout, written in chunks of the given size.
+     */
+    private static OutputMatches scan(PatternMatcher matcher, String text, int chunk) {
+        PatternMatcher.Scan scan = matcher.newScan();
+        write(scan.stream(OutputListener.Stream.STDOUT), text, chunk);
+        return scan.result();
+    }
+
+    private static void write(PatternMatcher.StreamScan stream, String text, int chunk) {
+        byte[] bytes = text.getBytes(UTF_8);
+        for (int off = 0; off < bytes.length; off += chunk) {
+            stream.write(bytes, off, Math.min(chunk, bytes.length - off));
+        }
+        stream.end();
+    }
+
+    @Test
+    public void countsOverlappingMatches() {
+        OutputMatches matches = scan(matcher("aa"), "aaaa", 4);
+        assertEquals(3, matches.get("aa").getCount());
+        assertEquals(0, matches.get("aa").getFirstOutputOffset());
+    }
+
+    @Test
+    public void findsPatternsWhichAreSuffixesOfOthers() {
+        OutputMatches matches = scan(matcher("ERROR", "ROR", "OR"), "xERRORx", 7);
+        assertEquals(1, matches.get("ERROR").getCount());
+        assertEquals(1, matches.get("ROR").getCount());
+        assertEquals(1, matches.get("OR").getCount());
+        assertEquals(1, matches.get("ERROR").getFirstOutputOffset());
+        assertEquals(3, matches.get("ROR").getFirstOutputOffset());
+        assertEquals(4, matches.get("OR").getFirstOutputOffset());
+    }
+
+    @Test
+    public void findsPatternsWhichArePrefixesOfOthers() {
+        OutputMatches matches = scan(matcher("ab", "abc"), "abab abc", 8);
+        assertEquals(3, matches.get("ab").getCount());
+        assertEquals(1, matches.get("abc").getCount());
+        assertEquals(5, matches.get("abc").getFirstOutputOffset());
+    }
+
+    @Test
+    public void keepsMatchedPatternsInConfiguredOrder() {
+        OutputMatches matches = scan(matcher("b", "a", "c"), "abc", 3);
+        assertEquals(3, matches.getMatches().size());
+        assertEquals("b", matches.getMatches().get(0).getPattern());
+        assertEquals("a", matches.getMatches().get(1).getPattern());
+        assertEquals("c", matches.getMatches().get(2).getPattern());
+    }
+
+    @Test
+    public void findsNothingInUnrelatedOutput() {
+        OutputMatches matches = scan(matcher("ERROR"), "all fine\nERRO\nRROR\n", 5);
+        assertFalse(matches.isMatched());
+        assertNull(matches.get("ERROR"));
+    }
+
+    @Test
+    public void matchesAndSamplesSpanWrites() {
+        String text = "ok\nfoo ERROR bar\nERR\nOR\nlast ERROR\n";
+        PatternMatcher matcher = matcher("ERROR", "OR");
+        PatternMatch whole = scan(matcher, text, text.length()).get("ERROR");
+        assertEquals(2, whole.getCount());
+        assertEquals(7, whole.getFirstOutputOffset());
+        assertEquals(Arrays.asList("foo ERROR bar", "last ERROR"), whole.getSamples());
+        // every split of the output must find the same.
+        for (int chunk = 1; chunk < text.length(); chunk++) {
+            OutputMatches matches = scan(matcher, text, chunk);
+            PatternMatch error = matches.get("ERROR");
+            assertEquals("chunk " + chunk, whole.getCount(), error.getCount());
+            assertEquals("chunk " + chunk, whole.getFirstOutputOffset(), error.getFirstOutputOffset());
+            assertEquals("chunk " + chunk, whole.getSamples(), error.getSamples());
+            assertEquals("chunk " + chunk, 3, matches.get("OR").getCount());
+            assertEquals("chunk " + chunk, Arrays.asList("foo ERROR bar", "OR", "last ERROR"),
+                    matches.get("OR").getSamples());
+        }
+    }
+
+    @Test
+    public void samplesLastLineWithoutLineEnd() {
+        for (int chunk = 1; chunk <= 9; chunk++) {
+            PatternMatch match = scan(matcher("ERROR"), "a\nb ERROR", chunk).get("ERROR");
+            assertEquals("chunk " + chunk, Collections.singletonList("b ERROR"), match.getSamples());
+        }
+    }
+
+    @Test
+    public void stripsCarriageReturnOfSamples() {
+        PatternMatch match = scan(matcher("ERROR"), "ERROR one\r\n", 11).get("ERROR");
+        assertEquals(Collections.singletonList("ERROR one"), match.getSamples());
+    }
+
+    @Test
+    public void takesOneSamplePerLine() {
+        PatternMatch match = scan(matcher("x"), "x x x\n", 6).get("x");
+        assertEquals(3, match.getCount());
+        assertEquals(Collections.singletonList("x x x"), match.getSamples());
+    }
+
+    @Test
+    public void limitsSamples() {
+        OutputPatterns patterns = new OutputPatterns(Collections.singletonList("E"), false, 0, false, 2, 4);
+        PatternMatcher matcher = new PatternMatcher(patterns, UTF_8);
+        PatternMatch match = scan(matcher, "E1\nE2 long line\nE3\n", 3).get("E");
+        assertEquals(3, match.getCount());
+        // the first two lines, cut to the sample size.
+        assertEquals(Arrays.asList("E1", "E2 l"), match.getSamples());
+    }
+
+    @Test
+    public void ignoresCaseOfAsciiLetters() {
+        OutputPatterns patterns = new OutputPatterns(Collections.singletonList("Error"), true, 0, false,
+                OutputPatterns.DEFAULT_MAX_SAMPLES, OutputPatterns.DEFAULT_MAX_SAMPLE_BYTES);
+        PatternMatch match = scan(new PatternMatcher(patterns, UTF_8), "ERROR error eRrOr\n", 4).get("Error");
+        assertEquals(3, match.getCount());
+    }
+
+    @Test
+    public void matchesMultiByteCharacters() {
+        PatternMatch match = scan(matcher("错误"), "ok\n出现错误了\n", 1).get("错误");
+        assertEquals(1, match.getCount());
+        assertEquals(9, match.getFirstOutputOffset());
+        assertEquals(Collections.singletonList("出现错误了"), match.getSamples());
+    }
+
+    @Test
+    public void mergesStreamsOutputFirst() {
+        PatternMatcher.Scan scan = matcher("E").newScan();
+        write(scan.stream(OutputListener.Stream.STDERR), "err E\n", 2);
+        write(scan.stream(OutputListener.Stream.STDOUT), "xx\nout E\n", 2);
+        PatternMatch match = scan.result().get("E");
+        assertEquals(2, match.getCount());
+        assertEquals(7, match.getFirstOutputOffset());
+        assertEquals(4, match.getFirstErrorOffset());
+        assertEquals(Arrays.asList("out E", "err E"), match.getSamples());
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.scheduler.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * measures the latency and the allocations per launch of short commands through
+ * {@link Shell.ShellCommandExecutor}, one new executor per launch as one-off commands
+ * do, one reused executor as the job runners do, and one reused executor capturing
+ * into pooled direct buffers. allocations are those of the launching thread, which
+ * reads stdout.
+ *
+ * the jdk picks its launch mechanism once per jvm, so one run measures one mechanism;
+ * compare them by running the benchmark once per mechanism. a heap ballast makes the
+ * cost of copying the parent's address space on fork visible.
+ *
+ * usage: SpawnBenchmark [posix_spawn|vfork|fork|default] [threads] [launches] [ballast mb] [output bytes]
+ */
+public class SpawnBenchmark {
+    private static final int WARMUP_LAUNCHES = 200;
+
+    // keeps the heap ballast reachable.
+    private static byte[][] ballast;
+
+    private interface Launch {
+        void run() throws Exception;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static void measure(String name, int threads, int launches, Launch launch) throws Exception {
+        for (int i = 0; i < WARMUP_LAUNCHES; i++) {
+            launch.run();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final long[] samples = new long[launches];
+        final AtomicLong allocated = new AtomicLong();
+        final AtomicLong next = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                long bytes = allocatedBytes();
+                long i;
+                while ((i = next.getAndIncrement()) < launches) {
+                    long launchStart = System.nanoTime();
+                    launch.run();
+                    samples[(int) i] = System.nanoTime() - launchStart;
+                }
+                allocated.addAndGet(allocatedBytes() - bytes);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long total = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(samples);
+        long sum = 0;
+        for (long sample : samples) {
+            sum += sample;
+        }
+        System.out.printf("%-28s avg:%7.3f ms  p50:%7.3f ms  p99:%7.3f ms  %8.0f launches/s  %8d bytes/launch%n",
+                name, sum / (double) launches / 1000000.0,
+                samples[launches / 2] / 1000000.0, samples[launches * 99 / 100] / 1000000.0,
+                launches / (total / 1000000000.0), allocated.get() / launches);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mechanism = args.length > 0 ? args[0] : "default";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int launches = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int ballastMb = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int outputBytes = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        final String[] command = outputBytes > 0 ?
+                new String[]{"head", "-c", String.valueOf(outputBytes), "/dev/zero"} : new String[]{"true"};
+
+        if (!"default".equals(mechanism)) {
+            LaunchMechanism.of(mechanism).apply();
+        }
+        ballast = new byte[ballastMb][];
+        for (int i = 0; i < ballastMb; i++) {
+            ballast[i] = new byte[1024 * 1024];
+            // touch the pages, untouched ones are not copied.
+            for (int j = 0; j < ballast[i].length; j += 4096) {
+                ballast[i][j] = 1;
+            }
+        }
+        System.out.println("mechanism:" + LaunchMechanism.current() + " java:" + System.getProperty("java.version") +
+                " threads:" + threads + " launches:" + launches + " ballast:" + ballastMb + "MB output:" + outputBytes + " bytes");
+
+        measure("new executor per launch", threads, launches, () -> {
+            Shell.ShellCommandExecutor executor = new Shell.ShellCommandExecutor(command);
+            executor.execute();
+        });
+
+        // one reused executor per thread.
+        final ThreadLocal<Shell.ShellCommandExecutor> executors =
+                ThreadLocal.withInitial(() -> new Shell.ShellCommandExecutor(command));
+        measure("reused executor", threads, launches, () -> executors.get().execute());
+
+        final DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.DEFAULT_MAX_POOLED_BYTES);
+        final ThreadLocal<Shell.ShellCommandExecutor> pooledExecutors = ThreadLocal.withInitial(() -> {
+            Shell.ShellCommandExecutor executor = new Shell.ShellCommandExecutor(command);
+            executor.setBufferPool(pool);
+            return executor;
+        });
+        measure("reused executor, pooled", threads, launches, () -> {
+            Shell.ShellCommandExecutor executor = pooledExecutors.get();
+            executor.execute();
+            executor.takeCapturedOutput().release();
+            executor.takeCapturedError().release();
+        });
+        System.out.println("buffer pool:" + pool);
+    }
+}
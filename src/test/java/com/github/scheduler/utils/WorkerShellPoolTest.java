@@ -0,0 +1,151 @@
+package com.github.scheduler.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * the worker protocol: the output of a command is delimited by the sentinel lines on
+ * both streams, whatever the command wrote before them.
+ */
+public class WorkerShellPoolTest {
+
+    private static WorkerShellPool.WorkerCommandExecutor run(WorkerShellPool pool, String script) throws IOException {
+        WorkerShellPool.WorkerCommandExecutor command =
+                new WorkerShellPool.WorkerCommandExecutor(new String[]{"bash", "-c", script}, pool);
+        command.execute();
+        return command;
+    }
+
+    private static WorkerShellPool newPool() {
+        assumeTrue(WorkerShellPool.isSupported());
+        return new WorkerShellPool(1, 100);
+    }
+
+    @Test
+    public void keepsOutputWithoutTrailingNewline() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command = run(pool, "printf out; printf err >&2");
+            assertEquals("out", command.getOutput());
+            assertEquals("err", command.getError());
+            assertEquals(0, command.getExitCode());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void keepsTrailingNewlines() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command = run(pool, "echo out; echo; echo err >&2");
+            assertEquals("out\n\n", command.getOutput());
+            assertEquals("err\n", command.getError());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void keepsEmptyOutputEmpty() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command = run(pool, "true");
+            assertEquals("", command.getOutput());
+            assertEquals("", command.getError());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsExitCode() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            assertEquals(3, run(pool, "echo failing; exit 3").getExitCode());
+            // the worker survives a failing command.
+            assertEquals(0, run(pool, "exit 0").getExitCode());
+            assertEquals(1, pool.getSpawnedCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void readsOutputLongerThanOneRead() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command = run(pool, "head -c 100000 /dev/zero | tr '\\0' x");
+            assertEquals(100000, command.getOutput().length());
+            assertFalse(command.getOutput().contains("\n"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void delimitsOutputOfConsecutiveCommands() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            for (int i = 0; i < 20; i++) {
+                WorkerShellPool.WorkerCommandExecutor command = run(pool, "printf 'line %d' " + i + "; printf e" + i + " >&2");
+                assertEquals("line " + i, command.getOutput());
+                assertEquals("e" + i, command.getError());
+            }
+            assertEquals(1, pool.getSpawnedCount());
+            assertEquals(20, pool.getExecutedCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void runsCommandsWithoutShell() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command =
+                    new WorkerShellPool.WorkerCommandExecutor(new String[]{"printf", "%s|", "a b", "$HOME"}, pool);
+            command.execute();
+            // the arguments reach the command as they are.
+            assertEquals("a b|$HOME|", command.getOutput());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void recyclesWorkerAfterMaxCommands() throws IOException {
+        assumeTrue(WorkerShellPool.isSupported());
+        WorkerShellPool pool = new WorkerShellPool(1, 2);
+        try {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(String.valueOf(i), run(pool, "printf " + i).getOutput());
+            }
+            assertEquals(2, pool.getSpawnedCount());
+            assertEquals(2, pool.getRecycledCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void killsLeftoversAndRecyclesWorker() throws IOException {
+        WorkerShellPool pool = newPool();
+        try {
+            WorkerShellPool.WorkerCommandExecutor command = run(pool, "sleep 30 & printf started");
+            assertEquals("started", command.getOutput());
+            assertEquals(0, command.getExitCode());
+            assertTrue(command.getKilledPids().size() > 0);
+            assertEquals(1, pool.getRecycledCount());
+            assertEquals(0, pool.getIdleCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}